@@ -2,6 +2,30 @@
 set -e
 
 CONFIG_PATH="/tmp/config.toml"
+AOT_CACHE="/app/wen.aot"
+
+# training and serving must use the same flags or the AOT cache is rejected
+JAVA_OPTS="
+  -XX:MaxRAM=256m
+  -XX:ActiveProcessorCount=1
+
+  -Xms64m
+  -Xmx64m
+  -XX:SoftMaxHeapSize=40m
+
+  -XX:+UseZGC
+  -XX:+AlwaysPreTouch
+  -XX:ZAllocationSpikeTolerance=5
+  -XX:+UseCompactObjectHeaders
+
+  -XX:ReservedCodeCacheSize=16m
+  -XX:TieredStopAtLevel=1
+"
+
+# image build: run the offline training workload and write the AOT cache
+if [ "$1" = "--train" ]; then
+  exec java $JAVA_OPTS -XX:AOTCacheOutput="$AOT_CACHE" -jar wen.jar --train
+fi
 
 if [ -n "$WEN_CONFIG_B64" ]; then
   echo "$WEN_CONFIG_B64" | base64 -d > "$CONFIG_PATH"
@@ -10,22 +34,15 @@ else
   exit 1
 fi
 
+# WEN_AOT=off starts without the cache (startup comparisons)
+AOT_OPTS=""
+if [ -f "$AOT_CACHE" ] && [ "$WEN_AOT" != "off" ]; then
+  AOT_OPTS="-XX:AOTCache=$AOT_CACHE"
+fi
+
 exec java \
-  -XX:MaxRAM=256m \
-  -XX:ActiveProcessorCount=1 \
-  \
-  -Xms64m \
-  -Xmx64m \
-  -XX:SoftMaxHeapSize=40m \
-  \
-  -XX:+UseZGC \
-  -XX:+AlwaysPreTouch \
-  -XX:ZAllocationSpikeTolerance=5 \
-  -XX:+UseCompactObjectHeaders \
-  \
-  -XX:ReservedCodeCacheSize=16m \
-  -XX:TieredStopAtLevel=1 \
-  \
+  $JAVA_OPTS \
+  $AOT_OPTS \
   -Dconfig="$CONFIG_PATH" \
   -jar wen.jar \
   "$@"
@@ -0,0 +1,48 @@
+#!/bin/sh
+# time-to-first-response of the container with and without the AOT cache.
+# runs the image on the host network against StartupProbe (local discord + calendar stand-in)
+# and reads startup.first_response from the bot's log.
+#
+# usage: docker/startup-bench.sh [runs]    needs docker, mvn and a JDK on the host
+set -e
+
+RUNS="${1:-5}"
+cd "$(dirname "$0")/.."
+mkdir -p target/startup-bench
+OUT=target/startup-bench
+
+docker build -q -t wen:startup-bench . > /dev/null
+mvn -B -q test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile="$OUT/classpath" > /dev/null
+CP="target/test-classes:target/classes:$(cat "$OUT/classpath")"
+
+run_once() {
+  rm -f "$OUT/probe.env" "$OUT/bot.log"
+  java -cp "$CP" com.github.anirbanmu.wen.StartupProbe > "$OUT/probe.env" &
+  probe=$!
+  until grep -q '^# ready' "$OUT/probe.env" 2> /dev/null; do sleep 0.1; done
+  . "$OUT/probe.env"
+
+  container=$(docker run -d --network host \
+    -e DISCORD_TOKEN=startup-bench -e DISCORD_APPLICATION_ID=1 \
+    -e DISCORD_API_URL -e DISCORD_GATEWAY_URL -e WEN_CONFIG_B64 \
+    -e HEALTH_PORT=18080 -e WEN_AOT="$1" \
+    wen:startup-bench)
+
+  wait "$probe" || true
+  for _ in $(seq 50); do
+    docker logs "$container" > "$OUT/bot.log" 2>&1
+    grep -q 'evt=startup.first_response' "$OUT/bot.log" && break
+    sleep 0.1
+  done
+  docker rm -f "$container" > /dev/null
+  sed -n 's/.*evt=startup.first_response since_process_start_ms=\([0-9-]*\).*/\1/p' "$OUT/bot.log"
+}
+
+for mode in off on; do
+  samples=""
+  for _ in $(seq "$RUNS"); do
+    samples="$samples $(run_once "$mode")"
+  done
+  median=$(echo $samples | tr ' ' '\n' | sort -n | awk '{ a[NR] = $1 } END { print a[int((NR + 1) / 2)] }')
+  echo "aot=$mode time_to_first_response_ms median=$median samples=[$samples ]"
+done
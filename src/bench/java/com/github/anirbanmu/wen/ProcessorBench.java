@@ -0,0 +1,125 @@
+package com.github.anirbanmu.wen;
+
+import com.github.anirbanmu.wen.calendar.CalendarEvent;
+import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.config.Filter;
+import com.github.anirbanmu.wen.config.MatchField;
+import com.github.anirbanmu.wen.discord.json.Interaction;
+import com.github.anirbanmu.wen.discord.json.InteractionResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// end to end Processor.process for the interaction shapes we actually see
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessorBench {
+    static final String[] SPORTS = {"f1", "motogp", "wrc", "indycar", "nascar", "wec", "imsa", "wsbk", "formula-e", "dtm", "supercars", "btcc"};
+
+    @State(Scope.Benchmark)
+    public static class Command {
+        // keyword, named filter, free-text filter, unknown calendar
+        @Param({"f1", "f1 sprint", "f1 monaco", "nope"})
+        public String query;
+
+        Processor processor;
+        Interaction interaction;
+
+        @Setup
+        public void setup() {
+            processor = processor(SPORTS, 500);
+            interaction = command(query);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Autocomplete {
+        @Param({"", "f", "f1 s", "mo"})
+        public String prefix;
+
+        Processor processor;
+        Interaction interaction;
+
+        @Setup
+        public void setup() {
+            processor = processor(SPORTS, 500);
+            interaction = autocomplete(prefix);
+        }
+    }
+
+    @Benchmark
+    public InteractionResponse command(Command s) {
+        return s.processor.process(s.interaction);
+    }
+
+    @Benchmark
+    public InteractionResponse autocomplete(Autocomplete s) {
+        return s.processor.process(s.interaction);
+    }
+
+    static Processor processor(String[] sports, int eventsPerCalendar) {
+        Map<String, Calendar> configs = new HashMap<>();
+        Map<String, CalendarFeed> feeds = new HashMap<>();
+        for (String sport : sports) {
+            Calendar config = new Calendar(
+                List.of(sport), sport.toUpperCase() + " Championship", "https://example.com/" + sport + ".ics", Duration.ofHours(6),
+                Map.of("sprint", new Filter("sprint", MatchField.SUMMARY),
+                    "quali", new Filter("qualifying", MatchField.SUMMARY),
+                    "race", new Filter("grand prix", MatchField.SUMMARY)),
+                null, false, null);
+            configs.put(sport, config);
+            feeds.put(sport, CalendarFeed.fixed(events(sport, eventsPerCalendar)));
+        }
+        return new Processor(configs, feeds);
+    }
+
+    // sorted by start, starting an hour out so every event is upcoming
+    static List<CalendarEvent> events(String sport, int count) {
+        String[] sessions = {"Practice 1", "Practice 2", "Qualifying", "Sprint", "Grand Prix"};
+        String[] venues = {"Bahrain", "Jeddah", "Melbourne", "Suzuka", "Shanghai", "Miami", "Imola", "Monaco", "Montreal", "Barcelona"};
+        Instant base = Instant.now().plus(Duration.ofHours(1));
+        List<CalendarEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String venue = venues[(i / sessions.length) % venues.length];
+            Instant start = base.plus(Duration.ofHours(6L * i));
+            events.add(CalendarEvent.create(
+                sport.toUpperCase() + ": " + venue + " " + sessions[i % sessions.length],
+                start, start.plus(Duration.ofHours(2)), venue + " Circuit",
+                "Round " + (i / sessions.length + 1) + " of the " + sport + " season", List.of(sport)));
+        }
+        return events;
+    }
+
+    static Interaction command(String query) {
+        return Interaction.of("1", "app", Interaction.TYPE_APPLICATION_COMMAND,
+            Interaction.Data.command("1", "wen", Interaction.Data.TYPE_CHAT_INPUT,
+                List.of(new Interaction.Option("query", Interaction.Option.TYPE_STRING, query, null))),
+            "guild", "channel", "token");
+    }
+
+    static Interaction autocomplete(String prefix) {
+        return Interaction.of("1", "app", Interaction.TYPE_APPLICATION_COMMAND_AUTOCOMPLETE,
+            Interaction.Data.command("1", "wen", Interaction.Data.TYPE_CHAT_INPUT,
+                List.of(new Interaction.Option("query", Interaction.Option.TYPE_STRING, prefix, true))),
+            "guild", "channel", "token");
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.anirbanmu.wen.calendar;
+
+import com.github.anirbanmu.wen.config.Filter;
+import com.github.anirbanmu.wen.config.MatchField;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalendarFeedBench {
+
+    @State(Scope.Benchmark)
+    public static class Query {
+        @Param({"1500", "15000"})
+        public int events;
+
+        List<CalendarEvent> parsed;
+        Predicate<CalendarEvent> named;
+        Predicate<CalendarEvent> freeText;
+
+        @Setup
+        public void setup() {
+            parsed = CalendarFeed.parse(IcsCorpus.generate(IcsCorpus.Spec.of(events, 1)), _ -> true);
+            named = new Filter("sprint", MatchField.SUMMARY).toPredicate();
+            // same shape as Processor's free-text fallback
+            String q = "monaco";
+            freeText = e -> (e.lowerSummary() != null && e.lowerSummary().contains(q)) ||
+                (e.lowerLocation() != null && e.lowerLocation().contains(q)) ||
+                (e.lowerDescription() != null && e.lowerDescription().contains(q));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Parse {
+        // a tenth of production, production, 10x production
+        @Param({"150", "1500", "15000"})
+        public int events;
+
+        String ics;
+
+        @Setup
+        public void setup() {
+            ics = IcsCorpus.generate(IcsCorpus.Spec.of(events, 1));
+        }
+    }
+
+    @Benchmark
+    public QueryResult queryUnfiltered(Query s) {
+        return CalendarFeed.query(s.parsed, _ -> true, 2);
+    }
+
+    @Benchmark
+    public QueryResult queryNamedFilter(Query s) {
+        return CalendarFeed.query(s.parsed, s.named, 2);
+    }
+
+    @Benchmark
+    public QueryResult queryFreeText(Query s) {
+        return CalendarFeed.query(s.parsed, s.freeText, 2);
+    }
+
+    @Benchmark
+    public List<CalendarEvent> parse(Parse s) {
+        return CalendarFeed.parse(s.ics, _ -> true);
+    }
+}
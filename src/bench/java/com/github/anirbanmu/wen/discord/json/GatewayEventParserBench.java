@@ -0,0 +1,61 @@
+package com.github.anirbanmu.wen.discord.json;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GatewayEventParserBench {
+    // shapes recorded from the gateway, ids and tokens replaced
+    static final String COMMAND = """
+        {"t":"INTERACTION_CREATE","s":7,"op":0,"d":{"version":1,"type":2,"token":"aW50ZXJhY3Rpb246MTMwMDAwMDAwMDAwMDAwMDAwMDpyZWRhY3RlZA","member":{"user":{"username":"racefan","public_flags":0,"id":"200000000000000000","global_name":"Race Fan","discriminator":"0","avatar":"0123456789abcdef0123456789abcdef"},"roles":[],"premium_since":null,"permissions":"2248473465835073","pending":false,"nick":null,"mute":false,"joined_at":"2023-03-01T18:21:08.123000+00:00","flags":0,"deaf":false,"communication_disabled_until":null,"avatar":null},"locale":"en-US","id":"1300000000000000000","guild_locale":"en-US","guild_id":"100000000000000000","guild":{"locale":"en-US","id":"100000000000000000","features":["COMMUNITY","NEWS"]},"entitlements":[],"entitlement_sku_ids":[],"data":{"type":1,"options":[{"value":"f1 sprint","type":3,"name":"query"}],"name":"wen","id":"1200000000000000000"},"context":0,"channel_id":"110000000000000000","channel":{"type":0,"topic":"race chat","rate_limit_per_user":0,"position":3,"permissions":"2248473465835073","parent_id":"120000000000000000","nsfw":false,"name":"general","last_message_id":"1299999999999999999","id":"110000000000000000","guild_id":"100000000000000000","flags":0},"authorizing_integration_owners":{"0":"100000000000000000"},"application_id":"1100000000000000000","app_permissions":"2248473465835073"}}
+        """;
+
+    static final String AUTOCOMPLETE = """
+        {"t":"INTERACTION_CREATE","s":8,"op":0,"d":{"version":1,"type":4,"token":"aW50ZXJhY3Rpb246MTMwMDAwMDAwMDAwMDAwMDAwMTpyZWRhY3RlZA","member":{"user":{"username":"racefan","public_flags":0,"id":"200000000000000000","global_name":"Race Fan","discriminator":"0","avatar":null},"roles":[],"permissions":"2248473465835073","pending":false,"nick":null,"mute":false,"joined_at":"2023-03-01T18:21:08.123000+00:00","flags":0,"deaf":false},"locale":"en-US","id":"1300000000000000001","guild_locale":"en-US","guild_id":"100000000000000000","entitlements":[],"data":{"type":1,"options":[{"value":"f1 s","type":3,"name":"query","focused":true}],"name":"wen","id":"1200000000000000000"},"context":0,"channel_id":"110000000000000000","application_id":"1100000000000000000","app_permissions":"2248473465835073"}}
+        """;
+
+    static final String HEARTBEAT_ACK = """
+        {"t":null,"s":null,"op":11,"d":null}
+        """;
+
+    static final String HELLO = """
+        {"t":null,"s":null,"op":10,"d":{"heartbeat_interval":41250,"_trace":["[\\"gateway-prd-us-east1-b-0l2v\\",{\\"micros\\":0.0}]"]}}
+        """;
+
+    @Param({"command", "autocomplete", "heartbeat_ack", "hello"})
+    public String payload;
+
+    private final GatewayEventParser parser = new GatewayEventParser();
+    private String raw;
+
+    @Setup
+    public void setup() {
+        raw = switch (payload) {
+            case "command" -> COMMAND;
+            case "autocomplete" -> AUTOCOMPLETE;
+            case "heartbeat_ack" -> HEARTBEAT_ACK;
+            case "hello" -> HELLO;
+            default -> throw new IllegalArgumentException(payload);
+        };
+    }
+
+    @Benchmark
+    public GatewayEventParser.ParseResult parse() throws Exception {
+        return parser.parse(raw);
+    }
+}
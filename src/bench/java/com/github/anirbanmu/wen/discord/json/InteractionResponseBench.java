@@ -0,0 +1,63 @@
+package com.github.anirbanmu.wen.discord.json;
+
+import com.github.anirbanmu.wen.util.Json;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// mirrors DiscordHttpClient.bodyPublisher: fresh stream, serialize, copy out
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InteractionResponseBench {
+    private InteractionResponse embed;
+    private InteractionResponse autocomplete;
+
+    @Setup
+    public void setup() {
+        embed = InteractionResponse.embeds(List.of(new InteractionResponse.Embed(
+            null,
+            "**Monaco Grand Prix** · Circuit de Monaco\n<t:1780000000:R> · <t:1780000000:f>\n\n**Canadian Grand Prix** · Circuit Gilles Villeneuve\n<t:1781000000:R> · <t:1781000000:f>",
+            0xE10600, null, "2026-05-20T12:00:00Z",
+            new InteractionResponse.Footer("wen?", null),
+            new InteractionResponse.Author("Formula 1", null))));
+
+        List<InteractionResponse.Choice> choices = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            String s = "calendar-" + i + " sprint";
+            choices.add(new InteractionResponse.Choice(s, s));
+        }
+        autocomplete = InteractionResponse.autocomplete(choices);
+    }
+
+    @Benchmark
+    public byte[] serializeEmbed() throws IOException {
+        return serialize(embed);
+    }
+
+    @Benchmark
+    public byte[] serializeAutocomplete() throws IOException {
+        return serialize(autocomplete);
+    }
+
+    private static byte[] serialize(Object data) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Json.DSL.serialize(data, os);
+        return os.toByteArray();
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.anirbanmu.wen;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// typo-tolerant lookup over calendar keys ("formual1" -> "formula1"), only consulted after an exact
+// lookup misses. a BK-tree: each child edge is labelled with its edit distance to the parent, and
+// the triangle inequality means a search within radius r only descends edges in [d - r, d + r].
+// that pruning isn't a bound, so the cost is kept small another way: the tree holds only the
+// configured keys (a few hundred at most), and queries over MAX_QUERY_LENGTH are refused, so one
+// lookup is at most one bounded distance per key.
+final class FuzzyKeys {
+    // longer input is not a mistyped key
+    static final int MAX_QUERY_LENGTH = 32;
+    static final int MAX_SUGGESTIONS = 5;
+
+    private final Node root;
+
+    // closest: the keys at the smallest distance, if that is within the accepted radius.
+    // nearby: the closest keys within one more edit, for a "did you mean" list
+    record Match(List<String> closest, List<String> nearby) {
+    }
+
+    private record Hit(String key, int distance) {
+    }
+
+    FuzzyKeys(Collection<String> keys) {
+        Node r = null;
+        for (String key : keys) {
+            if (r == null) {
+                r = new Node(key);
+            } else {
+                r.insert(key);
+            }
+        }
+        this.root = r;
+    }
+
+    // typos allowed for a key of this length: none for 1-2 characters ("f2" is not "f1"), then
+    // one, then two from 5 characters
+    static int radius(int length) {
+        return length <= 2 ? 0 : length <= 4 ? 1 : 2;
+    }
+
+    Match find(String q) {
+        if (root == null || q.isEmpty() || q.length() > MAX_QUERY_LENGTH) {
+            return new Match(List.of(), List.of());
+        }
+        int accept = radius(q.length());
+        // suggestions may reach one edit further than what is accepted outright
+        int reach = accept + 1;
+        List<Hit> hits = new ArrayList<>();
+        root.search(q, reach, hits);
+        if (hits.isEmpty()) {
+            return new Match(List.of(), List.of());
+        }
+        hits.sort(Comparator.comparingInt(Hit::distance).thenComparing(Hit::key));
+
+        List<String> nearby = new ArrayList<>();
+        for (int i = 0; i < hits.size() && i < MAX_SUGGESTIONS; i++) {
+            nearby.add(hits.get(i).key());
+        }
+        List<String> closest = new ArrayList<>();
+        int best = hits.getFirst().distance();
+        for (Hit hit : hits) {
+            if (hit.distance() == best && best <= accept) {
+                closest.add(hit.key());
+            }
+        }
+        return new Match(List.copyOf(closest), List.copyOf(nearby));
+    }
+
+    // levenshtein distance; two rows, and both strings are short
+    static int distance(String a, String b) {
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] t = prev;
+            prev = cur;
+            cur = t;
+        }
+        return prev[b.length()];
+    }
+
+    private static final class Node {
+        final String key;
+        final Map<Integer, Node> children = new HashMap<>();
+
+        Node(String key) {
+            this.key = key;
+        }
+
+        void insert(String k) {
+            Node node = this;
+            while (true) {
+                int d = distance(k, node.key);
+                if (d == 0) {
+                    return;
+                }
+                Node child = node.children.get(d);
+                if (child == null) {
+                    node.children.put(d, new Node(k));
+                    return;
+                }
+                node = child;
+            }
+        }
+
+        void search(String q, int radius, List<Hit> hits) {
+            int d = distance(q, key);
+            if (d <= radius) {
+                hits.add(new Hit(key, d));
+            }
+            for (int edge = Math.max(1, d - radius); edge <= d + radius; edge++) {
+                Node child = children.get(edge);
+                if (child != null) {
+                    child.search(q, radius, hits);
+                }
+            }
+        }
+    }
+}
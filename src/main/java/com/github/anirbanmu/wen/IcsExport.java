@@ -0,0 +1,298 @@
+package com.github.anirbanmu.wen;
+
+import com.github.anirbanmu.wen.calendar.CalendarEvent;
+import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.config.Filter;
+import com.github.anirbanmu.wen.log.Log;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// calendar views as ics for phones to subscribe to: /ics/f1.ics is a calendar's feed (after its
+// prefilter), /ics/f1/sprint.ics narrows it by a named filter. each view's body is generated once per
+// refresh and kept gzipped; a body is stale once its feed holds a different event list, which is a
+// reference check per request. the etag is the crc32c of the ics text less its DTSTAMPs (the build
+// time), so a refresh that changes nothing in a view, a config reload or a restart still answers
+// pollers with 304.
+final class IcsExport {
+    static final String PREFIX = "/ics/";
+    private static final String SUFFIX = ".ics";
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    // content lines are folded at 75 octets (rfc 5545 3.1)
+    private static final int LINE_OCTETS = 75;
+
+    private record View(String name, Calendar config, CalendarFeed feed, Predicate<CalendarEvent> filter) {
+    }
+
+    // source: the feed's list this was generated from, held weakly so a view nobody has asked for
+    // since a refresh doesn't keep the previous snapshot alive
+    record Body(byte[] gzip, String etag, WeakReference<List<CalendarEvent>> source) {
+        boolean builtFrom(List<CalendarEvent> events) {
+            return source.get() == events;
+        }
+    }
+
+    // "f1" and "f1/sprint" for each keyword and filter, so only configured views exist
+    private final Map<String, View> views = new HashMap<>();
+    private final Map<String, Body> bodies = new ConcurrentHashMap<>();
+    private final Clock clock;
+
+    IcsExport(Map<Calendar, CalendarFeed> feeds) {
+        this(feeds, Clock.systemUTC());
+    }
+
+    IcsExport(Map<Calendar, CalendarFeed> feeds, Clock clock) {
+        this.clock = clock;
+        for (Map.Entry<Calendar, CalendarFeed> e : feeds.entrySet()) {
+            Calendar config = e.getKey();
+            for (String keyword : config.keywords()) {
+                String key = Processor.slugify(keyword);
+                views.putIfAbsent(key, new View(config.name(), config, e.getValue(), null));
+                for (Map.Entry<String, Filter> f : config.filters().entrySet()) {
+                    views.putIfAbsent(key + "/" + f.getKey(), new View(config.name() + " · " + f.getKey(), config, e.getValue(),
+                        f.getValue().toPredicate()));
+                }
+            }
+        }
+    }
+
+    // null for a view that isn't configured
+    Body body(String view) {
+        View v = views.get(view);
+        if (v == null) {
+            return null;
+        }
+        List<CalendarEvent> events = v.feed().getEvents();
+        Body body = bodies.get(view);
+        if (body != null && body.builtFrom(events)) {
+            return body;
+        }
+        // one rebuild per view per refresh, however many clients arrive at once
+        return bodies.compute(view, (_, old) -> old != null && old.builtFrom(events) ? old : build(v, events, STAMP.format(clock.instant())));
+    }
+
+    static HttpHandler handler(Supplier<IcsExport> current) {
+        return exchange -> {
+            try {
+                serve(current.get(), exchange);
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private static void serve(IcsExport export, HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (!method.equals("GET") && !method.equals("HEAD")) {
+            exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        String path = exchange.getRequestURI().getPath();
+        String view = path.substring(Math.min(PREFIX.length(), path.length()));
+        if (view.endsWith(SUFFIX)) {
+            view = view.substring(0, view.length() - SUFFIX.length());
+        }
+        Body body = export.body(view.toLowerCase());
+        if (body == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", body.etag());
+        headers.set("Cache-Control", "public, max-age=300");
+        headers.set("Vary", "Accept-Encoding");
+        if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), body.etag())) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        headers.set("Content-Type", "text/calendar; charset=utf-8");
+        boolean head = method.equals("HEAD");
+        if (acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+            headers.set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, head ? -1 : body.gzip().length);
+            if (!head) {
+                exchange.getResponseBody().write(body.gzip());
+            }
+            return;
+        }
+        // the rare client without gzip gets it inflated on the way out rather than a second cached copy
+        exchange.sendResponseHeaders(200, head ? -1 : 0);
+        if (!head) {
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body.gzip()))) {
+                in.transferTo(exchange.getResponseBody());
+            }
+        }
+    }
+
+    // gzip, or "*" when gzip isn't named, with a q-value above 0 (rfc 9110 12.5.3)
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean any = false;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].strip().toLowerCase();
+            boolean accepted = quality(parts) > 0;
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                return accepted;
+            }
+            if (coding.equals("*")) {
+                any = accepted;
+            }
+        }
+        return any;
+    }
+
+    // the q parameter of a parsed Accept-Encoding entry; 1 when absent, 0 when malformed
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].strip();
+            if (param.length() > 1 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(param.substring(2).strip());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    // a list of etags, weak or not, or "*"
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String t = tag.strip();
+            if (t.equals("*") || t.equals(etag) || (t.startsWith("W/") && t.substring(2).equals(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Body build(View view, List<CalendarEvent> events, String stamp) {
+        String text = ics(view, events, stamp);
+        byte[] ics = text.getBytes(StandardCharsets.UTF_8);
+        // DTSTAMP lines are short enough never to fold, so they drop out whole
+        CRC32C crc = new CRC32C();
+        crc.update(text.replace("DTSTAMP:" + stamp + "\r\n", "").getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream(ics.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(ics);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        Body body = new Body(gzipped.toByteArray(), "\"" + Long.toHexString(crc.getValue()) + "\"", new WeakReference<>(events));
+        Log.info("ics.built", "view", view.name(), "bytes", ics.length, "gzip_bytes", body.gzip().length);
+        return body;
+    }
+
+    // only what the feed keeps, plus stamp (when this was built) as every event's DTSTAMP
+    private static String ics(View view, List<CalendarEvent> events, String stamp) {
+        StringBuilder sb = new StringBuilder(256 + events.size() * 256);
+        line(sb, "BEGIN:VCALENDAR");
+        line(sb, "VERSION:2.0");
+        line(sb, "PRODID:-//wen//wen calendar export//EN");
+        line(sb, "CALSCALE:GREGORIAN");
+        line(sb, "X-WR-CALNAME:" + text(view.name()));
+        long minutes = Math.max(15, view.config().refreshInterval().toMinutes());
+        line(sb, "REFRESH-INTERVAL;VALUE=DURATION:PT" + minutes + "M");
+        line(sb, "X-PUBLISHED-TTL:PT" + minutes + "M");
+        for (CalendarEvent event : events) {
+            if (view.filter() != null && !view.filter().test(event)) {
+                continue;
+            }
+            line(sb, "BEGIN:VEVENT");
+            line(sb, "UID:" + uid(event) + "@wen");
+            line(sb, "DTSTAMP:" + stamp);
+            line(sb, "DTSTART:" + STAMP.format(event.start()));
+            line(sb, "DTEND:" + STAMP.format(event.end() != null ? event.end() : event.start()));
+            if (event.summary() != null) {
+                line(sb, "SUMMARY:" + text(event.summary()));
+            }
+            if (event.location() != null && !event.location().isBlank()) {
+                line(sb, "LOCATION:" + text(event.location()));
+            }
+            if (event.description() != null && !event.description().isBlank()) {
+                line(sb, "DESCRIPTION:" + text(event.description()));
+            }
+            if (event.categories() != null && !event.categories().isEmpty()) {
+                StringBuilder categories = new StringBuilder();
+                for (String c : event.categories()) {
+                    categories.append(categories.isEmpty() ? "" : ",").append(text(c));
+                }
+                line(sb, "CATEGORIES:" + categories);
+            }
+            line(sb, "END:VEVENT");
+        }
+        line(sb, "END:VCALENDAR");
+        return sb.toString();
+    }
+
+    // feeds don't keep source uids; start and summary name an occurrence well enough to stay stable
+    private static String uid(CalendarEvent event) {
+        CRC32C crc = new CRC32C();
+        if (event.summary() != null) {
+            crc.update(event.summary().getBytes(StandardCharsets.UTF_8));
+        }
+        return event.start().getEpochSecond() + "-" + Long.toHexString(crc.getValue());
+    }
+
+    // rfc 5545 TEXT escaping
+    static String text(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\', ';', ',' -> sb.append('\\').append(c);
+                case '\n' -> sb.append("\\n");
+                case '\r' -> {
+                }
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // appends a content line with CRLF, folded so no line exceeds 75 octets of utf-8 and no
+    // character is split across a fold
+    static void line(StringBuilder sb, String content) {
+        int octets = 0;
+        for (int i = 0; i < content.length(); ) {
+            int cp = content.codePointAt(i);
+            int size = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            if (octets + size > LINE_OCTETS) {
+                // the leading space of a continuation counts toward its line
+                sb.append("\r\n ");
+                octets = 1;
+            }
+            sb.appendCodePoint(cp);
+            octets += size;
+            i += Character.charCount(cp);
+        }
+        sb.append("\r\n");
+    }
+}
@@ -1,32 +1,72 @@
 package com.github.anirbanmu.wen;
 
 import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.calendar.FeedRegistry;
+import com.github.anirbanmu.wen.calendar.SnapshotStore;
+import com.github.anirbanmu.wen.capture.Capture;
 import com.github.anirbanmu.wen.config.Calendar;
 import com.github.anirbanmu.wen.config.ConfigLoader;
+import com.github.anirbanmu.wen.config.ConfigUpload;
+import com.github.anirbanmu.wen.config.ConfigWatcher;
+import com.github.anirbanmu.wen.config.VirtualCalendar;
 import com.github.anirbanmu.wen.config.WenConfig;
 import com.github.anirbanmu.wen.discord.DiscordHttpClient;
 import com.github.anirbanmu.wen.discord.DiscordResult;
 import com.github.anirbanmu.wen.discord.PersistentGateway;
 import com.github.anirbanmu.wen.discord.json.Command;
 import com.github.anirbanmu.wen.discord.json.Command.Option;
+import com.github.anirbanmu.wen.discord.json.Interaction;
 import com.github.anirbanmu.wen.discord.json.InteractionResponse;
+import com.github.anirbanmu.wen.discord.json.Message;
+import com.github.anirbanmu.wen.guild.GuildDefaults;
 import com.github.anirbanmu.wen.log.GcLog;
 import com.github.anirbanmu.wen.log.Log;
+import com.github.anirbanmu.wen.reminder.Reminders;
+import com.github.anirbanmu.wen.store.LogStore;
+import com.github.anirbanmu.wen.store.Store;
+import com.github.anirbanmu.wen.util.Timers;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class Main {
+    private static final AtomicBoolean FIRST_RESPONSE = new AtomicBoolean();
+    private static final Duration WATCHDOG_PERIOD = Duration.ofSeconds(10);
+    private static final Duration WATCHDOG_SLACK = Duration.ofSeconds(1);
+    private static final Duration READY_POLL = Duration.ofSeconds(1);
+
     public static void main(String[] args) {
+        // offline run used to produce the AOT cache at image build time
+        if (args.length > 0 && args[0].equals("--train")) {
+            try {
+                Training.run();
+            } catch (Exception e) {
+                Log.error("training.failed", e);
+                System.exit(1);
+            }
+            System.exit(0);
+        }
+
         GcLog.install();
 
         String token = System.getenv("DISCORD_TOKEN");
@@ -60,95 +100,177 @@ public class Main {
 
         Log.info("bot_startup", "status", "starting", "version", "1.0.0");
 
-        Map<String, CalendarFeed> feeds = new HashMap<>();
-        Map<String, Calendar> calendarConfigs = new HashMap<>();
+        // installed before the feeds so their first snapshots are captured too
+        String capturePath = System.getenv("WEN_CAPTURE_PATH");
+        if (capturePath != null) {
+            Capture.install(Path.of(capturePath));
+        }
+
+        // parsed feeds survive restarts here so /wen answers before the first fetch completes
+        String stateDir = System.getenv().getOrDefault("WEN_STATE_DIR", "state");
+        SnapshotStore snapshots = null;
+        try {
+            snapshots = SnapshotStore.open(Path.of(stateDir));
+        } catch (IOException e) {
+            Log.error("startup.state_dir_failed", e, "path", stateDir);
+        }
+
+        // calendars sharing a url share one fetch + parse; each gets a prefiltered view
+        int refreshBudget = Integer.parseInt(System.getenv().getOrDefault("WEN_REFRESH_BUDGET", "30"));
+        FeedRegistry registry = new FeedRegistry(snapshots, refreshBudget);
+        Map<Calendar, CalendarFeed> views = new LinkedHashMap<>();
         for (Calendar calConfig : config.calendars()) {
-            CalendarFeed feed = calConfig.prefilter() != null
-                ? new CalendarFeed(calConfig.url(), calConfig.refreshInterval(), calConfig.prefilter().toPredicate())
-                : new CalendarFeed(calConfig.url(), calConfig.refreshInterval());
-            for (String keyword : calConfig.keywords()) {
-                feeds.put(keyword, feed);
-                calendarConfigs.put(keyword, calConfig);
-            }
+            views.put(calConfig, registry.view(calConfig));
         }
+        Log.info("startup.feeds", "calendars", config.calendars().size(), "sources", registry.sourceCount());
+
+        // overridable so the bot can run against a local stand-in
+        String apiUrl = System.getenv().getOrDefault("DISCORD_API_URL", DiscordHttpClient.DEFAULT_BASE_URL);
+        String gatewayUrl = System.getenv().getOrDefault("DISCORD_GATEWAY_URL", PersistentGateway.DEFAULT_GATEWAY_URL);
 
-        DiscordHttpClient httpClient = new DiscordHttpClient(token);
+        DiscordHttpClient httpClient = new DiscordHttpClient(token, apiUrl);
 
         try {
-            registerWenCommand(config, httpClient, appId);
+            registerWenCommand(httpClient, appId);
         } catch (Exception e) {
             Log.error("startup.command_registration_failed", e);
             System.exit(1);
         }
 
-        Processor processor = new Processor(calendarConfigs, feeds);
+        // state users create (reminders, guild defaults) lives beside the snapshots; without it, it lasts until restart
+        Store store = null;
+        try {
+            store = LogStore.open(Path.of(stateDir, "store"));
+        } catch (IOException e) {
+            Log.error("startup.store_failed", e, "path", stateDir);
+        }
 
-        PersistentGateway gateway = new PersistentGateway(token, interaction -> {
-            long start = System.nanoTime();
-            Log.info("interaction.received", "id", interaction.id());
-            try {
-                long procStart = System.nanoTime();
-                InteractionResponse response = processor.process(interaction);
-                long procMs = (System.nanoTime() - procStart) / 1_000_000;
+        // "/wen subscribe": posted through the same client (and token bucket) as interaction responses
+        Reminders reminders = "off".equals(System.getenv("WEN_REMINDERS")) ? null : new Reminders(Timers.WHEEL,
+            (channel, text) -> httpClient.createMessage(Long.toUnsignedString(channel), Message.text(text)), Clock.systemUTC(), store);
 
-                if (response != null) {
-                    long netStart = System.nanoTime();
-                    DiscordResult<Void> result = httpClient.respondToInteraction(interaction.id(), interaction.token(), response);
-                    long netMs = (System.nanoTime() - netStart) / 1_000_000;
-                    long totalMs = (System.nanoTime() - start) / 1_000_000;
+        // outlives config reloads, so its cache stays warm across them
+        GuildDefaults guildDefaults = new GuildDefaults(store);
 
-                    if (result instanceof DiscordResult.Failure<Void> f) {
-                        Log.error("interaction.response_failed", "error", f.message(), "proc_ms", procMs, "net_ms", netMs, "total_ms", totalMs);
-                    } else {
-                        Log.info("interaction.responded", "id", interaction.id(), "proc_ms", procMs, "net_ms", netMs, "total_ms", totalMs);
-                    }
-                }
-            } catch (Exception e) {
-                long durationMs = (System.nanoTime() - start) / 1_000_000;
-                Log.error("interaction.processing_error", e, "duration_ms", durationMs);
-            }
-        });
+        Processor processor = processor(views, config.virtualCalendars(), reminders, guildDefaults);
+        // swapped whole on config reload; each interaction reads it once
+        AtomicReference<Processor> current = new AtomicReference<>(processor);
+
+        PersistentGateway gateway = new PersistentGateway(token, gatewayUrl, interactionHandler(current::get, httpClient));
+
+        // ready = enough feeds loaded to answer, then a healthy gateway; /health and the watchdog
+        // both see the loading phase as unhealthy so a bot that never loads still gets restarted
+        AtomicBoolean feedsReady = new AtomicBoolean();
+        BooleanSupplier healthy = () -> feedsReady.get() && gateway.isHealthy();
+
+        // calendar views as subscribable ics on the same server, rebuilt with the Processor on reload
+        AtomicReference<IcsExport> icsExport = "off".equals(System.getenv("WEN_ICS_EXPORT")) ? null : new AtomicReference<>(new IcsExport(views));
+
+        // the image writes config.toml once from WEN_CONFIG_B64, so there a reload comes in over http:
+        // the upload replaces the file and the watcher below applies it
+        boolean reload = !"off".equals(System.getenv("WEN_CONFIG_RELOAD"));
+        String reloadToken = System.getenv("WEN_RELOAD_TOKEN");
+        HttpHandler upload = reload && reloadToken != null && !reloadToken.isBlank() ? ConfigUpload.handler(configPath, reloadToken) : null;
 
         int healthPort = Integer.parseInt(System.getenv().getOrDefault("HEALTH_PORT", "8080"));
         try {
-            startHealthCheck(healthPort, gateway::isHealthy);
+            startHealthCheck(healthPort, healthy, feedsReady::get, icsExport == null ? null : IcsExport.handler(icsExport::get), upload);
         } catch (Exception e) {
             Log.error("startup.health_server_failed", e);
             System.exit(1);
         }
 
+        // exit if unhealthy for a long time -- maybe something is really wrong?
+        long unhealthyThresholdMs = Long.parseLong(System.getenv().getOrDefault("UNHEALTHY_THRESHOLD_MS", "600000")); // 10 min
+        AtomicLong unhealthySince = new AtomicLong();
+        Timers.WHEEL.repeat("watchdog", WATCHDOG_PERIOD, WATCHDOG_SLACK, () -> {
+            if (healthy.getAsBoolean()) {
+                unhealthySince.set(0);
+            } else {
+                long now = System.currentTimeMillis();
+                if (unhealthySince.get() == 0) {
+                    unhealthySince.set(now);
+                    Log.warn("watchdog.unhealthy");
+                } else if (now - unhealthySince.get() > unhealthyThresholdMs) {
+                    Log.error("watchdog.exit", "unhealthy_ms", now - unhealthySince.get());
+                    System.exit(1);
+                }
+            }
+        });
+
+        // fetch every feed up front so the first query never sees an empty calendar
+        long loadDeadlineMs = Long.parseLong(System.getenv().getOrDefault("WEN_LOAD_DEADLINE_MS", "30000"));
+        int loadPerHost = Integer.parseInt(System.getenv().getOrDefault("WEN_LOAD_PER_HOST", "4"));
+        double readyFraction = Double.parseDouble(System.getenv().getOrDefault("WEN_READY_FRACTION", "0.8"));
+        long readyTimeoutMs = Long.parseLong(System.getenv().getOrDefault("WEN_READY_TIMEOUT_MS", "120000"));
+        try {
+            registry.load(Duration.ofMillis(loadDeadlineMs), loadPerHost);
+            registry.start();
+            // stragglers keep retrying on their refresh timers; wait for enough of them, but a feed
+            // that's down shouldn't keep the working ones offline until the watchdog restarts us
+            if (!registry.awaitReady(readyFraction, Duration.ofMillis(readyTimeoutMs), READY_POLL)) {
+                Log.warn("startup.feeds_not_ready", "loaded_fraction", registry.loadedFraction(), "wanted", readyFraction);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        Log.info("startup.feeds_ready", "loaded_fraction", registry.loadedFraction());
+
+        // the request path runs interpreted until C1 gets to it; pay that before taking traffic
+        long warmupMs = Long.parseLong(System.getenv().getOrDefault("WEN_WARMUP_MS", "1500"));
+        if (warmupMs > 0) {
+            long warmupAllocMb = Long.parseLong(System.getenv().getOrDefault("WEN_WARMUP_ALLOC_MB", "128"));
+            try {
+                Warmup.run(config, views, Duration.ofMillis(warmupMs), warmupAllocMb << 20);
+            } catch (Exception e) {
+                Log.error("warmup.failed", e);
+            }
+        }
+
+        feedsReady.set(true);
         gateway.connect();
 
+        // config.toml edits apply in place: only changed calendars are rebuilt, and the gateway
+        // session and every parsed feed carry over. the command itself doesn't depend on config, so a
+        // reload never needs to re-register it
+        ConfigWatcher watcher = null;
+        if (reload) {
+            try {
+                watcher = ConfigWatcher.start(configPath, config, next -> {
+                    try {
+                        Map<Calendar, CalendarFeed> nextViews = registry.reconcile(next.calendars(), Duration.ofMillis(loadDeadlineMs), loadPerHost);
+                        current.set(processor(nextViews, next.virtualCalendars(), reminders, guildDefaults));
+                        if (icsExport != null) {
+                            icsExport.set(new IcsExport(nextViews));
+                        }
+                        Log.info("config.applied", "calendars", next.calendars().size(), "sources", registry.sourceCount());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (IOException e) {
+                Log.error("startup.config_watch_failed", e);
+            }
+        }
+
+        Store openStore = store;
+        ConfigWatcher openWatcher = watcher;
         Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().name("shutdown").unstarted(() -> {
             Log.info("shutdown.started");
-            gateway.disconnect();
-            Log.info("shutdown.complete");
-        }));
-
-        // exit if unhealthy for a long time -- maybe something is really wrong?
-        long unhealthyThresholdMs = Long.parseLong(System.getenv().getOrDefault("UNHEALTHY_THRESHOLD_MS", "600000")); // 10 min
-        Thread.ofVirtual().name("watchdog").start(() -> {
-            long unhealthySince = 0;
-            while (true) {
+            if (openWatcher != null) {
                 try {
-                    Thread.sleep(10_000);
-                } catch (InterruptedException e) {
-                    return;
-                }
-                if (gateway.isHealthy()) {
-                    unhealthySince = 0;
-                } else {
-                    long now = System.currentTimeMillis();
-                    if (unhealthySince == 0) {
-                        unhealthySince = now;
-                        Log.warn("watchdog.unhealthy");
-                    } else if (now - unhealthySince > unhealthyThresholdMs) {
-                        Log.error("watchdog.exit", "unhealthy_ms", now - unhealthySince);
-                        System.exit(1);
-                    }
+                    openWatcher.close();
+                } catch (IOException e) {
+                    Log.warn("shutdown.config_watch_close_failed", "error", e.getMessage());
                 }
             }
-        });
+            gateway.disconnect();
+            if (openStore != null) {
+                openStore.close();
+            }
+            Log.info("shutdown.complete");
+        }));
 
         // keep main thread alive
         try {
@@ -158,7 +280,67 @@ public class Main {
         }
     }
 
-    private static void registerWenCommand(WenConfig config, DiscordHttpClient httpClient, String appId) {
+    // keyword -> calendar maps for Processor, in config order
+    static Processor processor(Map<Calendar, CalendarFeed> views, List<VirtualCalendar> virtualCalendars, Reminders reminders,
+        GuildDefaults guildDefaults) {
+        Map<String, CalendarFeed> feeds = new HashMap<>();
+        Map<String, Calendar> calendarConfigs = new HashMap<>();
+        for (Map.Entry<Calendar, CalendarFeed> e : views.entrySet()) {
+            for (String keyword : e.getKey().keywords()) {
+                feeds.put(keyword, e.getValue());
+                calendarConfigs.put(keyword, e.getKey());
+            }
+        }
+        return new Processor(calendarConfigs, feeds, virtualCalendars, Clock.systemUTC(), reminders, guildDefaults);
+    }
+
+    static Consumer<Interaction> interactionHandler(Processor processor, DiscordHttpClient httpClient) {
+        return interactionHandler(() -> processor, httpClient);
+    }
+
+    static Consumer<Interaction> interactionHandler(Supplier<Processor> processors, DiscordHttpClient httpClient) {
+        return interaction -> {
+            long start = System.nanoTime();
+            Log.info("interaction.received", "id", interaction.id());
+            try {
+                Processor processor = processors.get();
+                long procStart = System.nanoTime();
+                InteractionResponse response = processor.process(interaction);
+                long procMs = (System.nanoTime() - procStart) / 1_000_000;
+
+                if (response != null) {
+                    long netStart = System.nanoTime();
+                    DiscordResult<Void> result = httpClient.respondToInteraction(interaction.id(), interaction.token(), response);
+                    long netMs = (System.nanoTime() - netStart) / 1_000_000;
+                    long totalMs = (System.nanoTime() - start) / 1_000_000;
+
+                    if (result instanceof DiscordResult.Failure<Void> f) {
+                        Log.error("interaction.response_failed", "error", f.message(), "proc_ms", procMs, "net_ms", netMs, "total_ms", totalMs);
+                    } else {
+                        Log.info("interaction.responded", "id", interaction.id(), "proc_ms", procMs, "net_ms", netMs, "total_ms", totalMs);
+                        if (FIRST_RESPONSE.compareAndSet(false, true)) {
+                            logFirstResponse();
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                long durationMs = (System.nanoTime() - start) / 1_000_000;
+                Log.error("interaction.processing_error", e, "duration_ms", durationMs);
+            }
+        };
+    }
+
+    // time-to-first-response from process start (includes jvm boot, which uptime doesn't)
+    private static void logFirstResponse() {
+        long sinceStartMs = ProcessHandle.current().info().startInstant()
+            .map(started -> Duration.between(started, Instant.now()).toMillis())
+            .orElse(-1L);
+        Log.info("startup.first_response",
+            "since_process_start_ms", sinceStartMs,
+            "uptime_ms", ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    static Command wenCommand() {
         Option queryOption = new Option(
             "query",
             "Calendar and filter (e.g. 'f1 sprint') or 'help'",
@@ -167,17 +349,21 @@ public class Main {
             null,
             true); // autocomplete enabled
 
-        Command wenCommand = new Command(
+        return new Command(
             "wen",
             "When is the next event?",
             List.of(queryOption),
             List.of(Command.INTEGRATION_GUILD_INSTALL, Command.INTEGRATION_USER_INSTALL),
             List.of(Command.CONTEXT_GUILD, Command.CONTEXT_BOT_DM, Command.CONTEXT_PRIVATE_CHANNEL));
+    }
 
-        DiscordResult<Void> result = httpClient.registerCommands(appId, List.of(wenCommand));
+    private static void registerWenCommand(DiscordHttpClient httpClient, String appId) {
+        DiscordResult<Void> result = httpClient.registerCommands(appId, List.of(wenCommand()));
 
         switch (result) {
-            case DiscordResult.Success<Void> _ -> Log.info("commands.registered");
+            case DiscordResult.Success<Void> _ -> {
+                Log.info("commands.registered");
+            }
             case DiscordResult.Failure<Void> f -> {
                 Log.error("commands.registration_failed",
                     "message", f.message(),
@@ -191,19 +377,27 @@ public class Main {
         }
     }
 
-    private static void startHealthCheck(int port, BooleanSupplier healthy) throws IOException {
+    // ics: null when the export is off
+    private static void startHealthCheck(int port, BooleanSupplier healthy, BooleanSupplier loaded, HttpHandler ics, HttpHandler upload)
+        throws IOException {
         HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
         server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
         server.createContext("/health", exchange -> {
             boolean ok = healthy.getAsBoolean();
             int status = ok ? 200 : 503;
-            byte[] body = (ok ? "ok" : "unhealthy").getBytes(StandardCharsets.UTF_8);
+            byte[] body = (ok ? "ok" : loaded.getAsBoolean() ? "unhealthy" : "loading").getBytes(StandardCharsets.UTF_8);
             exchange.sendResponseHeaders(status, body.length);
             try (OutputStream os = exchange.getResponseBody()) {
                 os.write(body);
             }
         });
+        if (ics != null) {
+            server.createContext(IcsExport.PREFIX, ics);
+        }
+        if (upload != null) {
+            server.createContext(ConfigUpload.PATH, upload);
+        }
         server.start();
-        Log.info("health.started", "port", port);
+        Log.info("health.started", "port", port, "ics", ics != null, "config_upload", upload != null);
     }
 }
@@ -0,0 +1,48 @@
+package com.github.anirbanmu.wen;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+
+// a "next page" button's custom_id carries everything needed to answer that page, so the server keeps
+// no paging state. the page starts at the first event at or after start (a binary search in the feed),
+// past the skip matches at exactly that instant which earlier pages showed. query is the original
+// query text (calendar, filter and any window), to the end of its window.
+//   "more:<start epoch>:<skip>:<to epoch or ->:<query>"
+record PageCursor(Instant start, int skip, Instant to, String query) {
+    // discord's limit on a custom_id
+    static final int MAX_CUSTOM_ID = 100;
+    // a page fetches skip + size + 1 events, and anyone can send any custom_id; this is ten full
+    // pages of events sharing one start, far past any real calendar
+    static final int MAX_SKIP = 10 * TimeWindow.MAX_EVENTS;
+    private static final String PREFIX = "more:";
+
+    // null when it doesn't fit, in which case there's no button
+    String encode() {
+        if (skip > MAX_SKIP) {
+            return null;
+        }
+        String id = PREFIX + start.getEpochSecond() + ":" + skip + ":" + (to.equals(Instant.MAX) ? "-" : to.getEpochSecond()) + ":" + query;
+        return id.length() <= MAX_CUSTOM_ID ? id : null;
+    }
+
+    // null for anything that isn't a cursor; the query may itself contain ':'
+    static PageCursor decode(String customId) {
+        if (customId == null || !customId.startsWith(PREFIX)) {
+            return null;
+        }
+        String[] parts = customId.substring(PREFIX.length()).split(":", 4);
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            Instant to = parts[2].equals("-") ? Instant.MAX : Instant.ofEpochSecond(Long.parseLong(parts[2]));
+            int skip = Integer.parseInt(parts[1]);
+            if (skip < 0 || skip > MAX_SKIP) {
+                return null;
+            }
+            return new PageCursor(Instant.ofEpochSecond(Long.parseLong(parts[0])), skip, to, parts[3]);
+        } catch (NumberFormatException | DateTimeException e) {
+            return null;
+        }
+    }
+}
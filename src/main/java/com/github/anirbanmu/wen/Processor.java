@@ -2,32 +2,61 @@ package com.github.anirbanmu.wen;
 
 import com.github.anirbanmu.wen.calendar.CalendarEvent;
 import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.calendar.EventTerms;
+import com.github.anirbanmu.wen.calendar.MergedQuery;
 import com.github.anirbanmu.wen.calendar.QueryResult;
 import com.github.anirbanmu.wen.config.Calendar;
 import com.github.anirbanmu.wen.config.Filter;
+import com.github.anirbanmu.wen.config.VirtualCalendar;
 import com.github.anirbanmu.wen.discord.json.Interaction;
 import com.github.anirbanmu.wen.discord.json.Interaction.Option;
 import com.github.anirbanmu.wen.discord.json.InteractionResponse;
+import com.github.anirbanmu.wen.guild.GuildDefaults;
+import com.github.anirbanmu.wen.reminder.Reminders;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class Processor {
-    private record CalendarContext(Calendar config, CalendarFeed feed, int color, List<String> summaryPrefixes) {
+    // slug: the calendar's first keyword, which event-derived suggestions hang off
+    private record CalendarContext(Calendar config, CalendarFeed feed, int color, List<String> summaryPrefixes, String slug) {
     }
 
-    private record ParsedQuery(CalendarContext calendar, Predicate<CalendarEvent> filter, String error) {
+    // several calendars answered as one: a virtual calendar from config, "all", or "/wen f1 motogp"
+    private record Group(String name, List<CalendarContext> members, int color) {
+    }
+
+    // didYouMean: close calendar keys for an unknown one, when there are any.
+    // group queries carry the filter text instead, resolved per member calendar
+    private record ParsedQuery(CalendarContext calendar, Predicate<CalendarEvent> filter, String error, List<String> didYouMean,
+        Group group, String groupFilter) {
         static ParsedQuery success(CalendarContext cal, Predicate<CalendarEvent> filter) {
-            return new ParsedQuery(cal, filter, null);
+            return new ParsedQuery(cal, filter, null, List.of(), null, null);
         }
 
         static ParsedQuery error(String message) {
-            return new ParsedQuery(null, null, message);
+            return new ParsedQuery(null, null, message, List.of(), null, null);
+        }
+
+        static ParsedQuery unknown(String query, List<String> didYouMean) {
+            return new ParsedQuery(null, null, "Unknown calendar: " + query, didYouMean, null, null);
+        }
+
+        static ParsedQuery group(Group group, String filterText) {
+            return new ParsedQuery(null, null, null, List.of(), group, filterText);
         }
 
         boolean isHelp() {
@@ -35,17 +64,63 @@ public class Processor {
         }
     }
 
+    static final int MAX_EVENT_TERMS = 32;
+    // built-in group over every calendar, unless a calendar or virtual calendar takes the key
+    static final String ALL_KEY = "all";
+    private static final int MAX_UPCOMING = 2;
+    private static final int MAX_GROUP_UPCOMING = 3;
+    // discord rejects an embed whose description is longer
+    static final int MAX_DESCRIPTION = 4096;
+    // room kept for the "+N more" line
+    private static final int MORE_RESERVE = 32;
     private static final String[] SUMMARY_SEPARATORS = {" | ", ": ", " - ", " "};
+    static final Duration DEFAULT_LEAD = Duration.ofMinutes(15);
+    static final Duration MAX_LEAD = Duration.ofDays(7);
+    // "subscribe f1 sprint 30m": a trailing lead time
+    private static final Pattern LEAD = Pattern.compile("^(.*) (\\d{1,5})(m|h)$");
 
     private final Map<String, CalendarContext> contexts;
+    private final Map<String, Group> groups = new HashMap<>();
+    private final FuzzyKeys fuzzyKeys;
     private final CalendarContext fallback;
-    private final List<String> allSuggestions;
+    private final List<String> fixedSuggestions;
+    // per calendar, terms from its upcoming events; bounded so each feed's share of the index is too
+    private final Map<CalendarContext, List<EventTerms.Term>> eventTerms = new ConcurrentHashMap<>();
+    private volatile SuggestionIndex suggestions;
     private final InteractionResponse helpResponse;
+    private final Clock clock;
+    // null when reminders are off
+    private final Reminders reminders;
+    // null when guilds can't set their own default
+    private final GuildDefaults guildDefaults;
 
     public Processor(Map<String, Calendar> calendarConfigs, Map<String, CalendarFeed> feeds) {
+        this(calendarConfigs, feeds, List.of(), Clock.systemUTC());
+    }
+
+    // clock is swappable so captured traffic can be replayed at its original time
+    public Processor(Map<String, Calendar> calendarConfigs, Map<String, CalendarFeed> feeds, Clock clock) {
+        this(calendarConfigs, feeds, List.of(), clock);
+    }
+
+    public Processor(Map<String, Calendar> calendarConfigs, Map<String, CalendarFeed> feeds, List<VirtualCalendar> virtualCalendars, Clock clock) {
+        this(calendarConfigs, feeds, virtualCalendars, clock, null);
+    }
+
+    public Processor(Map<String, Calendar> calendarConfigs, Map<String, CalendarFeed> feeds, List<VirtualCalendar> virtualCalendars, Clock clock,
+        Reminders reminders) {
+        this(calendarConfigs, feeds, virtualCalendars, clock, reminders, null);
+    }
+
+    public Processor(Map<String, Calendar> calendarConfigs, Map<String, CalendarFeed> feeds, List<VirtualCalendar> virtualCalendars, Clock clock,
+        Reminders reminders, GuildDefaults guildDefaults) {
+        this.clock = clock;
+        this.reminders = reminders;
+        this.guildDefaults = guildDefaults;
         this.contexts = new HashMap<>();
         CalendarContext foundFallback = null;
-        Set<String> suggestions = new HashSet<>();
+        Set<String> terms = new HashSet<>();
+        List<CalendarContext> unique = new ArrayList<>();
 
         for (Map.Entry<String, Calendar> entry : calendarConfigs.entrySet()) {
             Calendar config = entry.getValue();
@@ -57,15 +132,17 @@ public class Processor {
 
             int color = generateColor(config.name(), config.url());
             List<String> summaryPrefixes = buildSummaryPrefixes(config);
-            CalendarContext ctx = new CalendarContext(config, feed, color, summaryPrefixes);
+            String slug = config.keywords().isEmpty() ? slugify(config.name()) : slugify(config.keywords().getFirst());
+            CalendarContext ctx = new CalendarContext(config, feed, color, summaryPrefixes, slug);
+            unique.add(ctx);
 
             // index by keyword (slugified) and slugified name
             for (String keyword : config.keywords()) {
                 String key = slugify(keyword);
                 contexts.put(key, ctx);
-                suggestions.add(key);
+                terms.add(key);
                 for (String filterKey : config.filters().keySet()) {
-                    suggestions.add(key + " " + filterKey);
+                    terms.add(key + " " + filterKey);
                 }
             }
 
@@ -73,9 +150,9 @@ public class Processor {
                 String nameSlug = slugify(config.name());
                 if (!contexts.containsKey(nameSlug)) {
                     contexts.put(nameSlug, ctx);
-                    suggestions.add(nameSlug);
+                    terms.add(nameSlug);
                     for (String filterKey : config.filters().keySet()) {
-                        suggestions.add(nameSlug + " " + filterKey);
+                        terms.add(nameSlug + " " + filterKey);
                     }
                 }
             }
@@ -86,17 +163,91 @@ public class Processor {
         }
 
         this.fallback = foundFallback;
+        this.fuzzyKeys = new FuzzyKeys(contexts.keySet());
+
+        for (VirtualCalendar virtual : virtualCalendars) {
+            List<CalendarContext> members = new ArrayList<>();
+            for (String keyword : virtual.include()) {
+                CalendarContext member = contexts.get(slugify(keyword));
+                if (member != null && members.stream().noneMatch(m -> m.config().equals(member.config()))) {
+                    members.add(member);
+                }
+            }
+            Group group = new Group(virtual.name(), List.copyOf(members), generateColor(virtual.name(), String.join(",", virtual.include())));
+            List<String> keys = new ArrayList<>();
+            for (String keyword : virtual.keywords()) {
+                keys.add(slugify(keyword));
+            }
+            keys.add(slugify(virtual.name()));
+            for (String key : keys) {
+                if (!contexts.containsKey(key) && !groups.containsKey(key)) {
+                    groups.put(key, group);
+                    terms.add(key);
+                }
+            }
+        }
+        if (unique.size() > 1 && !contexts.containsKey(ALL_KEY) && !groups.containsKey(ALL_KEY)) {
+            groups.put(ALL_KEY, new Group("All calendars", List.copyOf(uniqueByConfig(unique)), 0x5865F2));
+            terms.add(ALL_KEY);
+        }
 
-        suggestions.add("help");
+        terms.add("help");
+        this.fixedSuggestions = List.copyOf(terms);
+        for (CalendarContext ctx : unique) {
+            eventTerms.put(ctx, EventTerms.extract(ctx.feed().getEvents(), clock.instant(), MAX_EVENT_TERMS));
+            ctx.feed().onRefresh(() -> {
+                refreshEventTerms(ctx);
+                if (reminders != null) {
+                    reminders.replan(ctx.feed());
+                }
+            });
+        }
+        rebuildSuggestions();
+        this.helpResponse = buildHelpResponse(contexts.values(), groups, reminders != null, guildDefaults != null);
+        if (reminders != null) {
+            reminders.resolveWith(this::reminderTarget);
+        }
+    }
 
-        // shortest first, then alphabetical — best autocomplete UX
-        List<String> sorted = new ArrayList<>(suggestions);
-        sorted.sort((a, b) -> a.length() != b.length() ? a.length() - b.length() : a.compareTo(b));
-        this.allSuggestions = List.copyOf(sorted);
-        this.helpResponse = buildHelpResponse(contexts.values());
+    // a reminder topic against this processor's calendars
+    private Reminders.Target reminderTarget(Reminders.Topic topic) {
+        CalendarContext ctx = contexts.get(topic.calendar());
+        if (ctx == null) {
+            return null;
+        }
+        return new Reminders.Target(ctx.feed(), resolveFilter(ctx, topic.filter()), event -> {
+            long startEpoch = event.start().getEpochSecond();
+            StringBuilder sb = new StringBuilder("⏰ **").append(ctx.config().name()).append("** · **")
+                .append(cleanSummary(event.summary(), event.lowerSummary(), ctx.summaryPrefixes())).append("**");
+            if (event.location() != null && !event.location().isBlank()) {
+                sb.append(" · ").append(event.location());
+            }
+            return sb.append("\nstarts <t:").append(startEpoch).append(":R> · <t:").append(startEpoch).append(":t>").toString();
+        });
     }
 
-    private static InteractionResponse buildHelpResponse(Collection<CalendarContext> contexts) {
+    // on a feed's refresh thread: only that feed's terms are recomputed, then a new index is
+    // swapped in whole so autocomplete never sees a half-built one
+    private void refreshEventTerms(CalendarContext ctx) {
+        List<EventTerms.Term> next = EventTerms.extract(ctx.feed().getEvents(), clock.instant(), MAX_EVENT_TERMS);
+        if (!next.equals(eventTerms.put(ctx, next))) {
+            rebuildSuggestions();
+        }
+    }
+
+    // fixed suggestions rank first; event terms follow, the soonest event's first
+    private synchronized void rebuildSuggestions() {
+        List<Map.Entry<Instant, String>> dated = new ArrayList<>();
+        for (Map.Entry<CalendarContext, List<EventTerms.Term>> e : eventTerms.entrySet()) {
+            for (EventTerms.Term term : e.getValue()) {
+                dated.add(Map.entry(term.next(), e.getKey().slug() + " " + term.text()));
+            }
+        }
+        dated.sort(Map.Entry.comparingByKey());
+        this.suggestions = new SuggestionIndex(fixedSuggestions, dated.stream().map(Map.Entry::getValue).toList());
+    }
+
+    private static List<CalendarContext> uniqueByConfig(Collection<CalendarContext> contexts) {
         Set<Calendar> seen = new HashSet<>();
         List<CalendarContext> unique = new ArrayList<>();
         for (CalendarContext ctx : contexts) {
@@ -104,10 +255,17 @@ public class Processor {
                 unique.add(ctx);
             }
         }
+        return unique;
+    }
+
+    private static InteractionResponse buildHelpResponse(Collection<CalendarContext> contexts, Map<String, Group> groups, boolean reminders,
+        boolean guildDefaults) {
+        List<CalendarContext> unique = uniqueByConfig(contexts);
 
         StringBuilder desc = new StringBuilder();
         desc.append("**Usage:** `/wen <calendar> [filter]`\n");
-        desc.append("Examples: `/wen f1 sprint` · `/wen wrc monaco`\n\n");
+        desc.append("Examples: `/wen f1 sprint` · `/wen wrc monaco`\n");
+        desc.append("Add `next 5`, `today`, `this weekend` or `in 30d` for more (UTC days)\n\n");
         desc.append("───\n\n");
         desc.append("**Available calendars:**\n");
 
@@ -131,6 +289,28 @@ public class Processor {
             desc.append("\n");
         }
 
+        if (!groups.isEmpty()) {
+            Map<Group, List<String>> keysByGroup = new LinkedHashMap<>();
+            groups.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> keysByGroup.computeIfAbsent(e.getValue(), _ -> new ArrayList<>()).add(e.getKey()));
+            desc.append("**Combined:**\n");
+            for (Map.Entry<Group, List<String>> e : keysByGroup.entrySet()) {
+                desc.append("**").append(e.getKey().name()).append("** · `").append(String.join("`, `", e.getValue())).append("`\n");
+            }
+            desc.append("or name several: `/wen f1 motogp`\n\n");
+        }
+
+        if (reminders) {
+            desc.append("**Reminders:** `/wen subscribe f1 sprint 30m` posts here before each matching event (15m if no time given)\n");
+            desc.append("`/wen unsubscribe f1 sprint` · `/wen subscriptions` (changing them needs Manage Server)\n\n");
+        }
+
+        if (guildDefaults) {
+            desc.append("**Server default:** `/wen default f1 sprint` sets what `/wen` alone shows here (needs Manage Server)\n");
+            desc.append("`/wen default` · `/wen default clear`\n\n");
+        }
+
         desc.append("───\n");
         desc.append("bot source · [github.com/anirbanmu/wen](https://github.com/anirbanmu/wen)");
 
@@ -139,7 +319,13 @@ public class Processor {
     }
 
     public InteractionResponse process(Interaction interaction) {
-        if (interaction.data() == null || !"wen".equals(interaction.data().name())) {
+        if (interaction.data() == null) {
+            return null;
+        }
+        if (interaction.type() == Interaction.TYPE_MESSAGE_COMPONENT) {
+            return processComponent(interaction);
+        }
+        if (!"wen".equals(interaction.data().name())) {
             return null;
         }
 
@@ -152,19 +338,259 @@ public class Processor {
 
     private InteractionResponse processCommand(Interaction interaction) {
         String query = getOptionValue(interaction.data().options(), "query");
+        if (query != null && !query.isBlank()) {
+            String q = query.strip().toLowerCase();
+            if (q.startsWith("subscribe ") || q.startsWith("unsubscribe ") || q.equals("subscriptions")) {
+                return processSubscription(interaction, q);
+            }
+            if (q.equals("default") || q.startsWith("default ")) {
+                return processDefault(interaction, q);
+            }
+        } else if (guildDefaults != null) {
+            // the guild's own default before the global fallback; a cache hit allocates nothing
+            query = guildDefaults.get(interaction.guildId());
+        }
+        return answer(query, null, clock.instant());
+    }
+
+    // "default f1 sprint", "default clear", "default": what /wen with no query shows in this guild
+    private InteractionResponse processDefault(Interaction interaction, String q) {
+        if (guildDefaults == null) {
+            return InteractionResponse.ephemeralMessage("Server defaults aren't enabled");
+        }
+        long guild;
+        try {
+            guild = Long.parseUnsignedLong(interaction.guildId());
+        } catch (NumberFormatException e) {
+            return InteractionResponse.ephemeralMessage("Defaults are set per server");
+        }
+
+        String rest = q.substring("default".length()).strip().replaceAll("\\s+", " ");
+        if (rest.isEmpty()) {
+            String current = guildDefaults.get(guild);
+            if (current != null) {
+                return InteractionResponse.ephemeralMessage("`/wen` here shows `" + current + "`");
+            }
+            return InteractionResponse.ephemeralMessage("No default for this server; `/wen` here shows "
+                + (fallback != null ? "**" + fallback.config().name() + "**" : "help"));
+        }
+        if (!interaction.canManageGuild()) {
+            return InteractionResponse.ephemeralMessage("Changing the default needs the Manage Server permission");
+        }
+
+        if (rest.equals("clear")) {
+            return guildDefaults.clear(guild)
+                ? InteractionResponse.message("Default cleared; `/wen` here shows " + (fallback != null ? "**" + fallback.config().name() + "**" : "help"))
+                : InteractionResponse.ephemeralMessage("This server has no default");
+        }
+        if (rest.length() > GuildDefaults.MAX_QUERY) {
+            return InteractionResponse.ephemeralMessage("A default can be up to " + GuildDefaults.MAX_QUERY + " characters");
+        }
+
+        // only a query that answers now; a typo would otherwise become every bare /wen's answer
+        TimeWindow window = TimeWindow.parse(rest, clock.instant());
+        ParsedQuery parsed = parseQuery(window != null ? window.rest() : rest);
+        if (!parsed.didYouMean().isEmpty()) {
+            return didYouMeanResponse(parsed);
+        }
+        if (parsed.isHelp() || parsed.error() != null) {
+            return InteractionResponse.ephemeralMessage(parsed.isHelp() ? "Usage: `/wen default <calendar> [filter]`" : parsed.error());
+        }
+        return guildDefaults.set(guild, rest)
+            ? InteractionResponse.message("`/wen` here now shows `" + rest + "`")
+            : InteractionResponse.ephemeralMessage("Couldn't save the default right now");
+    }
+
+    // "subscribe f1 sprint 30m", "unsubscribe f1 sprint", "subscriptions": reminders for this channel
+    private InteractionResponse processSubscription(Interaction interaction, String q) {
+        if (reminders == null) {
+            return InteractionResponse.ephemeralMessage("Reminders aren't enabled");
+        }
+        long channel;
+        try {
+            channel = Long.parseUnsignedLong(interaction.channelId());
+        } catch (NumberFormatException e) {
+            return InteractionResponse.ephemeralMessage("Reminders need a channel to post in");
+        }
+
+        if (q.equals("subscriptions")) {
+            List<Reminders.Topic> topics = reminders.topics(channel);
+            if (topics.isEmpty()) {
+                return InteractionResponse.ephemeralMessage("No reminders in this channel");
+            }
+            StringBuilder sb = new StringBuilder("Reminders in this channel:");
+            for (Reminders.Topic topic : topics) {
+                sb.append("\n`").append(topicText(topic)).append("` · ").append(formatLead(topic.lead())).append(" before");
+            }
+            return InteractionResponse.ephemeralMessage(sb.toString());
+        }
+
+        // reminders post to everyone in the channel, so in a guild only those who could change the
+        // guild's default may change them; in a dm the one member may
+        if (interaction.guildId() != null && !interaction.canManageGuild()) {
+            return InteractionResponse.ephemeralMessage("Changing reminders needs the Manage Server permission");
+        }
+
+        boolean subscribe = q.startsWith("subscribe ");
+        String rest = q.substring(q.indexOf(' ') + 1).strip();
+        Duration lead = DEFAULT_LEAD;
+        Matcher m = LEAD.matcher(rest);
+        if (subscribe && m.matches()) {
+            long n = Long.parseLong(m.group(2));
+            lead = m.group(3).equals("h") ? Duration.ofHours(n) : Duration.ofMinutes(n);
+            rest = m.group(1).strip();
+            if (lead.isZero() || lead.compareTo(MAX_LEAD) > 0) {
+                return InteractionResponse.ephemeralMessage("Reminders can be up to " + formatLead(MAX_LEAD) + " before an event");
+            }
+        }
+
+        ParsedQuery parsed = parseQuery(rest);
+        if (!parsed.didYouMean().isEmpty()) {
+            return didYouMeanResponse(parsed);
+        }
+        if (parsed.isHelp()) {
+            return InteractionResponse.ephemeralMessage("Usage: `/wen subscribe <calendar> [filter] [30m]`");
+        }
+        if (parsed.error() != null) {
+            return InteractionResponse.ephemeralMessage(parsed.error());
+        }
+        if (parsed.group() != null) {
+            return InteractionResponse.ephemeralMessage("Reminders follow one calendar at a time");
+        }
 
-        ParsedQuery parsed = parseQuery(query);
+        CalendarContext ctx = parsed.calendar();
+        int space = rest.indexOf(' ');
+        String filter = space > 0 ? rest.substring(space + 1).strip() : "";
+        Reminders.Topic topic = new Reminders.Topic(ctx.slug(), filter, lead);
+        String what = "**" + ctx.config().name() + "**" + (filter.isEmpty() ? "" : " " + filter);
+
+        if (!subscribe) {
+            int removed = reminders.unsubscribe(channel, ctx.slug(), filter);
+            return removed > 0
+                ? InteractionResponse.message("Reminders off for " + what)
+                : InteractionResponse.ephemeralMessage("No reminders for " + what + " in this channel");
+        }
+        return switch (reminders.subscribe(channel, topic)) {
+            case ADDED -> {
+                CalendarEvent next = reminders.next(topic);
+                yield InteractionResponse.message("⏰ Reminders on for " + what + ", " + formatLead(lead) + " before each event"
+                    + (next == null ? "" : "\nNext: **" + cleanSummary(next.summary(), next.lowerSummary(), ctx.summaryPrefixes())
+                    + "** <t:" + next.start().getEpochSecond() + ":R>"));
+            }
+            case ALREADY -> InteractionResponse.ephemeralMessage("This channel already has that reminder");
+            case CHANNEL_FULL -> InteractionResponse.ephemeralMessage("This channel has the most reminders it can (" + Reminders.MAX_PER_CHANNEL + ")");
+            case FULL -> InteractionResponse.ephemeralMessage("No room for more reminders right now");
+        };
+    }
+
+    private static String topicText(Reminders.Topic topic) {
+        return topic.filter().isEmpty() ? topic.calendar() : topic.calendar() + " " + topic.filter();
+    }
+
+    // "15m", "2h", "1h30m"
+    static String formatLead(Duration lead) {
+        long hours = lead.toHours();
+        long minutes = lead.toMinutesPart();
+        if (hours == 0) {
+            return minutes + "m";
+        }
+        return minutes == 0 ? hours + "h" : hours + "h" + minutes + "m";
+    }
+
+    // a "next page" press: the query again from its cursor, replacing the message the button is on
+    private InteractionResponse processComponent(Interaction interaction) {
+        PageCursor cursor = PageCursor.decode(interaction.data().customId());
+        if (cursor == null) {
+            return null;
+        }
+        InteractionResponse page = answer(cursor.query(), cursor, clock.instant());
+        if (page.data().embeds() != null && page.data().flags() == null) {
+            return InteractionResponse.update(page);
+        }
+        // nothing left to page to (the feed may have changed since): say so, only to whoever pressed it
+        return page.data().content() != null ? InteractionResponse.ephemeralMessage(page.data().content()) : page;
+    }
+
+    // cursor: null for the first page
+    private InteractionResponse answer(String query, PageCursor cursor, Instant now) {
+        TimeWindow window = TimeWindow.parse(query, now);
+
+        ParsedQuery parsed = parseQuery(window != null ? window.rest() : query);
 
         if (parsed.isHelp()) {
             return helpResponse;
         }
 
+        if (!parsed.didYouMean().isEmpty()) {
+            return didYouMeanResponse(parsed);
+        }
+
         if (parsed.error() != null) {
             return InteractionResponse.message(parsed.error());
         }
 
-        QueryResult result = parsed.calendar().feed().query(parsed.filter(), 2);
-        return formatResponse(parsed.calendar(), result);
+        // a page is the window from the cursor on, so each page is a seek rather than a walk from now
+        Page page = new Page(query == null ? "" : query.strip().toLowerCase(),
+            cursor != null ? cursor.start() : window != null ? window.from() : now,
+            cursor != null ? cursor.to() : window != null ? window.to() : Instant.MAX,
+            cursor != null ? cursor.skip() : 0,
+            window != null ? window.max() : parsed.group() != null ? MAX_GROUP_UPCOMING : MAX_UPCOMING);
+
+        if (parsed.group() != null) {
+            return queryGroup(parsed.group(), parsed.groupFilter(), window, page, now);
+        }
+        // one past the page says whether there's a next one
+        QueryResult result = parsed.calendar().feed().query(parsed.filter(), page.fetch(), now, page.from(), page.to());
+        List<CalendarEvent> upcoming = result.upcoming();
+        PageCursor next = page.next(upcoming, CalendarEvent::start);
+        return formatResponse(parsed.calendar(), new QueryResult(result.current(), page.of(upcoming)), window, next, now);
+    }
+
+    // merged straight off each member's sorted events; each member applies the filter its own way
+    private static InteractionResponse queryGroup(Group group, String filterText, TimeWindow window, Page page, Instant now) {
+        List<CalendarFeed> feeds = new ArrayList<>(group.members().size());
+        List<Predicate<CalendarEvent>> filters = new ArrayList<>(group.members().size());
+        for (CalendarContext member : group.members()) {
+            feeds.add(member.feed());
+            filters.add(resolveFilter(member, filterText));
+        }
+        MergedQuery.Result result = MergedQuery.query(feeds, filters, page.fetch(), now, page.from(), page.to());
+        PageCursor next = page.next(result.upcoming(), hit -> hit.event().start());
+        return formatGroupResponse(group, new MergedQuery.Result(result.current(), page.of(result.upcoming())), window, next, now);
+    }
+
+    // one page of a query: events starting in [from, to), after the first skip matches, at most size
+    private record Page(String query, Instant from, Instant to, int skip, int size) {
+        int fetch() {
+            return skip + size + 1;
+        }
+
+        <T> List<T> of(List<T> fetched) {
+            return fetched.subList(Math.min(skip, fetched.size()), Math.min(skip + size, fetched.size()));
+        }
+
+        // the next page starts at the first event not shown, skipping everything before it that starts
+        // at the same instant (skipped ones included). null on the last page
+        <T> PageCursor next(List<T> fetched, Function<T, Instant> start) {
+            int end = skip + size;
+            if (fetched.size() <= end) {
+                return null;
+            }
+            Instant at = start.apply(fetched.get(end));
+            int same = 0;
+            for (int i = 0; i < end; i++) {
+                if (start.apply(fetched.get(i)).equals(at)) {
+                    same++;
+                }
+            }
+            return new PageCursor(at, same, to, query);
+        }
+    }
+
+    private static InteractionResponse didYouMeanResponse(ParsedQuery parsed) {
+        String desc = "Did you mean `" + String.join("` · `", parsed.didYouMean()) + "`?";
+        return InteractionResponse.ephemeralEmbeds(List.of(new InteractionResponse.Embed(
+            parsed.error(), desc, 0x5865F2, null, null, null, null)));
     }
 
     private static String getOptionValue(List<Option> options, String name) {
@@ -195,19 +621,65 @@ public class Processor {
         if (ctx != null) {
             return ParsedQuery.success(ctx, _ -> true);
         }
+        Group group = groups.get(q);
+        if (group != null) {
+            return ParsedQuery.group(group, null);
+        }
 
         // split on first space: "f1 sprint" -> key="f1", filter="sprint"
         // works because all context keys are spaceless (slugified)
         int space = q.indexOf(' ');
         if (space > 0) {
+            String filterPart = q.substring(space + 1);
             ctx = contexts.get(q.substring(0, space));
             if (ctx != null) {
-                String filterPart = q.substring(space + 1);
-                return ParsedQuery.success(ctx, resolveFilter(ctx, filterPart));
+                // "f1 motogp": every word names a calendar, and the first has no filter by that name
+                Group named = ctx.config().filters().containsKey(filterPart) ? null : namedGroup(ctx, filterPart);
+                return named != null ? ParsedQuery.group(named, null) : ParsedQuery.success(ctx, resolveFilter(ctx, filterPart));
+            }
+            group = groups.get(q.substring(0, space));
+            if (group != null) {
+                return ParsedQuery.group(group, filterPart);
+            }
+        }
+
+        // typo in the calendar: correct it when one key is clearly meant, otherwise offer the close ones
+        String key = space > 0 ? q.substring(0, space) : q;
+        FuzzyKeys.Match match = fuzzyKeys.find(key);
+        // keys tied for closest are still a clear answer when they all name one calendar
+        ctx = null;
+        for (String k : match.closest()) {
+            CalendarContext candidate = contexts.get(k);
+            if (ctx != null && !ctx.config().equals(candidate.config())) {
+                ctx = null;
+                break;
             }
+            ctx = candidate;
+        }
+        if (ctx != null) {
+            return ParsedQuery.success(ctx, space > 0 ? resolveFilter(ctx, q.substring(space + 1)) : _ -> true);
         }
+        return ParsedQuery.unknown(query.strip(), match.nearby());
+    }
 
-        return ParsedQuery.error("Unknown calendar: " + query.strip());
+    // null unless every word of rest is a calendar key
+    private Group namedGroup(CalendarContext first, String rest) {
+        List<CalendarContext> members = new ArrayList<>();
+        members.add(first);
+        for (String word : rest.split(" +")) {
+            CalendarContext member = contexts.get(word);
+            if (member == null) {
+                return null;
+            }
+            if (members.stream().noneMatch(m -> m.config().equals(member.config()))) {
+                members.add(member);
+            }
+        }
+        if (members.size() < 2) {
+            return null;
+        }
+        String name = String.join(" + ", members.stream().map(m -> m.config().name()).toList());
+        return new Group(name, members, first.color());
     }
 
     // named filter -> free-text fallback
@@ -228,32 +700,7 @@ public class Processor {
     // autocomplete: prefix matches -> substring matches, shortest first
     private InteractionResponse processAutocomplete(Interaction interaction) {
         String query = getFocusedOptionValue(interaction.data().options());
-        String q = query == null ? "" : query.toLowerCase();
-
-        List<InteractionResponse.Choice> choices = new ArrayList<>();
-        Set<String> seen = new HashSet<>();
-
-        // prefix matches
-        for (String s : allSuggestions) {
-            if (s.startsWith(q) && seen.add(s)) {
-                choices.add(new InteractionResponse.Choice(s, s));
-                if (choices.size() >= 25) {
-                    return InteractionResponse.autocomplete(choices);
-                }
-            }
-        }
-
-        // substring matches
-        for (String s : allSuggestions) {
-            if (s.contains(q) && seen.add(s)) {
-                choices.add(new InteractionResponse.Choice(s, s));
-                if (choices.size() >= 25) {
-                    return InteractionResponse.autocomplete(choices);
-                }
-            }
-        }
-
-        return InteractionResponse.autocomplete(choices);
+        return suggestions.autocomplete(query == null ? "" : query.toLowerCase());
     }
 
     private static String getFocusedOptionValue(List<Option> options) {
@@ -268,34 +715,82 @@ public class Processor {
         return null;
     }
 
-    private InteractionResponse formatResponse(CalendarContext ctx, QueryResult result) {
+    private InteractionResponse formatResponse(CalendarContext ctx, QueryResult result, TimeWindow window, PageCursor next, Instant now) {
         if (result.current() == null && result.upcoming().isEmpty()) {
-            return InteractionResponse.message("No upcoming events found for " + ctx.config().name());
+            return InteractionResponse.message(window == null
+                ? "No upcoming events found for " + ctx.config().name()
+                : "No events found for " + ctx.config().name() + " " + window.label());
         }
 
         List<String> prefixes = ctx.summaryPrefixes();
-        StringBuilder desc = new StringBuilder();
-
+        List<String> entries = new ArrayList<>();
         if (result.current() != null) {
-            desc.append(formatLive(result.current(), prefixes));
-            if (!result.upcoming().isEmpty()) {
-                desc.append("\n\n");
-            }
+            entries.add(formatLive(result.current(), prefixes));
+        }
+        for (CalendarEvent event : result.upcoming()) {
+            entries.add(formatUpcoming(event, prefixes, now));
         }
 
-        for (int i = 0; i < result.upcoming().size(); i++) {
-            if (i > 0) {
-                desc.append("\n\n");
-            }
-            desc.append(formatUpcoming(result.upcoming().get(i), prefixes));
+        String timestamp = now.toString();
+
+        return InteractionResponse.embeds(List.of(new InteractionResponse.Embed(
+            null, describe(entries), ctx.color(), null, timestamp,
+            new InteractionResponse.Footer("wen?", null),
+            new InteractionResponse.Author(title(ctx.config().name(), window), null))), buttons(next));
+    }
+
+    // like formatResponse, with each event labelled by the calendar it came from
+    private static InteractionResponse formatGroupResponse(Group group, MergedQuery.Result result, TimeWindow window, PageCursor next,
+        Instant now) {
+        if (result.current() == null && result.upcoming().isEmpty()) {
+            return InteractionResponse.message(window == null
+                ? "No upcoming events found for " + group.name()
+                : "No events found for " + group.name() + " " + window.label());
         }
 
-        String timestamp = java.time.Instant.now().toString();
+        List<String> entries = new ArrayList<>();
+        if (result.current() != null) {
+            CalendarContext member = group.members().get(result.current().feed());
+            entries.add(member.config().name() + " · " + formatLive(result.current().event(), member.summaryPrefixes()));
+        }
+        for (MergedQuery.Hit hit : result.upcoming()) {
+            CalendarContext member = group.members().get(hit.feed());
+            entries.add(member.config().name() + " · " + formatUpcoming(hit.event(), member.summaryPrefixes(), now));
+        }
 
         return InteractionResponse.embeds(List.of(new InteractionResponse.Embed(
-            null, desc.toString(), ctx.color(), null, timestamp,
+            null, describe(entries), group.color(), null, now.toString(),
             new InteractionResponse.Footer("wen?", null),
-            new InteractionResponse.Author(ctx.config().name(), null))));
+            new InteractionResponse.Author(title(group.name(), window), null))), buttons(next));
+    }
+
+    // a "next page" button when there is one and its cursor fits in a custom_id
+    private static List<InteractionResponse.ActionRow> buttons(PageCursor next) {
+        String id = next == null ? null : next.encode();
+        return id == null ? null : List.of(InteractionResponse.ActionRow.of(InteractionResponse.Button.secondary("Next page", id)));
+    }
+
+    private static String title(String name, TimeWindow window) {
+        return window == null ? name : name + " · " + window.label();
+    }
+
+    // entries joined by blank lines, dropping whole entries from the end (and saying how many) once
+    // the next would push the description past MAX_DESCRIPTION. only a lone oversized first entry is cut
+    static String describe(List<String> entries) {
+        int limit = MAX_DESCRIPTION - MORE_RESERVE;
+        StringBuilder desc = new StringBuilder();
+        for (int i = 0; i < entries.size(); i++) {
+            String entry = entries.get(i);
+            if (i == 0) {
+                desc.append(entry.length() > limit ? entry.substring(0, limit - 1) + "…" : entry);
+            } else if (desc.length() + 2 + entry.length() <= limit) {
+                desc.append("\n\n").append(entry);
+            } else {
+                desc.append("\n\n+").append(entries.size() - i).append(" more");
+                break;
+            }
+        }
+        return desc.toString();
     }
 
     private static String formatLive(CalendarEvent event, List<String> prefixes) {
@@ -315,9 +810,9 @@ public class Processor {
 
     private static final long SECONDS_IN_WEEK = 7 * 24 * 60 * 60;
 
-    private static String formatUpcoming(CalendarEvent event, List<String> prefixes) {
+    private static String formatUpcoming(CalendarEvent event, List<String> prefixes, Instant now) {
         long startEpoch = event.start().getEpochSecond();
-        long secondsUntil = startEpoch - java.time.Instant.now().getEpochSecond();
+        long secondsUntil = startEpoch - now.getEpochSecond();
 
         StringBuilder sb = new StringBuilder();
         sb.append("**").append(cleanSummary(event.summary(), event.lowerSummary(), prefixes)).append("**");
@@ -0,0 +1,263 @@
+package com.github.anirbanmu.wen;
+
+import com.github.anirbanmu.wen.discord.json.InteractionResponse;
+import com.github.anirbanmu.wen.discord.json.InteractionResponse.Choice;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+// immutable autocomplete index, rebuilt rather than updated on every feed refresh, so building it
+// is kept to a few arrays the size of the suggestions rather than a node per character:
+//   prefixes   - ranks sorted by suggestion text; the matches for q are one binary-searched range
+//   substrings - rank lists per 1, 2 and 3 character gram. a query of up to GRAM characters is a gram
+//                and its list is exact; a longer one walks its rarest trigram's list and checks
+//                each candidate with contains
+// responses for queries of up to PREBUILT_LENGTH characters, which is most keystrokes, are built up
+// front.
+final class SuggestionIndex {
+    static final int MAX_CHOICES = 25;
+    static final int PREBUILT_LENGTH = 2;
+    private static final int GRAM = 3;
+    private static final int[] NONE = {};
+
+    private final List<String> ranked;
+    private final Choice[] choices;
+    // ranks in suggestion text order
+    private final int[] byText;
+    // gram key -> ranks containing it, ascending. lists of grams shorter than GRAM are only ever
+    // read whole, so they stop at MAX_CHOICES
+    private final Grams grams = new Grams();
+    private final Map<String, InteractionResponse> prebuilt = new HashMap<>();
+
+    SuggestionIndex(Collection<String> suggestions) {
+        this(suggestions, List.of());
+    }
+
+    // fixed suggestions rank shortest first, then alphabetical — best autocomplete UX. extra ones
+    // (already in the order they should rank) come after them
+    SuggestionIndex(Collection<String> fixed, List<String> extra) {
+        List<String> sorted = new ArrayList<>(fixed.stream().distinct().toList());
+        sorted.sort((a, b) -> a.length() != b.length() ? a.length() - b.length() : a.compareTo(b));
+        LinkedHashSet<String> all = new LinkedHashSet<>(sorted);
+        all.addAll(extra);
+        this.ranked = List.copyOf(all);
+        this.choices = new Choice[ranked.size()];
+        this.byText = IntStream.range(0, ranked.size()).boxed().sorted(Comparator.comparing(ranked::get))
+            .mapToInt(Integer::intValue).toArray();
+
+        // adding in rank order keeps every list sorted
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            String s = ranked.get(rank);
+            choices[rank] = new Choice(s, s);
+            for (int i = 0; i < s.length(); i++) {
+                for (int len = 1; len <= GRAM && i + len <= s.length(); len++) {
+                    grams.getOrAdd(key(s, i, len)).add(rank, len < GRAM ? MAX_CHOICES : Integer.MAX_VALUE);
+                }
+            }
+        }
+        grams.trim();
+
+        prebuilt.put("", respond(""));
+        for (String s : ranked) {
+            for (int i = 0; i < s.length(); i++) {
+                for (int len = 1; len <= PREBUILT_LENGTH && i + len <= s.length(); len++) {
+                    prebuilt.computeIfAbsent(s.substring(i, i + len), this::respond);
+                }
+            }
+        }
+    }
+
+    List<String> suggestions() {
+        return ranked;
+    }
+
+    // q already lowercased: prefix matches, then substring matches, each by rank
+    InteractionResponse autocomplete(String q) {
+        InteractionResponse response = q.length() <= PREBUILT_LENGTH ? prebuilt.get(q) : null;
+        // a short query matching nothing isn't prebuilt; it takes the (empty) lookup
+        return response != null ? response : respond(q);
+    }
+
+    private InteractionResponse respond(String q) {
+        int[] byPrefix = prefixMatches(q);
+        List<Choice> out = new ArrayList<>(MAX_CHOICES);
+        for (int rank : byPrefix) {
+            out.add(choices[rank]);
+        }
+        // a full prefix list hides any substring match; a short one is every prefix match there is,
+        // and each of them is also a substring match
+        if (byPrefix.length < MAX_CHOICES && !q.isEmpty()) {
+            Postings candidates = rarestGram(q);
+            for (int i = 0; candidates != null && i < candidates.size; i++) {
+                int rank = candidates.ranks[i];
+                if ((q.length() <= GRAM || ranked.get(rank).contains(q)) && !contains(byPrefix, rank)) {
+                    out.add(choices[rank]);
+                    if (out.size() == MAX_CHOICES) {
+                        break;
+                    }
+                }
+            }
+        }
+        return InteractionResponse.autocomplete(out);
+    }
+
+    // the best MAX_CHOICES ranks among the suggestions starting with q, ascending
+    private int[] prefixMatches(String q) {
+        int lo = 0;
+        int hi = byText.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ranked.get(byText[mid]).compareTo(q) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int[] top = new int[MAX_CHOICES];
+        int n = 0;
+        for (int i = lo; i < byText.length && ranked.get(byText[i]).startsWith(q); i++) {
+            int rank = byText[i];
+            if (n == MAX_CHOICES && rank > top[n - 1]) {
+                continue;
+            }
+            // insertion into the sorted top list, dropping its worst when full
+            int at = n == MAX_CHOICES ? n - 1 : n++;
+            while (at > 0 && top[at - 1] > rank) {
+                top[at] = top[at - 1];
+                at--;
+            }
+            top[at] = rank;
+        }
+        return n == 0 ? NONE : n == MAX_CHOICES ? top : Arrays.copyOf(top, n);
+    }
+
+    // the whole of a short query, or the least common trigram of a longer one; null when some gram
+    // of q appears nowhere, so nothing contains q
+    private Postings rarestGram(String q) {
+        if (q.length() <= GRAM) {
+            return grams.get(key(q, 0, q.length()));
+        }
+        Postings rarest = null;
+        for (int i = 0; i + GRAM <= q.length(); i++) {
+            Postings p = grams.get(key(q, i, GRAM));
+            if (p == null) {
+                return null;
+            }
+            if (rarest == null || p.size < rarest.size) {
+                rarest = p;
+            }
+        }
+        return rarest;
+    }
+
+    // up to GRAM utf-16 units and the length in one long; never 0
+    private static long key(String s, int from, int len) {
+        long key = len;
+        for (int i = 0; i < len; i++) {
+            key = key << 16 | s.charAt(from + i);
+        }
+        return key;
+    }
+
+    private static boolean contains(int[] ranks, int rank) {
+        for (int r : ranks) {
+            if (r == rank) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // open-addressed gram key -> Postings, so building the index doesn't box a Long per gram
+    private static final class Grams {
+        private long[] keys = new long[256];
+        private Postings[] values = new Postings[256];
+        private int size;
+
+        Postings get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        Postings getOrAdd(long key) {
+            Postings found = get(key);
+            if (found != null) {
+                return found;
+            }
+            // at most half full
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            Postings added = new Postings();
+            put(key, added);
+            return added;
+        }
+
+        void trim() {
+            for (Postings p : values) {
+                if (p != null) {
+                    p.trim();
+                }
+            }
+        }
+
+        private void put(long key, Postings value) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Postings[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Postings[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        }
+    }
+
+    private static final class Postings {
+        int[] ranks = new int[2];
+        int size;
+
+        // ranks arrive in order, and one suggestion can hold a gram more than once
+        void add(int rank, int cap) {
+            if (size == cap || (size > 0 && ranks[size - 1] == rank)) {
+                return;
+            }
+            if (size == ranks.length) {
+                ranks = Arrays.copyOf(ranks, size * 2);
+            }
+            ranks[size++] = rank;
+        }
+
+        void trim() {
+            if (size < ranks.length) {
+                ranks = Arrays.copyOf(ranks, size);
+            }
+        }
+    }
+}
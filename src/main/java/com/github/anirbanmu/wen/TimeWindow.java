@@ -0,0 +1,115 @@
+package com.github.anirbanmu.wen;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// a trailing time window or count on a query: "f1 next 5", "f1 this weekend", "motogp in 30d".
+// resolved to [from, to) bounds up front so the feed answers it as a range of its sorted events.
+// interactions carry no timezone, so days and weekends are UTC ones.
+// rest: the query with the suffix removed, label: how the window reads in the response
+record TimeWindow(String rest, Instant from, Instant to, int max, String label) {
+    // ten events keep an embed well under discord's description limit
+    static final int MAX_EVENTS = 10;
+    // feeds only hold about a year ahead
+    static final Duration MAX_SPAN = Duration.ofDays(366);
+
+    // every window ends in a number or one of these words
+    private static final String[] LAST_WORDS = {"today", "tomorrow", "weekend", "week", "h", "hour", "hours", "d", "day", "days", "w",
+        "weeks"};
+    private static final Pattern COUNT = Pattern.compile("^(?:(.*) )?next (\\d{1,3})$");
+    private static final Pattern NAMED = Pattern.compile("^(?:(.*) )?(today|tomorrow|this weekend|next weekend|this week|next week)$");
+    private static final Pattern SPAN = Pattern.compile("^(?:(.*) )?in (\\d{1,4}) ?(h|hours?|d|days?|w|weeks?)$");
+
+    // null when the query has no window suffix
+    static TimeWindow parse(String query, Instant now) {
+        if (query == null || !mayHaveWindow(query.strip())) {
+            return null;
+        }
+        String q = query.strip().toLowerCase().replaceAll("\\s+", " ");
+
+        Matcher m = COUNT.matcher(q);
+        if (m.matches()) {
+            int n = Integer.parseInt(m.group(2));
+            if (n < 1) {
+                return null;
+            }
+            int max = Math.min(n, MAX_EVENTS);
+            return new TimeWindow(rest(m), now, Instant.MAX, max, "next " + max);
+        }
+
+        m = NAMED.matcher(q);
+        if (m.matches()) {
+            LocalDate today = LocalDate.ofInstant(now, ZoneOffset.UTC);
+            Instant tonight = midnight(today.plusDays(1));
+            // a weekend in progress is "this weekend"
+            LocalDate saturday = today.getDayOfWeek() == DayOfWeek.SUNDAY
+                ? today.minusDays(1)
+                : today.with(TemporalAdjusters.nextOrSame(DayOfWeek.SATURDAY));
+            Instant monday = midnight(today.with(TemporalAdjusters.next(DayOfWeek.MONDAY)));
+            return switch (m.group(2)) {
+                case "today" -> window(m, now, tonight, m.group(2));
+                case "tomorrow" -> window(m, tonight, tonight.plus(Duration.ofDays(1)), m.group(2));
+                case "this weekend" -> window(m, max(now, midnight(saturday)), midnight(saturday.plusDays(2)), m.group(2));
+                case "next weekend" -> window(m, midnight(saturday.plusWeeks(1)), midnight(saturday.plusWeeks(1).plusDays(2)), m.group(2));
+                case "this week" -> window(m, now, monday, m.group(2));
+                default -> window(m, monday, monday.plus(Duration.ofDays(7)), m.group(2));
+            };
+        }
+
+        m = SPAN.matcher(q);
+        if (m.matches()) {
+            long n = Long.parseLong(m.group(2));
+            char unit = m.group(3).charAt(0);
+            Duration span = switch (unit) {
+                case 'h' -> Duration.ofHours(n);
+                case 'd' -> Duration.ofDays(n);
+                default -> Duration.ofDays(7 * n);
+            };
+            if (span.isZero()) {
+                return null;
+            }
+            return window(m, now, now.plus(span.compareTo(MAX_SPAN) > 0 ? MAX_SPAN : span), "in " + n + unit);
+        }
+        return null;
+    }
+
+    // most queries have no window; rule them out without the regex work
+    private static boolean mayHaveWindow(String q) {
+        int start = q.lastIndexOf(' ') + 1;
+        int length = q.length() - start;
+        if (length == 0) {
+            return false;
+        }
+        if (Character.isDigit(q.charAt(start))) {
+            return true;
+        }
+        for (String word : LAST_WORDS) {
+            if (word.length() == length && q.regionMatches(true, start, word, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static TimeWindow window(Matcher m, Instant from, Instant to, String label) {
+        return new TimeWindow(rest(m), from, to, MAX_EVENTS, label);
+    }
+
+    private static String rest(Matcher m) {
+        return m.group(1) == null ? "" : m.group(1);
+    }
+
+    private static Instant midnight(LocalDate date) {
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private static Instant max(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
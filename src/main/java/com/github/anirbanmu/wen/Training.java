@@ -0,0 +1,157 @@
+package com.github.anirbanmu.wen;
+
+import com.dslplatform.json.JsonWriter;
+import com.github.anirbanmu.wen.calendar.CalendarEvent;
+import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.config.ConfigLoader;
+import com.github.anirbanmu.wen.config.WenConfig;
+import com.github.anirbanmu.wen.discord.json.GatewayEventParser;
+import com.github.anirbanmu.wen.discord.json.Identify;
+import com.github.anirbanmu.wen.discord.json.Interaction;
+import com.github.anirbanmu.wen.log.Log;
+import com.github.anirbanmu.wen.util.Http;
+import com.github.anirbanmu.wen.util.Json;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+// `--train`: runs the startup and request paths offline against bundled fixtures (config,
+// feeds, synthetic interactions) so an AOT cache run records what production loads and links.
+// no discord, no network.
+final class Training {
+    private static final String FIXTURES = "/training/";
+    private static final int ROUNDS = 100;
+
+    private static final String HELLO = "{\"t\":null,\"s\":null,\"op\":10,\"d\":{\"heartbeat_interval\":41250}}";
+    private static final String READY = "{\"t\":\"READY\",\"s\":1,\"op\":0,\"d\":{\"session_id\":\"training\",\"resume_gateway_url\":\"wss://training.invalid\"}}";
+    private static final String HEARTBEAT_ACK = "{\"t\":null,\"s\":null,\"op\":11,\"d\":null}";
+
+    private Training() {
+    }
+
+    static void run() throws Exception {
+        long start = System.nanoTime();
+
+        WenConfig config = fixtureConfig();
+        Processor processor = processor(config, Instant.now());
+        List<String> payloads = interactions(config.calendars());
+
+        GatewayEventParser parser = new GatewayEventParser();
+        List<Interaction> interactions = Warmup.parse(payloads);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream(4096);
+        int responses = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            responses += Warmup.round(List.of(processor), interactions, sink);
+        }
+
+        // the rest of what a fresh start touches before the first interaction
+        for (String control : List.of(HELLO, READY, HEARTBEAT_ACK)) {
+            parser.parse(control);
+        }
+        Json.DSL.serialize(Identify.create("training", 0), sink);
+        Json.DSL.serialize(List.of(Main.wenCommand()), sink);
+        HttpRequest.newBuilder(URI.create("https://training.invalid/")).GET().build();
+        Http.CLIENT.version();
+
+        Log.info("training.complete",
+            "calendars", config.calendars().size(),
+            "interactions", payloads.size() * ROUNDS,
+            "responses", responses,
+            "ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    static WenConfig fixtureConfig() throws IOException {
+        try (InputStream in = fixture("config.toml")) {
+            return ConfigLoader.load(in);
+        }
+    }
+
+    // feeds parsed from the bundled <first keyword>.ics, keyed the way Main keys them
+    static Processor processor(WenConfig config, Instant now) throws IOException {
+        Map<String, CalendarFeed> feeds = new HashMap<>();
+        Map<String, Calendar> configs = new HashMap<>();
+        for (Calendar cal : config.calendars()) {
+            Predicate<CalendarEvent> filter = cal.prefilter() != null ? cal.prefilter().toPredicate() : _ -> true;
+            CalendarFeed feed;
+            try (InputStream in = fixture(cal.keywords().getFirst() + ".ics")) {
+                feed = CalendarFeed.fromSnapshot(in, filter, now);
+            }
+            for (String keyword : cal.keywords()) {
+                feeds.put(keyword, feed);
+                configs.put(keyword, cal);
+            }
+        }
+        return new Processor(configs, feeds);
+    }
+
+    // raw INTERACTION_CREATE payloads: every keyword and "keyword filter" as a command, the
+    // keystrokes that lead up to it as autocompletes, plus help, empty and unknown queries
+    static List<String> interactions(List<Calendar> calendars) {
+        Set<String> queries = new LinkedHashSet<>();
+        for (Calendar cal : calendars) {
+            for (String keyword : cal.keywords()) {
+                queries.add(keyword);
+                for (String filter : cal.filters().keySet()) {
+                    queries.add(keyword + " " + filter);
+                }
+            }
+        }
+        queries.add("help");
+        queries.add("nope");
+
+        List<String> payloads = new ArrayList<>();
+        int seq = 1;
+        payloads.add(command(seq++, null));
+        for (String query : queries) {
+            for (int i = 1; i <= query.length(); i++) {
+                payloads.add(autocomplete(seq++, query.substring(0, i)));
+            }
+            payloads.add(command(seq++, query));
+        }
+        return payloads;
+    }
+
+    static String command(int seq, String query) {
+        String options = query == null ? "[]" : "[{\"value\":" + quoted(query) + ",\"type\":3,\"name\":\"query\"}]";
+        return interaction(seq, 2, options);
+    }
+
+    static String autocomplete(int seq, String typed) {
+        return interaction(seq, 4, "[{\"value\":" + quoted(typed) + ",\"type\":3,\"name\":\"query\",\"focused\":true}]");
+    }
+
+    // queries come from config keywords and filter names, which can hold quotes or backslashes
+    private static String quoted(String value) {
+        JsonWriter writer = Json.DSL.newWriter();
+        writer.writeString(value);
+        return writer.toString();
+    }
+
+    // same field layout as a recorded gateway dispatch, minus member/guild detail
+    private static String interaction(int seq, int type, String options) {
+        return "{\"t\":\"INTERACTION_CREATE\",\"s\":" + seq + ",\"op\":0,\"d\":{\"version\":1,\"type\":" + type
+            + ",\"token\":\"training\",\"locale\":\"en-US\",\"id\":\"" + (1_300_000_000_000_000_000L + seq)
+            + "\",\"guild_id\":\"100000000000000000\",\"data\":{\"type\":1,\"options\":" + options
+            + ",\"name\":\"wen\",\"id\":\"1200000000000000000\"},\"context\":0,\"channel_id\":\"110000000000000000\""
+            + ",\"application_id\":\"1100000000000000000\"}}";
+    }
+
+    private static InputStream fixture(String name) throws IOException {
+        InputStream in = Training.class.getResourceAsStream(FIXTURES + name);
+        if (in == null) {
+            throw new IOException("missing training fixture " + name);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.anirbanmu.wen;
+
+import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.config.WenConfig;
+import com.github.anirbanmu.wen.discord.json.GatewayEvent;
+import com.github.anirbanmu.wen.discord.json.GatewayEventParser;
+import com.github.anirbanmu.wen.discord.json.Interaction;
+import com.github.anirbanmu.wen.discord.json.InteractionResponse;
+import com.github.anirbanmu.wen.log.Log;
+import com.github.anirbanmu.wen.util.Json;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// runs synthetic interactions through Processor and response serialization before the gateway
+// connects. with C1 only, the first real /wen otherwise runs interpreted. stops at whichever
+// of the time or allocation budget runs out first.
+final class Warmup {
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // per-interaction averages of the first (cold), fastest and last rounds. speedup is against the
+    // fastest: the last is a single round, and a gc or a descheduling can land on it
+    record Result(int rounds, long elapsedMs, long allocatedBytes, long firstRoundNanos, long bestRoundNanos, long lastRoundNanos) {
+    }
+
+    private Warmup() {
+    }
+
+    // the live views cover every configured keyword and filter, but may still be empty; the bundled
+    // training fixtures always have events, so formatting gets warmed too. the views are copied into
+    // fixed feeds first: those have no source, so warmup's queries don't make every feed look popular
+    // to the refresh policy
+    static Result run(WenConfig config, Map<Calendar, CalendarFeed> views, Duration timeBudget, long allocBudgetBytes) throws Exception {
+        WenConfig fixtures = Training.fixtureConfig();
+        List<String> payloads = new ArrayList<>(Training.interactions(config.calendars()));
+        payloads.addAll(Training.interactions(fixtures.calendars()));
+
+        Map<Calendar, CalendarFeed> detached = new LinkedHashMap<>();
+        for (Map.Entry<Calendar, CalendarFeed> e : views.entrySet()) {
+            detached.put(e.getKey(), CalendarFeed.fixed(e.getValue().getEvents()));
+        }
+        Processor live = Main.processor(detached, config.virtualCalendars(), null, null);
+        Result result = run(List.of(live, Training.processor(fixtures, Instant.now())), parse(payloads), timeBudget, allocBudgetBytes);
+        log(result);
+        return result;
+    }
+
+    static Result run(List<Processor> processors, List<Interaction> interactions, Duration timeBudget, long allocBudgetBytes) {
+        boolean trackAlloc = THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+        long allocStart = trackAlloc ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+        long start = System.nanoTime();
+        long deadline = start + timeBudget.toNanos();
+        ByteArrayOutputStream sink = new ByteArrayOutputStream(4096);
+
+        int rounds = 0;
+        long firstRound = 0;
+        long bestRound = Long.MAX_VALUE;
+        long lastRound = 0;
+        long allocated = 0;
+        int perRound = Math.max(1, interactions.size() * processors.size());
+        while (System.nanoTime() < deadline && (!trackAlloc || allocated < allocBudgetBytes)) {
+            long roundStart = System.nanoTime();
+            round(processors, interactions, sink);
+            lastRound = (System.nanoTime() - roundStart) / perRound;
+            if (rounds++ == 0) {
+                firstRound = lastRound;
+            }
+            bestRound = Math.min(bestRound, lastRound);
+            if (trackAlloc) {
+                allocated = THREADS.getCurrentThreadAllocatedBytes() - allocStart;
+            }
+        }
+        return new Result(rounds, (System.nanoTime() - start) / 1_000_000, allocated, firstRound, rounds > 0 ? bestRound : 0, lastRound);
+    }
+
+    static int round(List<Processor> processors, List<Interaction> interactions, ByteArrayOutputStream sink) {
+        int responses = 0;
+        for (Processor processor : processors) {
+            for (Interaction interaction : interactions) {
+                InteractionResponse response = processor.process(interaction);
+                if (response != null) {
+                    sink.reset();
+                    try {
+                        Json.DSL.serialize(response, sink);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    responses++;
+                }
+            }
+        }
+        return responses;
+    }
+
+    static List<Interaction> parse(List<String> payloads) throws Exception {
+        GatewayEventParser parser = new GatewayEventParser();
+        List<Interaction> interactions = new ArrayList<>(payloads.size());
+        for (String payload : payloads) {
+            if (parser.parse(payload).event() instanceof GatewayEvent.InteractionCreate ic) {
+                interactions.add(ic.interaction());
+            }
+        }
+        return interactions;
+    }
+
+    private static void log(Result result) {
+        Log.info("warmup.complete",
+            "rounds", result.rounds(),
+            "ms", result.elapsedMs(),
+            "alloc_mb", result.allocatedBytes() >> 20,
+            "first_round_us", result.firstRoundNanos() / 1000,
+            "best_round_us", result.bestRoundNanos() / 1000,
+            "last_round_us", result.lastRoundNanos() / 1000,
+            "speedup", result.bestRoundNanos() > 0 ? String.format("%.1fx", (double) result.firstRoundNanos() / result.bestRoundNanos()) : "n/a");
+    }
+}
@@ -5,14 +5,13 @@ import biweekly.ICalendar;
 import biweekly.component.VEvent;
 import biweekly.util.com.google.ical.compat.javautil.DateIterator;
 import com.github.anirbanmu.wen.log.Log;
-import com.github.anirbanmu.wen.util.Http;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -20,45 +19,161 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
 
+// a calendar's view of a FeedSource: the source's events narrowed by the calendar's prefilter,
+// re-derived whenever the source refreshes. fixed feeds have no source.
 public class CalendarFeed {
     private static final int MAX_OCCURRENCES_PER_EVENT = 100;
-    private final String url;
-    private final Duration refreshInterval;
+    private final FeedSource source;
     private final Predicate<CalendarEvent> filter;
-    private final Thread thread;
+    private final Consumer<List<CalendarEvent>> listener = this::update;
     private volatile List<CalendarEvent> events = Collections.emptyList();
+    private volatile int snapshotHash;
+    private volatile Runnable onRefresh;
 
     public CalendarFeed(String url, Duration refreshInterval) {
-        this(url, refreshInterval, _ -> true);
+        this(url, refreshInterval, null);
     }
 
+    // standalone feed with its own source; use FeedRegistry to share a url between calendars
     public CalendarFeed(String url, Duration refreshInterval, Predicate<CalendarEvent> filter) {
-        this.url = url;
-        this.refreshInterval = refreshInterval;
+        this(new FeedSource(url, refreshInterval, null), filter);
+        source.start();
+    }
+
+    // null filter = every event, sharing the source's list instead of copying it
+    CalendarFeed(FeedSource source, Predicate<CalendarEvent> filter) {
+        this.source = source;
         this.filter = filter;
-        this.thread = Thread.ofVirtual().name("calendar[" + url.hashCode() + "]").unstarted(this::runLoop);
-        this.thread.start();
+        source.addListener(listener);
+    }
+
+    FeedSource source() {
+        return source;
+    }
+
+    // stops following the source; the view keeps serving its last events to anyone still holding it
+    void detach() {
+        source.removeListener(listener);
+    }
+
+    private CalendarFeed(List<CalendarEvent> events) {
+        this.source = null;
+        this.filter = null;
+        this.events = List.copyOf(events);
+    }
+
+    private void update(List<CalendarEvent> sourceEvents) {
+        this.events = filter == null ? sourceEvents : sourceEvents.stream().filter(filter).toList();
+        this.snapshotHash = source.snapshotHash();
+        Runnable r = onRefresh;
+        if (r != null) {
+            r.run();
+        }
+    }
+
+    // run on the refresh thread after each refresh; replaces any earlier callback, so only the
+    // newest Processor over a feed hears about it
+    public void onRefresh(Runnable r) {
+        this.onRefresh = r;
+    }
+
+    // feed with a fixed event list and no refresh loop - for benchmarks and offline tooling
+    public static CalendarFeed fixed(List<CalendarEvent> events) {
+        return new CalendarFeed(events);
+    }
+
+    // feed from a saved ics body, parsed as of `now` - for offline replay
+    public static CalendarFeed fromSnapshot(Path ics, Predicate<CalendarEvent> filter, Instant now) throws IOException {
+        try (InputStream in = Files.newInputStream(ics)) {
+            return fromSnapshot(in, filter, now);
+        }
+    }
+
+    public static CalendarFeed fromSnapshot(InputStream ics, Predicate<CalendarEvent> filter, Instant now) throws IOException {
+        CheckedInputStream body = new CheckedInputStream(ics, new CRC32C());
+        CalendarFeed feed = new CalendarFeed(parse(body, filter, now));
+        body.transferTo(OutputStream.nullOutputStream());
+        feed.snapshotHash = (int) body.getChecksum().getValue();
+        return feed;
     }
 
     public List<CalendarEvent> getEvents() {
         return events;
     }
 
+    // crc32c of the raw ics body behind the current events, 0 before the first refresh
+    public int snapshotHash() {
+        return snapshotHash;
+    }
+
     // query for events matching predicate, returns current "in-event" and upcoming
     public QueryResult query(Predicate<CalendarEvent> predicate, int maxUpcoming) {
-        return query(events, predicate, maxUpcoming);
+        return query(predicate, maxUpcoming, Instant.now());
+    }
+
+    public QueryResult query(Predicate<CalendarEvent> predicate, int maxUpcoming, Instant now) {
+        recordQuery();
+        return query(events, predicate, maxUpcoming, now);
+    }
+
+    // upcoming events starting in [from, to), plus the one in progress if the window reaches back to now
+    public QueryResult query(Predicate<CalendarEvent> predicate, int maxUpcoming, Instant now, Instant from, Instant to) {
+        recordQuery();
+        return query(events, predicate, maxUpcoming, now, from, to);
+    }
+
+    // first matching event starting at or after from, or null: a seek into the sorted events. not
+    // counted as a query, since schedulers call it rather than users
+    public CalendarEvent next(Predicate<CalendarEvent> predicate, Instant from) {
+        List<CalendarEvent> snapshot = events;
+        for (int i = firstStartingAt(snapshot, from); i < snapshot.size(); i++) {
+            if (predicate.test(snapshot.get(i))) {
+                return snapshot.get(i);
+            }
+        }
+        return null;
+    }
+
+    // popular feeds refresh sooner
+    void recordQuery() {
+        if (source != null) {
+            source.recordQuery();
+        }
+    }
+
+    // queries counted toward the source's next refresh decision; always 0 for fixed feeds
+    public long pendingQueries() {
+        return source != null ? source.pendingQueries() : 0;
     }
 
     // static helper for query logic - allows testing without live CalendarFeed
     // instance
     static QueryResult query(List<CalendarEvent> events, Predicate<CalendarEvent> predicate, int maxUpcoming) {
-        Instant now = Instant.now();
+        return query(events, predicate, maxUpcoming, Instant.now());
+    }
+
+    static QueryResult query(List<CalendarEvent> events, Predicate<CalendarEvent> predicate, int maxUpcoming, Instant now) {
+        return query(events, predicate, maxUpcoming, now, now, Instant.MAX);
+    }
+
+    // events are in start order, so the window is a range: binary search to its first event
+    // (unless it includes now, where an in-progress event may have started any time before)
+    // and stop at the first start past its end
+    static QueryResult query(List<CalendarEvent> events, Predicate<CalendarEvent> predicate, int maxUpcoming, Instant now,
+        Instant from, Instant to) {
         CalendarEvent current = null;
         List<CalendarEvent> upcoming = new ArrayList<>();
 
-        for (CalendarEvent e : events) {
+        for (int i = from.isAfter(now) ? firstStartingAt(events, from) : 0; i < events.size(); i++) {
+            CalendarEvent e = events.get(i);
+            if (!e.start().isBefore(to)) {
+                break;
+            }
             if (!predicate.test(e)) {
                 continue;
             }
@@ -77,57 +192,19 @@ public class CalendarFeed {
         return new QueryResult(current, upcoming);
     }
 
-    private static final java.util.concurrent.Semaphore REFRESH_LIMIT = new java.util.concurrent.Semaphore(3);
-
-    private void runLoop() {
-        // initial jitter to desynchronize startup (max 5s)
-        try {
-            Thread.sleep(java.util.concurrent.ThreadLocalRandom.current().nextLong(5000));
-        } catch (InterruptedException e) {
-            return;
-        }
-
-        while (true) {
-            try {
-                refresh();
-                // add randomness to interval to prevent drift synchronization (+/- 5s)
-                long jitter = java.util.concurrent.ThreadLocalRandom.current().nextLong(-5000, 5000);
-                long sleepTime = Math.max(0, refreshInterval.toMillis() + jitter);
-                Thread.sleep(sleepTime);
-            } catch (InterruptedException e) {
-                Log.info("calendar_interrupted", "url", url);
-                break;
-            } catch (Exception e) {
-                Log.error("calendar_refresh_error", "url", url, "error", e.getMessage());
-                try {
-                    // backoff on error
-                    Thread.sleep(Math.min(refreshInterval.toMillis(), 60000));
-                } catch (InterruptedException ie) {
-                    break;
-                }
-            }
-        }
-    }
-
-    private void refresh() throws IOException, InterruptedException {
-        REFRESH_LIMIT.acquire();
-        try {
-            HttpRequest request = HttpRequest.newBuilder(URI.create(url)).GET().build();
-            HttpResponse<InputStream> response = Http.CLIENT.send(request, HttpResponse.BodyHandlers.ofInputStream());
-
-            if (response.statusCode() != 200) {
-                Log.error("calendar_fetch_failed", "url", url, "status", response.statusCode());
-                return;
+    // index of the first event starting at or after t, events.size() if none
+    static int firstStartingAt(List<CalendarEvent> events, Instant t) {
+        int lo = 0;
+        int hi = events.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (events.get(mid).start().isBefore(t)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
             }
-
-            try (InputStream body = response.body()) {
-                List<CalendarEvent> events = parse(body, filter);
-                this.events = events;
-                Log.info("calendar_refreshed", "url", url, "count", events.size());
-            }
-        } finally {
-            REFRESH_LIMIT.release();
         }
+        return lo;
     }
 
     // convenience overload for tests
@@ -136,6 +213,10 @@ public class CalendarFeed {
     }
 
     static List<CalendarEvent> parse(InputStream body, Predicate<CalendarEvent> filter) {
+        return parse(body, filter, Instant.now());
+    }
+
+    static List<CalendarEvent> parse(InputStream body, Predicate<CalendarEvent> filter, Instant now) {
         ICalendar ical;
         try {
             ical = Biweekly.parse(body).first();
@@ -148,7 +229,6 @@ public class CalendarFeed {
         }
 
         List<CalendarEvent> newEvents = new ArrayList<>();
-        Instant now = Instant.now();
         Instant maxLookahead = now.plus(Duration.ofDays(365));
         TimeZone timeZone = TimeZone.getTimeZone("UTC");
 
@@ -0,0 +1,102 @@
+package com.github.anirbanmu.wen.calendar;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// distinctive words from a feed's upcoming events, for autocomplete: location names and summary
+// tokens that pick out a few events ("monaco", "silverstone") rather than most of them
+// ("grand", "prix"). every term is a substring of an event field, so it works as a free-text filter.
+public final class EventTerms {
+    public static final int MAX_TERM_LENGTH = 24;
+    private static final int MIN_TOKEN_LENGTH = 3;
+    // a token in more than a third of upcoming events describes the calendar, not an event
+    private static final int COMMON_DIVISOR = 3;
+    private static final Set<String> STOPWORDS = Set.of(
+        "the", "and", "for", "with", "from", "day", "race", "session", "event", "live", "tbc", "tba");
+
+    // next = start of the soonest upcoming event it matches
+    public record Term(String text, Instant next) {
+    }
+
+    private EventTerms() {
+    }
+
+    // soonest first, at most max. events are in start order
+    public static List<Term> extract(List<CalendarEvent> events, Instant now, int max) {
+        List<CalendarEvent> upcoming = new ArrayList<>();
+        for (CalendarEvent e : events) {
+            if (e.end().isAfter(now)) {
+                upcoming.add(e);
+            }
+        }
+
+        Map<String, Integer> eventCounts = new HashMap<>();
+        for (CalendarEvent e : upcoming) {
+            for (String term : candidates(e)) {
+                eventCounts.merge(term, 1, Integer::sum);
+            }
+        }
+
+        int common = Math.max(1, upcoming.size() / COMMON_DIVISOR);
+        Map<String, Term> terms = new LinkedHashMap<>();
+        for (CalendarEvent e : upcoming) {
+            for (String term : candidates(e)) {
+                if (eventCounts.get(term) <= common && !terms.containsKey(term)) {
+                    terms.put(term, new Term(term, e.start()));
+                    if (terms.size() == max) {
+                        return List.copyOf(terms.values());
+                    }
+                }
+            }
+        }
+        return List.copyOf(terms.values());
+    }
+
+    // each distinct candidate once per event: the whole location when short enough, then words
+    private static Set<String> candidates(CalendarEvent e) {
+        Set<String> out = new LinkedHashSet<>();
+        if (e.lowerLocation() != null) {
+            String location = e.lowerLocation().strip();
+            if (!location.isEmpty() && location.length() <= MAX_TERM_LENGTH) {
+                out.add(location);
+            }
+            tokens(location, out);
+        }
+        if (e.lowerSummary() != null) {
+            tokens(e.lowerSummary(), out);
+        }
+        return out;
+    }
+
+    private static void tokens(String text, Set<String> out) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                String token = text.substring(start, i);
+                if (token.length() >= MIN_TOKEN_LENGTH && token.length() <= MAX_TERM_LENGTH
+                    && !STOPWORDS.contains(token) && !isNumber(token)) {
+                    out.add(token);
+                }
+                start = -1;
+            }
+        }
+    }
+
+    private static boolean isNumber(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
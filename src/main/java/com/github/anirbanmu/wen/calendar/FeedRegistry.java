@@ -0,0 +1,224 @@
+package com.github.anirbanmu.wen.calendar;
+
+import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.log.Log;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// one FeedSource per url, however many calendars point at it. each calendar gets a filtered
+// CalendarFeed view over the shared parse.
+public final class FeedRegistry {
+    private final SnapshotStore store;
+    private final RefreshPolicy policy;
+    private final Map<String, FeedSource> sources = new HashMap<>();
+    private Map<Calendar, CalendarFeed> views = new LinkedHashMap<>();
+    private boolean started;
+
+    public FeedRegistry(SnapshotStore store) {
+        this(store, RefreshPolicy.DEFAULT_BUDGET_PER_HOUR);
+    }
+
+    // store may be null (no snapshot persistence). fetchBudgetPerHour is shared by every source:
+    // adaptive refreshes faster than a feed's configured interval stop once it is spent
+    public FeedRegistry(SnapshotStore store, int fetchBudgetPerHour) {
+        this.store = store;
+        this.policy = new RefreshPolicy(fetchBudgetPerHour);
+    }
+
+    public synchronized CalendarFeed view(Calendar calendar) {
+        CalendarFeed existing = views.get(calendar);
+        if (existing != null) {
+            return existing;
+        }
+        FeedSource source = sources.get(calendar.url());
+        if (source == null) {
+            source = new FeedSource(calendar.url(), calendar.refreshInterval(), store, policy);
+            sources.put(calendar.url(), source);
+        } else {
+            source.requestInterval(calendar.refreshInterval());
+            Log.info("calendar_shared", "url", calendar.url(), "name", calendar.name(), "interval", source.refreshInterval());
+        }
+        CalendarFeed view = newView(source, calendar);
+        views.put(calendar, view);
+        return view;
+    }
+
+    private static CalendarFeed newView(FeedSource source, Calendar calendar) {
+        return new CalendarFeed(source, calendar.prefilter() != null ? calendar.prefilter().toPredicate() : null);
+    }
+
+    // brings the registry in line with a reloaded config. calendars equal to a running one keep
+    // their view; new or edited ones get a fresh view, over the existing source when the url is
+    // already fetched, so nothing already parsed is thrown away. urls no longer referenced stop
+    // refreshing, and new urls are loaded (as in load()) before this returns, so whoever swaps the
+    // returned views in never serves an empty calendar
+    public Map<Calendar, CalendarFeed> reconcile(List<Calendar> calendars, Duration loadDeadline, int perHost)
+        throws InterruptedException {
+        List<FeedSource> added = new ArrayList<>();
+        Map<Calendar, CalendarFeed> next = new LinkedHashMap<>();
+        int kept = 0;
+        int removed = 0;
+        boolean running;
+        synchronized (this) {
+            Map<String, Duration> intervals = new HashMap<>();
+            for (Calendar calendar : calendars) {
+                intervals.merge(calendar.url(), calendar.refreshInterval(), (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+            for (Map.Entry<String, Duration> e : intervals.entrySet()) {
+                FeedSource source = sources.get(e.getKey());
+                if (source == null) {
+                    source = new FeedSource(e.getKey(), e.getValue(), store, policy);
+                    sources.put(e.getKey(), source);
+                    added.add(source);
+                } else {
+                    source.setInterval(e.getValue());
+                }
+            }
+
+            for (Calendar calendar : calendars) {
+                CalendarFeed view = views.get(calendar);
+                if (view != null) {
+                    kept++;
+                } else {
+                    view = newView(sources.get(calendar.url()), calendar);
+                }
+                next.put(calendar, view);
+            }
+            for (Map.Entry<Calendar, CalendarFeed> e : views.entrySet()) {
+                if (!next.containsKey(e.getKey())) {
+                    e.getValue().detach();
+                }
+            }
+            views = next;
+
+            for (Iterator<FeedSource> it = sources.values().iterator(); it.hasNext();) {
+                FeedSource source = it.next();
+                if (!intervals.containsKey(source.url())) {
+                    source.stop();
+                    it.remove();
+                    removed++;
+                }
+            }
+            running = started;
+        }
+
+        if (!added.isEmpty()) {
+            load(added, loadDeadline, perHost);
+        }
+        if (running) {
+            for (FeedSource source : added) {
+                source.start();
+            }
+        }
+        Log.info("calendar_reconciled", "calendars", next.size(), "kept", kept, "sources_added", added.size(),
+            "sources_removed", removed);
+        return Collections.unmodifiableMap(next);
+    }
+
+    // starts every source's refresh loop; call once all views are registered so intervals are merged
+    public synchronized void start() {
+        started = true;
+        for (FeedSource source : sources.values()) {
+            source.start();
+        }
+    }
+
+    public synchronized int sourceCount() {
+        return sources.size();
+    }
+
+    public record LoadResult(int loaded, int total, long elapsedMs) {
+        public double fraction() {
+            return total == 0 ? 1 : (double) loaded / total;
+        }
+    }
+
+    // the startup phase: fetches every source at once (at most perHost at a time against any one
+    // host) and waits until all are done or the deadline passes, cancelling whatever is still in
+    // flight then. sources restored from a snapshot are refetched too but already count as loaded.
+    // call before start()
+    public LoadResult load(Duration deadline, int perHost) throws InterruptedException {
+        List<FeedSource> all;
+        synchronized (this) {
+            all = List.copyOf(sources.values());
+        }
+        return load(all, deadline, perHost);
+    }
+
+    private static LoadResult load(List<FeedSource> all, Duration deadline, int perHost) throws InterruptedException {
+        Map<String, Semaphore> hostLimits = new HashMap<>();
+        List<Callable<Boolean>> tasks = new ArrayList<>(all.size());
+        for (FeedSource source : all) {
+            Semaphore limit = hostLimits.computeIfAbsent(host(source.url()), _ -> new Semaphore(perHost));
+            tasks.add(() -> {
+                limit.acquire();
+                try {
+                    return source.load();
+                } finally {
+                    limit.release();
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        try (ExecutorService scope = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("calendar-load").factory())) {
+            // returns once every task has finished or the deadline passed, cancelling the rest
+            scope.invokeAll(tasks, deadline.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        LoadResult result = new LoadResult(loadedCount(all), all.size(), (System.nanoTime() - start) / 1_000_000);
+        Log.info("calendar_load_complete", "loaded", result.loaded(), "total", result.total(), "ms", result.elapsedMs(),
+            "hosts", hostLimits.size());
+        return result;
+    }
+
+    // share of sources with events to serve
+    public synchronized double loadedFraction() {
+        return sources.isEmpty() ? 1 : (double) loadedCount(sources.values()) / sources.size();
+    }
+
+    // waits until fraction of sources have events or timeout passes; false on timeout, when the
+    // stragglers are left to their refresh timers
+    public boolean awaitReady(double fraction, Duration timeout, Duration poll) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (loadedFraction() < fraction) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                return false;
+            }
+            Thread.sleep(Math.min(poll.toNanos(), left) / 1_000_000);
+        }
+        return true;
+    }
+
+    private static int loadedCount(Collection<FeedSource> sources) {
+        int n = 0;
+        for (FeedSource source : sources) {
+            if (source.loaded()) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static String host(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+}
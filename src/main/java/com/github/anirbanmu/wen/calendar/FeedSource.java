@@ -0,0 +1,298 @@
+package com.github.anirbanmu.wen.calendar;
+
+import com.github.anirbanmu.wen.capture.Capture;
+import com.github.anirbanmu.wen.log.Log;
+import com.github.anirbanmu.wen.util.Http;
+import com.github.anirbanmu.wen.util.TimerWheel;
+import com.github.anirbanmu.wen.util.Timers;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+
+// one ics url: fetches and parses it unfiltered on a refresh timer, then hands the events to
+// every listener (the filtered CalendarFeed views). shared by all calendars with the same url.
+final class FeedSource {
+    // parsed events drift from a fresh parse as the lookahead window moves; past this age a
+    // 304 would keep a stale expansion, so refetch unconditionally
+    private static final Duration MAX_CONDITIONAL_AGE = Duration.ofDays(1);
+    private static final Semaphore REFRESH_LIMIT = new Semaphore(3);
+    private static final Duration REFRESH_JITTER = Duration.ofSeconds(5);
+    // refreshes may run up to a second late so ones that come due together share a wakeup
+    private static final Duration REFRESH_SLACK = Duration.ofSeconds(1);
+    private static final Duration ERROR_BACKOFF = Duration.ofMinutes(1);
+
+    private final String url;
+    private final SnapshotStore store;
+    private final RefreshPolicy policy;
+    private final List<Consumer<List<CalendarEvent>>> listeners = new CopyOnWriteArrayList<>();
+    private volatile Duration refreshInterval;
+    private volatile TimerWheel.Timeout timer;
+    private volatile boolean stopped;
+
+    private volatile List<CalendarEvent> events = Collections.emptyList();
+    private volatile int snapshotHash;
+    // validator for conditional refetch, and when the events were last parsed from a body
+    private volatile String etag;
+    private volatile Instant parsedAt;
+    private volatile boolean fetched;
+    private volatile boolean loaded;
+
+    // refresh policy signals: queries since the last decision, and an average of how often a
+    // fetched body differed from the one before it. the latter two are refresh-thread only
+    private final LongAdder queries = new LongAdder();
+    private volatile double changeRate;
+    private Duration previousDelay;
+    private Instant lastDecisionAt = Instant.now();
+
+    FeedSource(String url, Duration refreshInterval, SnapshotStore store) {
+        this(url, refreshInterval, store, new RefreshPolicy(RefreshPolicy.DEFAULT_BUDGET_PER_HOUR));
+    }
+
+    // with a store, starts out with the last saved snapshot (if any) and saves after each fetch
+    FeedSource(String url, Duration refreshInterval, SnapshotStore store, RefreshPolicy policy) {
+        this.url = url;
+        this.refreshInterval = refreshInterval;
+        this.previousDelay = refreshInterval;
+        this.store = store;
+        this.policy = policy;
+        if (store != null) {
+            restore(store.load(url));
+        }
+    }
+
+    String url() {
+        return url;
+    }
+
+    List<CalendarEvent> events() {
+        return events;
+    }
+
+    int snapshotHash() {
+        return snapshotHash;
+    }
+
+    Duration refreshInterval() {
+        return refreshInterval;
+    }
+
+    double changeRate() {
+        return changeRate;
+    }
+
+    // a view was queried; popular feeds refresh sooner
+    void recordQuery() {
+        queries.increment();
+    }
+
+    long pendingQueries() {
+        return queries.sum();
+    }
+
+    // several calendars on one url refresh at the shortest interval any of them asked for
+    synchronized void requestInterval(Duration interval) {
+        if (interval.compareTo(refreshInterval) < 0) {
+            refreshInterval = interval;
+        }
+    }
+
+    // a config reload replaces the interval outright; it may have gone up
+    synchronized void setInterval(Duration interval) {
+        refreshInterval = interval;
+    }
+
+    // called with the current events now, then after every refresh
+    void addListener(Consumer<List<CalendarEvent>> listener) {
+        listeners.add(listener);
+        listener.accept(events);
+    }
+
+    void removeListener(Consumer<List<CalendarEvent>> listener) {
+        listeners.remove(listener);
+    }
+
+    int listenerCount() {
+        return listeners.size();
+    }
+
+    synchronized void start() {
+        if (timer == null && !stopped) {
+            if (fetched) {
+                // the startup load already fetched it; carry on from there
+                schedule(TimerWheel.jitter(plan(Instant.now()).delay(), REFRESH_JITTER));
+            } else {
+                // initial jitter to desynchronize startup (max 5s)
+                schedule(Duration.ofMillis(ThreadLocalRandom.current().nextLong(5000)));
+            }
+        }
+    }
+
+    // no longer configured: cancels the pending refresh, and one already running won't reschedule
+    synchronized void stop() {
+        stopped = true;
+        if (timer != null) {
+            timer.cancel();
+        }
+    }
+
+    // has events to serve, from a fetch or a restored snapshot
+    boolean loaded() {
+        return loaded;
+    }
+
+    // the startup fetch: same as a refresh, but concurrency is up to the caller (FeedRegistry.load
+    // limits it per host) rather than the global refresh limit. true once loaded
+    boolean load() throws InterruptedException {
+        try {
+            fetch();
+        } catch (IOException | RuntimeException e) {
+            Log.error("calendar_load_failed", "url", url, "error", e.getMessage());
+        }
+        return loaded;
+    }
+
+    private void publish(List<CalendarEvent> events) {
+        this.events = events;
+        for (Consumer<List<CalendarEvent>> listener : listeners) {
+            listener.accept(events);
+        }
+    }
+
+    private synchronized void schedule(Duration delay) {
+        if (stopped) {
+            return;
+        }
+        timer = Timers.WHEEL.schedule("calendar[" + url.hashCode() + "]", delay, REFRESH_SLACK, this::refreshAndReschedule);
+    }
+
+    private void refreshAndReschedule() {
+        Duration next;
+        try {
+            refresh();
+            // add randomness to interval to prevent drift synchronization (+/- 5s)
+            next = TimerWheel.jitter(plan(Instant.now()).delay(), REFRESH_JITTER);
+        } catch (InterruptedException e) {
+            Log.info("calendar_interrupted", "url", url);
+            return;
+        } catch (Exception e) {
+            Log.error("calendar_refresh_error", "url", url, "error", e.getMessage());
+            // backoff on error
+            next = refreshInterval.compareTo(ERROR_BACKOFF) < 0 ? refreshInterval : ERROR_BACKOFF;
+        }
+        schedule(next);
+    }
+
+    RefreshPolicy.Decision plan(Instant now) {
+        double hours = Math.max(Duration.between(lastDecisionAt, now).toMillis(), 60_000) / 3_600_000.0;
+        double queriesPerHour = queries.sumThenReset() / hours;
+        RefreshPolicy.Decision decision = policy.next(
+            new RefreshPolicy.Signals(refreshInterval, previousDelay, changeRate, queriesPerHour, untilNextEvent(now)), now);
+        previousDelay = decision.delay();
+        lastDecisionAt = now;
+        Log.info("calendar_refresh_planned", "url", url,
+            "delay_s", decision.delay().toSeconds(),
+            "reason", decision.reason(),
+            "change_rate", String.format("%.2f", changeRate),
+            "queries_per_h", Math.round(queriesPerHour));
+        return decision;
+    }
+
+    // null when nothing is upcoming
+    private Duration untilNextEvent(Instant now) {
+        for (CalendarEvent e : events) {
+            if (e.start().isAfter(now)) {
+                return Duration.between(now, e.start());
+            }
+        }
+        return null;
+    }
+
+    void observe(boolean changed) {
+        changeRate = RefreshPolicy.CHANGE_ALPHA * (changed ? 1 : 0) + (1 - RefreshPolicy.CHANGE_ALPHA) * changeRate;
+    }
+
+    private void restore(SnapshotStore.Snapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        this.events = snapshot.events();
+        this.snapshotHash = snapshot.bodyHash();
+        this.etag = snapshot.etag();
+        this.parsedAt = snapshot.savedAt();
+        this.loaded = true;
+        Log.info("calendar_restored", "url", url, "count", snapshot.events().size(),
+            "age_s", Duration.between(snapshot.savedAt(), Instant.now()).toSeconds());
+    }
+
+    private void refresh() throws IOException, InterruptedException {
+        REFRESH_LIMIT.acquire();
+        try {
+            fetch();
+        } finally {
+            REFRESH_LIMIT.release();
+        }
+    }
+
+    private void fetch() throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).GET();
+        String validator = etag;
+        Instant parsed = parsedAt;
+        if (validator != null && parsed != null && parsed.isAfter(Instant.now().minus(MAX_CONDITIONAL_AGE))) {
+            builder.header("If-None-Match", validator);
+        }
+        policy.recordFetch(Instant.now());
+        HttpResponse<InputStream> response = Http.CLIENT.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+
+        if (response.statusCode() == 304) {
+            response.body().close();
+            observe(false);
+            fetched = true;
+            loaded = true;
+            Log.info("calendar_not_modified", "url", url);
+            return;
+        }
+
+        // a failure, not a quiet fetch: it retries at ERROR_BACKOFF and tells the policy nothing
+        if (response.statusCode() / 100 != 2) {
+            response.body().close();
+            throw new IOException("status " + response.statusCode());
+        }
+
+        // hash the raw body on the way through so captures can name the snapshot they ran against
+        try (CheckedInputStream body = new CheckedInputStream(response.body(), new CRC32C())) {
+            List<CalendarEvent> events = CalendarFeed.parse(body, _ -> true);
+            body.transferTo(OutputStream.nullOutputStream());
+            int hash = (int) body.getChecksum().getValue();
+            Instant now = Instant.now();
+            String newEtag = response.headers().firstValue("ETag").orElse(null);
+            if (parsedAt != null) {
+                observe(hash != snapshotHash);
+            }
+            this.snapshotHash = hash;
+            this.etag = newEtag;
+            this.parsedAt = now;
+            publish(events);
+            this.fetched = true;
+            this.loaded = true;
+            Capture.snapshot(url, events.size(), hash);
+            Log.info("calendar_refreshed", "url", url, "count", events.size(), "views", listeners.size());
+            if (store != null) {
+                store.save(new SnapshotStore.Snapshot(url, now, hash, newEtag, events));
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.anirbanmu.wen.calendar;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+// the same query as CalendarFeed.query, across several feeds at once. each feed's events are
+// already in start order, so this is a k-way merge: a heap holds one cursor per feed and the
+// earliest head is taken each step. nothing is copied and it stops after maxUpcoming matches.
+public final class MergedQuery {
+    // ties go to the earlier feed, so pages of the same query split at the same place
+    private static final Comparator<Cursor> BY_START = Comparator.comparing(Cursor::head).thenComparingInt(c -> c.feed);
+
+    // feed: index into the feeds passed to query
+    public record Hit(int feed, CalendarEvent event) {
+    }
+
+    public record Result(Hit current, List<Hit> upcoming) {
+    }
+
+    private MergedQuery() {
+    }
+
+    // predicates[i] applies to feeds[i]
+    public static Result query(List<CalendarFeed> feeds, List<Predicate<CalendarEvent>> predicates, int maxUpcoming, Instant now) {
+        return query(feeds, predicates, maxUpcoming, now, now, Instant.MAX);
+    }
+
+    // restricted to events starting in [from, to), as CalendarFeed.query: each cursor starts at its
+    // feed's first event in the window and the merge ends at the first start past it
+    public static Result query(List<CalendarFeed> feeds, List<Predicate<CalendarEvent>> predicates, int maxUpcoming, Instant now,
+        Instant from, Instant to) {
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, feeds.size()), BY_START);
+        for (int i = 0; i < feeds.size(); i++) {
+            CalendarFeed feed = feeds.get(i);
+            feed.recordQuery();
+            List<CalendarEvent> events = feed.getEvents();
+            Cursor c = new Cursor(i, events);
+            c.pos = from.isAfter(now) ? CalendarFeed.firstStartingAt(events, from) : 0;
+            if (c.pos < events.size()) {
+                heap.add(c);
+            }
+        }
+
+        Hit current = null;
+        List<Hit> upcoming = new ArrayList<>(maxUpcoming);
+        while (!heap.isEmpty()) {
+            Cursor c = heap.poll();
+            CalendarEvent e = c.events.get(c.pos);
+            if (!e.start().isBefore(to)) {
+                break;
+            }
+            if (predicates.get(c.feed).test(e)) {
+                // are we currently inside this event? (start <= now < end)
+                if (!e.start().isAfter(now) && e.end().isAfter(now)) {
+                    current = new Hit(c.feed, e);
+                } else if (e.start().isAfter(now)) {
+                    upcoming.add(new Hit(c.feed, e));
+                    if (upcoming.size() >= maxUpcoming) {
+                        break;
+                    }
+                }
+            }
+            if (++c.pos < c.events.size()) {
+                heap.add(c);
+            }
+        }
+        return new Result(current, upcoming);
+    }
+
+    private static final class Cursor {
+        final int feed;
+        final List<CalendarEvent> events;
+        int pos;
+
+        Cursor(int feed, List<CalendarEvent> events) {
+            this.feed = feed;
+            this.events = events;
+        }
+
+        Instant head() {
+            return events.get(pos).start();
+        }
+    }
+}
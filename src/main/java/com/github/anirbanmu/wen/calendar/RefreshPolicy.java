@@ -0,0 +1,98 @@
+package com.github.anirbanmu.wen.calendar;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+
+// picks each feed's next refresh delay from how it has been behaving, within bounds set by its
+// configured refreshInterval (nominal / RANGE .. nominal * RANGE):
+//   volatile (body keeps changing) or popular (queried a lot) -> shorter, shorter still when
+//     the next event is close
+//   quiet (unchanged and unqueried)                         -> doubles the previous delay
+// a global fetches-per-hour budget caps the speedups: once spent, nothing refreshes faster
+// than its nominal interval until the hour rolls over.
+final class RefreshPolicy {
+    static final int DEFAULT_BUDGET_PER_HOUR = 30;
+    static final int RANGE = 4;
+    // adaptive floor; a nominal interval below this is still honoured as configured
+    private static final Duration MIN_INTERVAL = Duration.ofMinutes(5);
+    private static final Duration SOON = Duration.ofHours(24);
+    private static final Duration HOUR = Duration.ofHours(1);
+    // weight of the latest refresh in the change-rate average
+    static final double CHANGE_ALPHA = 0.3;
+
+    private final int budgetPerHour;
+    private final ArrayDeque<Instant> recentFetches = new ArrayDeque<>();
+
+    // signals a feed has gathered since its last decision
+    record Signals(Duration nominal, Duration previous, double changeRate, double queriesPerHour, Duration untilNextEvent) {
+    }
+
+    record Decision(Duration delay, String reason) {
+    }
+
+    RefreshPolicy(int budgetPerHour) {
+        this.budgetPerHour = budgetPerHour;
+    }
+
+    Decision next(Signals s, Instant now) {
+        Duration lo = min(s.nominal(), max(s.nominal().dividedBy(RANGE), MIN_INTERVAL));
+        Duration hi = s.nominal().multipliedBy(RANGE);
+
+        boolean isVolatile = s.changeRate() >= 0.25;
+        boolean popular = s.queriesPerHour() >= 1;
+        Duration delay;
+        String reason;
+        if (!isVolatile && !popular) {
+            delay = s.changeRate() < 0.05 ? s.previous().multipliedBy(2) : s.nominal();
+            reason = s.changeRate() < 0.05 ? "quiet" : "nominal";
+        } else {
+            // 1 change in 4 refreshes -> 0.81x ... every refresh changes -> 0.25x
+            double factor = 1 - 0.75 * s.changeRate();
+            // 10 queries/h -> 0.5x, 100/h -> 0.33x
+            factor /= 1 + Math.log10(Math.max(1, s.queriesPerHour()));
+            reason = isVolatile ? "volatile" : "popular";
+            if (s.untilNextEvent() != null && s.untilNextEvent().compareTo(SOON) < 0) {
+                factor *= 0.5;
+                reason = "soon";
+            }
+            delay = Duration.ofMillis((long) (s.nominal().toMillis() * factor));
+        }
+        delay = max(lo, min(hi, delay));
+
+        if (delay.compareTo(s.nominal()) < 0 && !withinBudget(now)) {
+            return new Decision(s.nominal(), "budget");
+        }
+        return new Decision(delay, reason);
+    }
+
+    // every fetch counts against the budget, including nominal ones
+    synchronized void recordFetch(Instant now) {
+        recentFetches.addLast(now);
+        expire(now);
+    }
+
+    synchronized int fetchesLastHour(Instant now) {
+        expire(now);
+        return recentFetches.size();
+    }
+
+    private synchronized boolean withinBudget(Instant now) {
+        return fetchesLastHour(now) < budgetPerHour;
+    }
+
+    private void expire(Instant now) {
+        Instant cutoff = now.minus(HOUR);
+        while (!recentFetches.isEmpty() && recentFetches.peekFirst().isBefore(cutoff)) {
+            recentFetches.removeFirst();
+        }
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
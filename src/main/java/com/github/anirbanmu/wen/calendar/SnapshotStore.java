@@ -0,0 +1,199 @@
+package com.github.anirbanmu.wen.calendar;
+
+import com.github.anirbanmu.wen.log.Log;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+// parsed feed snapshots on disk (WEN_STATE_DIR) so a restarted bot can answer before its first
+// fetch. one file per feed key, replaced atomically via temp file + rename.
+//
+// file: int magic, short version, long saved_at_ms, utf key, int body_crc32c, utf etag,
+//       int count, count * event, then int crc32c of everything before it
+// event: long start_ms, long end_ms, str summary, str location, str description,
+//        int n, n * str category          (str = int utf-8 length or -1 for null, bytes)
+public final class SnapshotStore {
+    static final int MAGIC = 0x57534E50; // "WSNP"
+    static final short VERSION = 1;
+
+    private final Path dir;
+
+    // what a snapshot remembers about the body it was parsed from
+    public record Snapshot(String key, Instant savedAt, int bodyHash, String etag, List<CalendarEvent> events) {
+    }
+
+    private SnapshotStore(Path dir) {
+        this.dir = dir;
+    }
+
+    public static SnapshotStore open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        return new SnapshotStore(dir);
+    }
+
+    // null when absent, unreadable, corrupt or written for a different key
+    public Snapshot load(String key) {
+        Path file = file(key);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Snapshot snapshot = decode(buf);
+            if (!snapshot.key().equals(key)) {
+                Log.warn("snapshot.key_mismatch", "file", file.getFileName().toString());
+                return null;
+            }
+            return snapshot;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            Log.warn("snapshot.unreadable", "file", file.getFileName().toString(), "error", e.getMessage());
+            return null;
+        }
+    }
+
+    public void save(Snapshot snapshot) {
+        Path file = file(snapshot.key());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            byte[] bytes = encode(snapshot);
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buf = ByteBuffer.wrap(bytes);
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Log.error("snapshot.save_failed", e, "file", file.getFileName().toString());
+        }
+    }
+
+    Path file(String key) {
+        CRC32C crc = new CRC32C();
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        crc.update(bytes);
+        // crc of the key plus its length; the key itself is checked on load
+        return dir.resolve(HexFormat.of().toHexDigits((int) crc.getValue()) + "-" + bytes.length + ".snap");
+    }
+
+    static byte[] encode(Snapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + snapshot.events().size() * 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(snapshot.savedAt().toEpochMilli());
+        writeString(out, snapshot.key());
+        out.writeInt(snapshot.bodyHash());
+        writeString(out, snapshot.etag());
+        out.writeInt(snapshot.events().size());
+        for (CalendarEvent e : snapshot.events()) {
+            out.writeLong(e.start().toEpochMilli());
+            out.writeLong(e.end().toEpochMilli());
+            writeString(out, e.summary());
+            writeString(out, e.location());
+            writeString(out, e.description());
+            List<String> categories = e.categories() != null ? e.categories() : List.of();
+            out.writeInt(categories.size());
+            for (String c : categories) {
+                writeString(out, c);
+            }
+        }
+        out.flush();
+
+        CRC32C crc = new CRC32C();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    static Snapshot decode(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < 10) {
+            throw new IOException("truncated");
+        }
+        int bodyEnd = buf.limit() - 4;
+        CRC32C crc = new CRC32C();
+        crc.update(buf.slice(0, bodyEnd));
+        if ((int) crc.getValue() != buf.getInt(bodyEnd)) {
+            throw new IOException("checksum mismatch");
+        }
+
+        try {
+            if (buf.getInt() != MAGIC) {
+                throw new IOException("bad magic");
+            }
+            short version = buf.getShort();
+            if (version != VERSION) {
+                throw new IOException("unsupported version " + version);
+            }
+            Instant savedAt = Instant.ofEpochMilli(buf.getLong());
+            String key = readString(buf);
+            int bodyHash = buf.getInt();
+            String etag = readString(buf);
+            int count = buf.getInt();
+
+            List<CalendarEvent> events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Instant start = Instant.ofEpochMilli(buf.getLong());
+                Instant end = Instant.ofEpochMilli(buf.getLong());
+                String summary = readString(buf);
+                String location = readString(buf);
+                String description = readString(buf);
+                int n = buf.getInt();
+                List<String> categories = new ArrayList<>(n);
+                for (int c = 0; c < n; c++) {
+                    categories.add(readString(buf));
+                }
+                events.add(CalendarEvent.create(summary, start, end, location, description, List.copyOf(categories)));
+            }
+            if (buf.position() != bodyEnd) {
+                throw new IOException("trailing bytes");
+            }
+            return new Snapshot(key, savedAt, bodyHash, etag, List.copyOf(events));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("malformed: " + e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0) {
+            return null;
+        }
+        if (len > buf.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
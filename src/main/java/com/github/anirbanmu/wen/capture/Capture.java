@@ -0,0 +1,199 @@
+package com.github.anirbanmu.wen.capture;
+
+import com.github.anirbanmu.wen.log.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.regex.Pattern;
+
+// opt-in flight recorder (WEN_CAPTURE_PATH). appends raw interaction payloads and calendar
+// snapshot hashes to a compact binary file that Replay can run offline.
+//
+// file: int magic, short version, then records until eof
+//   interaction: byte 1, long at_ms, int length, utf-8 payload
+//   snapshot:    byte 2, long at_ms, utf url, int events, int crc32c
+// a torn final record (crash mid-write) is ignored on read.
+public final class Capture {
+    static final int MAGIC = 0x57454E43; // "WENC"
+    static final short VERSION = 1;
+    private static final byte KIND_INTERACTION = 1;
+    private static final byte KIND_SNAPSHOT = 2;
+
+    // interaction tokens are live credentials for 15 minutes; never write them to disk
+    private static final Pattern TOKEN = Pattern.compile("(\"token\"\\s*:\\s*\")[^\"]*(\")");
+
+    private static volatile Capture active;
+
+    private final Path path;
+    private final DataOutputStream out;
+    private final BlockingQueue<CaptureRecord> queue = new ArrayBlockingQueue<>(1024);
+
+    private Capture(Path path, DataOutputStream out) {
+        this.path = path;
+        this.out = out;
+    }
+
+    public static void install(Path path) {
+        try {
+            Capture capture = open(path);
+            Thread drain = Thread.ofVirtual().name("capture-drain").start(capture::drainLoop);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                drain.interrupt();
+                try {
+                    drain.join(1000);
+                } catch (InterruptedException e) {
+                }
+            }));
+            active = capture;
+            Log.info("capture.installed", "path", path.toAbsolutePath().toString());
+        } catch (IOException e) {
+            Log.error("capture.install_failed", e, "path", path.toString());
+        }
+    }
+
+    // called on the gateway listener thread: enqueue only, redaction and io happen on drain
+    public static void interaction(String raw) {
+        Capture capture = active;
+        if (capture != null) {
+            capture.offer(new CaptureRecord.Interaction(System.currentTimeMillis(), raw));
+        }
+    }
+
+    public static void snapshot(String url, int events, int hash) {
+        Capture capture = active;
+        if (capture != null) {
+            capture.offer(new CaptureRecord.Snapshot(System.currentTimeMillis(), url, events, hash));
+        }
+    }
+
+    private void offer(CaptureRecord record) {
+        if (!queue.offer(record)) {
+            Log.warn("capture.dropped", "kind", record.getClass().getSimpleName());
+        }
+    }
+
+    // opens for append, writing the header only into a new/empty file
+    static Capture open(Path path) throws IOException {
+        boolean fresh = !Files.exists(path) || Files.size(path) == 0;
+        if (!fresh) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+                checkHeader(in, path);
+            }
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        if (fresh) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.flush();
+        }
+        return new Capture(path, out);
+    }
+
+    private void drainLoop() {
+        List<CaptureRecord> batch = new ArrayList<>(64);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, 63);
+                    write(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (IOException e) {
+                    Log.error("capture.write_failed", e, "path", path.toString());
+                    batch.clear();
+                }
+            }
+        } finally {
+            try {
+                queue.drainTo(batch);
+                write(batch);
+                out.close();
+            } catch (IOException e) {
+                // shutting down
+            }
+        }
+    }
+
+    // flushed per batch so a crash loses at most the records still queued
+    void write(List<CaptureRecord> batch) throws IOException {
+        for (CaptureRecord record : batch) {
+            switch (record) {
+                case CaptureRecord.Interaction i -> {
+                    byte[] payload = redact(i.payload()).getBytes(StandardCharsets.UTF_8);
+                    out.writeByte(KIND_INTERACTION);
+                    out.writeLong(i.atMillis());
+                    out.writeInt(payload.length);
+                    out.write(payload);
+                }
+                case CaptureRecord.Snapshot s -> {
+                    out.writeByte(KIND_SNAPSHOT);
+                    out.writeLong(s.atMillis());
+                    out.writeUTF(s.url());
+                    out.writeInt(s.events());
+                    out.writeInt(s.hash());
+                }
+            }
+        }
+        out.flush();
+        batch.clear();
+    }
+
+    void close() throws IOException {
+        out.close();
+    }
+
+    static String redact(String raw) {
+        return TOKEN.matcher(raw).replaceAll("$1REDACTED$2");
+    }
+
+    public static List<CaptureRecord> read(Path path) throws IOException {
+        List<CaptureRecord> records = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            checkHeader(in, path);
+            while (true) {
+                int kind = in.read();
+                if (kind < 0) {
+                    break;
+                }
+                try {
+                    long at = in.readLong();
+                    switch (kind) {
+                        case KIND_INTERACTION -> {
+                            byte[] payload = new byte[in.readInt()];
+                            in.readFully(payload);
+                            records.add(new CaptureRecord.Interaction(at, new String(payload, StandardCharsets.UTF_8)));
+                        }
+                        case KIND_SNAPSHOT -> records.add(new CaptureRecord.Snapshot(at, in.readUTF(), in.readInt(), in.readInt()));
+                        default -> throw new IOException("unknown record kind " + kind + " in " + path);
+                    }
+                } catch (EOFException e) {
+                    break; // torn tail
+                }
+            }
+        }
+        return records;
+    }
+
+    private static void checkHeader(DataInputStream in, Path path) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a capture file: " + path);
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("unsupported capture version " + version + ": " + path);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.anirbanmu.wen.capture;
+
+// one entry in a capture file. timestamps are wall-clock epoch millis at arrival.
+public sealed interface CaptureRecord {
+    long atMillis();
+
+    // raw INTERACTION_CREATE gateway message, tokens redacted
+    record Interaction(long atMillis, String payload) implements CaptureRecord {
+    }
+
+    // a calendar refresh: crc32c of the raw ics body and how many events it produced
+    record Snapshot(long atMillis, String url, int events, int hash) implements CaptureRecord {
+    }
+}
@@ -0,0 +1,203 @@
+package com.github.anirbanmu.wen.capture;
+
+import com.github.anirbanmu.wen.Processor;
+import com.github.anirbanmu.wen.calendar.CalendarEvent;
+import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.config.ConfigLoader;
+import com.github.anirbanmu.wen.config.WenConfig;
+import com.github.anirbanmu.wen.discord.json.GatewayEvent;
+import com.github.anirbanmu.wen.discord.json.GatewayEventParser;
+import com.github.anirbanmu.wen.discord.json.Interaction;
+import com.github.anirbanmu.wen.discord.json.InteractionResponse;
+import com.github.anirbanmu.wen.util.Json;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// replays a capture through GatewayEventParser -> Processor -> response serialization on this
+// thread, with the clock pinned to each interaction's arrival time. no network.
+//
+// java -cp wen.jar com.github.anirbanmu.wen.capture.Replay <capture> <config.toml> <ics-dir> [passes]
+//
+// ics-dir holds one saved body per calendar, named <keyword>.ics for any of its keywords.
+// earlier passes warm the jit; the last one is reported.
+public final class Replay {
+    private Replay() {
+    }
+
+    public record Sample(long atMillis, int type, String query, long cpuNanos, long allocBytes, int responseBytes) {
+    }
+
+    // mutable clock so one Processor can be walked through the capture's timeline
+    static final class ReplayClock extends Clock {
+        private volatile Instant now;
+
+        ReplayClock(Instant start) {
+            this.now = start;
+        }
+
+        void set(Instant instant) {
+            now = instant;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    static List<Sample> run(List<CaptureRecord.Interaction> interactions, Processor processor, ReplayClock clock, int passes) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        GatewayEventParser parser = new GatewayEventParser();
+        ByteArrayOutputStream sink = new ByteArrayOutputStream(4096);
+        List<Sample> samples = new ArrayList<>(interactions.size());
+
+        for (int pass = 0; pass < passes; pass++) {
+            samples.clear();
+            for (CaptureRecord.Interaction record : interactions) {
+                clock.set(Instant.ofEpochMilli(record.atMillis()));
+                sink.reset();
+
+                long cpu = threads.getCurrentThreadCpuTime();
+                long alloc = threads.getCurrentThreadAllocatedBytes();
+
+                GatewayEvent event = parser.parse(record.payload()).event();
+                Interaction interaction = event instanceof GatewayEvent.InteractionCreate ic ? ic.interaction() : null;
+                InteractionResponse response = interaction != null ? processor.process(interaction) : null;
+                if (response != null) {
+                    Json.DSL.serialize(response, sink);
+                }
+
+                long cpuNanos = threads.getCurrentThreadCpuTime() - cpu;
+                long allocBytes = threads.getCurrentThreadAllocatedBytes() - alloc;
+                samples.add(new Sample(record.atMillis(), interaction != null ? interaction.type() : -1, query(interaction), cpuNanos, allocBytes, sink.size()));
+            }
+        }
+        return samples;
+    }
+
+    private static String query(Interaction interaction) {
+        if (interaction == null || interaction.data() == null || interaction.data().options() == null) {
+            return "";
+        }
+        for (Interaction.Option o : interaction.data().options()) {
+            if (o.value() != null) {
+                return o.value();
+            }
+        }
+        return "";
+    }
+
+    // the snapshot in use when the first interaction arrived, else the earliest one seen
+    private static Map<String, CaptureRecord.Snapshot> snapshotsAt(List<CaptureRecord> records, long atMillis) {
+        Map<String, CaptureRecord.Snapshot> byUrl = new HashMap<>();
+        for (CaptureRecord record : records) {
+            if (record instanceof CaptureRecord.Snapshot s && (s.atMillis() <= atMillis || !byUrl.containsKey(s.url()))) {
+                byUrl.put(s.url(), s);
+            }
+        }
+        return byUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: Replay <capture> <config.toml> <ics-dir> [passes]");
+            System.exit(2);
+        }
+        List<CaptureRecord> records = Capture.read(Path.of(args[0]));
+        WenConfig config = ConfigLoader.load(Path.of(args[1]));
+        Path icsDir = Path.of(args[2]);
+        int passes = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        List<CaptureRecord.Interaction> interactions = new ArrayList<>();
+        for (CaptureRecord record : records) {
+            if (record instanceof CaptureRecord.Interaction i) {
+                interactions.add(i);
+            }
+        }
+        if (interactions.isEmpty()) {
+            System.out.println("no interactions in " + args[0]);
+            return;
+        }
+
+        Instant start = Instant.ofEpochMilli(interactions.getFirst().atMillis());
+        Map<String, CaptureRecord.Snapshot> captured = snapshotsAt(records, start.toEpochMilli());
+
+        Map<String, CalendarFeed> feeds = new HashMap<>();
+        Map<String, Calendar> configs = new HashMap<>();
+        for (Calendar cal : config.calendars()) {
+            Path ics = null;
+            for (String keyword : cal.keywords()) {
+                Path candidate = icsDir.resolve(keyword + ".ics");
+                if (Files.exists(candidate)) {
+                    ics = candidate;
+                    break;
+                }
+            }
+
+            Predicate<CalendarEvent> filter = cal.prefilter() != null ? cal.prefilter().toPredicate() : _ -> true;
+            CalendarFeed feed = ics != null ? CalendarFeed.fromSnapshot(ics, filter, start) : CalendarFeed.fixed(List.of());
+
+            CaptureRecord.Snapshot snap = captured.get(cal.url());
+            String status = ics == null ? "missing"
+                : snap == null ? "not captured"
+                : snap.hash() == feed.snapshotHash() ? "match"
+                : "MISMATCH";
+            System.out.printf("snapshot %-24s %-12s events=%d%n", cal.keywords().getFirst(), status, feed.getEvents().size());
+
+            for (String keyword : cal.keywords()) {
+                feeds.put(keyword, feed);
+                configs.put(keyword, cal);
+            }
+        }
+
+        ReplayClock clock = new ReplayClock(start);
+        List<Sample> samples = run(interactions, new Processor(configs, feeds, clock), clock, passes);
+
+        for (Sample s : samples) {
+            System.out.printf("%s type=%d cpu_us=%d alloc_b=%d resp_b=%d query=%s%n",
+                Instant.ofEpochMilli(s.atMillis()), s.type(), s.cpuNanos() / 1000, s.allocBytes(), s.responseBytes(), s.query());
+        }
+        summarize("command", samples, Interaction.TYPE_APPLICATION_COMMAND);
+        summarize("autocomplete", samples, Interaction.TYPE_APPLICATION_COMMAND_AUTOCOMPLETE);
+    }
+
+    private static void summarize(String label, List<Sample> samples, int type) {
+        long[] cpu = samples.stream().filter(s -> s.type() == type).mapToLong(Sample::cpuNanos).sorted().toArray();
+        long[] alloc = samples.stream().filter(s -> s.type() == type).mapToLong(Sample::allocBytes).sorted().toArray();
+        if (cpu.length == 0) {
+            return;
+        }
+        System.out.printf("%-12s n=%d cpu_us p50=%d p99=%d max=%d alloc_b p50=%d p99=%d max=%d total_kb=%d%n",
+            label, cpu.length,
+            percentile(cpu, 50) / 1000, percentile(cpu, 99) / 1000, cpu[cpu.length - 1] / 1000,
+            percentile(alloc, 50), percentile(alloc, 99), alloc[alloc.length - 1], Arrays.stream(alloc).sum() >> 10);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int idx = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.clamp(idx, 0, sorted.length - 1)];
+    }
+}
@@ -44,7 +44,47 @@ public class ConfigLoader {
                 calendars.add(parseCalendar(table));
             }
         }
-        return new WenConfig(List.copyOf(calendars));
+
+        List<VirtualCalendar> virtualCalendars = new ArrayList<>();
+        if (result.isArray("virtual")) {
+            for (Object obj : result.getArray("virtual").toList()) {
+                if (obj instanceof TomlTable table) {
+                    virtualCalendars.add(parseVirtualCalendar(table, calendars));
+                }
+            }
+        }
+        return new WenConfig(List.copyOf(calendars), List.copyOf(virtualCalendars));
+    }
+
+    private static VirtualCalendar parseVirtualCalendar(TomlTable table, List<Calendar> calendars) {
+        String name = table.getString("name");
+        if (name == null || name.isBlank()) {
+            throw new ConfigException("Virtual calendar missing required 'name' field.");
+        }
+        List<String> keywords = strings(table, "keywords");
+        if (keywords.isEmpty()) {
+            throw new ConfigException("Virtual calendar '" + name + "' must have at least one keyword.");
+        }
+        List<String> include = strings(table, "include");
+        if (include.size() < 2) {
+            throw new ConfigException("Virtual calendar '" + name + "' must include at least two calendars.");
+        }
+        for (String keyword : include) {
+            if (calendars.stream().noneMatch(c -> c.keywords().contains(keyword))) {
+                throw new ConfigException("Virtual calendar '" + name + "' includes unknown calendar '" + keyword + "'.");
+            }
+        }
+        return new VirtualCalendar(keywords, name, include);
+    }
+
+    private static List<String> strings(TomlTable table, String key) {
+        List<String> out = new ArrayList<>();
+        if (table.isArray(key)) {
+            for (Object o : table.getArray(key).toList()) {
+                out.add(o.toString());
+            }
+        }
+        return List.copyOf(out);
     }
 
     private static Calendar parseCalendar(TomlTable table) {
@@ -0,0 +1,87 @@
+package com.github.anirbanmu.wen.config;
+
+import com.github.anirbanmu.wen.log.Log;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+
+// PUT /config on the health server: replaces config.toml with the request body, for deployments
+// where the file isn't mounted (the image writes it once from WEN_CONFIG_B64, and nothing else can
+// reach it). the body is parsed first, so a broken config is refused with the parser's message
+// rather than logged by the watcher; one that parses is written atomically and ConfigWatcher applies
+// it like any other edit. needs "Authorization: Bearer <token>".
+public final class ConfigUpload {
+    public static final String PATH = "/config";
+    static final int MAX_BYTES = 256 * 1024;
+
+    private ConfigUpload() {
+    }
+
+    public static HttpHandler handler(Path config, String token) {
+        byte[] expected = ("Bearer " + token).getBytes(StandardCharsets.UTF_8);
+        return exchange -> {
+            try {
+                serve(config, expected, exchange);
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private static void serve(Path config, byte[] expected, HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("PUT")) {
+            exchange.getResponseHeaders().set("Allow", "PUT");
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        String auth = exchange.getRequestHeaders().getFirst("Authorization");
+        // constant time, so the token can't be guessed a byte at a time
+        if (auth == null || !MessageDigest.isEqual(expected, auth.getBytes(StandardCharsets.UTF_8))) {
+            Log.warn("config.upload_unauthorized", "remote", String.valueOf(exchange.getRemoteAddress()));
+            exchange.sendResponseHeaders(401, -1);
+            return;
+        }
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BYTES + 1);
+        }
+        if (body.length > MAX_BYTES) {
+            exchange.sendResponseHeaders(413, -1);
+            return;
+        }
+        try {
+            ConfigLoader.load(new String(body, StandardCharsets.UTF_8));
+        } catch (ConfigException e) {
+            Log.warn("config.upload_rejected", "error", e.getMessage());
+            respond(exchange, 400, e.getMessage());
+            return;
+        }
+        write(config, body);
+        Log.info("config.uploaded", "bytes", body.length);
+        // applied by the watcher once the file settles
+        respond(exchange, 202, "accepted");
+    }
+
+    private static void write(Path config, byte[] body) throws IOException {
+        Path tmp = config.resolveSibling(config.getFileName() + ".tmp");
+        Files.write(tmp, body);
+        try {
+            Files.move(tmp, config, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, config, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
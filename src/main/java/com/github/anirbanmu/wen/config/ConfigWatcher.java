@@ -0,0 +1,108 @@
+package com.github.anirbanmu.wen.config;
+
+import com.github.anirbanmu.wen.log.Log;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// reloads the config file when it changes on disk and hands each config that parses and differs
+// from the last one to onChange, on the watcher's own thread. a config that fails to parse is
+// logged and the running one stays.
+public final class ConfigWatcher implements AutoCloseable {
+    // editors and deploy scripts write in several steps; wait for the file to settle
+    static final Duration SETTLE = Duration.ofMillis(300);
+
+    private final Path path;
+    private final Consumer<WenConfig> onChange;
+    private final WatchService watcher;
+    private final Thread thread;
+    private volatile WenConfig current;
+
+    private ConfigWatcher(Path path, WenConfig current, Consumer<WenConfig> onChange) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.current = current;
+        this.onChange = onChange;
+        this.watcher = FileSystems.getDefault().newWatchService();
+        // the directory, not the file: replacing the file (write + rename) would orphan a file watch
+        this.path.getParent().register(watcher,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = Thread.ofVirtual().name("config-watch").unstarted(this::run);
+    }
+
+    // current is the config already running, so an unchanged rewrite is a no-op
+    public static ConfigWatcher start(Path path, WenConfig current, Consumer<WenConfig> onChange) throws IOException {
+        ConfigWatcher w = new ConfigWatcher(path, current, onChange);
+        w.thread.start();
+        Log.info("config.watching", "path", w.path.toString());
+        return w;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean touched = touched(key);
+                while (touched) {
+                    // anything more within the settle window folds into this reload
+                    WatchKey more = watcher.poll(SETTLE.toMillis(), TimeUnit.MILLISECONDS);
+                    if (more == null) {
+                        break;
+                    }
+                    touched(more);
+                }
+                if (touched) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private boolean touched(WatchKey key) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || path.getFileName().equals(event.context())) {
+                touched = true;
+            }
+        }
+        key.reset();
+        return touched;
+    }
+
+    void reload() {
+        WenConfig next;
+        try {
+            next = ConfigLoader.load(path);
+        } catch (IOException | ConfigException e) {
+            Log.error("config.reload_failed", "path", path.toString(), "error", e.getMessage());
+            return;
+        }
+        if (next.equals(current)) {
+            Log.info("config.unchanged", "path", path.toString());
+            return;
+        }
+        current = next;
+        Log.info("config.reloaded", "calendars", next.calendars().size());
+        try {
+            onChange.accept(next);
+        } catch (RuntimeException e) {
+            Log.error("config.apply_failed", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+        thread.interrupt();
+    }
+}
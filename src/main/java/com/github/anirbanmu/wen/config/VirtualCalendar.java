@@ -0,0 +1,7 @@
+package com.github.anirbanmu.wen.config;
+
+import java.util.List;
+
+// a calendar made of others: include lists keywords of real calendars, whose events are merged
+public record VirtualCalendar(List<String> keywords, String name, List<String> include) {
+}
@@ -2,5 +2,8 @@ package com.github.anirbanmu.wen.config;
 
 import java.util.List;
 
-public record WenConfig(List<Calendar> calendars) {
+public record WenConfig(List<Calendar> calendars, List<VirtualCalendar> virtualCalendars) {
+    public WenConfig(List<Calendar> calendars) {
+        this(calendars, List.of());
+    }
 }
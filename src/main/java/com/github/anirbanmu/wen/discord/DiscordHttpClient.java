@@ -2,9 +2,11 @@ package com.github.anirbanmu.wen.discord;
 
 import com.github.anirbanmu.wen.discord.json.Command;
 import com.github.anirbanmu.wen.discord.json.InteractionResponse;
+import com.github.anirbanmu.wen.discord.json.Message;
 import com.github.anirbanmu.wen.log.Log;
 import com.github.anirbanmu.wen.util.Http;
 import com.github.anirbanmu.wen.util.Json;
+import com.github.anirbanmu.wen.util.Timers;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
@@ -12,67 +14,70 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.List;
-import java.util.concurrent.Semaphore;
 
 public class DiscordHttpClient {
-    private static final String BASE_URL = "https://discord.com/api/v10";
+    public static final String DEFAULT_BASE_URL = "https://discord.com/api/v10";
     private static final int MAX_BURST = 45;
-    private static final int REFILL_MS = 22; // ~45 req/s
+    private static final long REFILL_NANOS = 22_000_000; // ~45 req/s
     private static final Duration REQUEST_TIMEOUT = Duration.ofMillis(2500);
-    private static final long KEEPALIVE_INTERVAL_MS = 270_000; // 4.5 min
-
-    private static final HttpRequest KEEPALIVE_REQUEST = HttpRequest.newBuilder()
-        .uri(URI.create(BASE_URL + "/gateway"))
-        .timeout(REQUEST_TIMEOUT)
-        .GET()
-        .build();
+    private static final Duration KEEPALIVE_INTERVAL = Duration.ofSeconds(270); // 4.5 min
+    private static final Duration KEEPALIVE_SLACK = Duration.ofSeconds(5);
 
     private final String token;
-    private final Semaphore limiter;
+    private final String baseUrl;
+    private final HttpRequest keepaliveRequest;
+    // guarded by this
+    private double tokens = MAX_BURST;
+    private long refilledAt;
 
     public DiscordHttpClient(String token) {
+        this(token, DEFAULT_BASE_URL);
+    }
+
+    // baseUrl without trailing slash, e.g. a local stand-in for offline load testing
+    public DiscordHttpClient(String token, String baseUrl) {
         this.token = token;
-        this.limiter = new Semaphore(MAX_BURST);
-        startRefillThread();
-        startKeepaliveThread();
+        this.baseUrl = baseUrl;
+        this.keepaliveRequest = HttpRequest.newBuilder()
+            .uri(URI.create(baseUrl + "/gateway"))
+            .timeout(REQUEST_TIMEOUT)
+            .GET()
+            .build();
+        this.refilledAt = System.nanoTime();
+        startKeepalive();
     }
 
-    private void startRefillThread() {
-        Thread.ofVirtual().name("rate-limiter-refill").start(() -> {
-            while (true) {
-                try {
-                    Thread.sleep(REFILL_MS);
-                    if (limiter.availablePermits() < MAX_BURST) {
-                        limiter.release();
-                    }
-                } catch (InterruptedException e) {
-                    // JVM shutting down or thread interrupted
-                    break;
-                } catch (Exception e) {
-                    Log.error("rate_limiter.refill_error", e);
-                }
+    private void startKeepalive() {
+        Timers.WHEEL.repeat("http-keepalive", KEEPALIVE_INTERVAL, KEEPALIVE_SLACK, () -> {
+            try {
+                int status = Http.CLIENT.send(keepaliveRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+                Log.info("http.keepalive", "status", status);
+            } catch (Exception e) {
+                // keepalive failure is non-fatal
             }
         });
     }
 
-    private void startKeepaliveThread() {
-        Thread.ofVirtual().name("http-keepalive").start(() -> {
-            while (true) {
-                try {
-                    Thread.sleep(KEEPALIVE_INTERVAL_MS);
-                    int status = Http.CLIENT.send(KEEPALIVE_REQUEST, HttpResponse.BodyHandlers.discarding()).statusCode();
-                    Log.info("http.keepalive", "status", status);
-                } catch (InterruptedException e) {
-                    break;
-                } catch (Exception e) {
-                    // keepalive failure is non-fatal
-                }
-            }
-        });
+    // lazy token bucket: tokens are topped up from the time elapsed since the last request
+    // rather than by a refill thread. a caller that finds the bucket empty reserves the next
+    // token anyway (the balance goes negative) and sleeps until it is due, so waiters queue up
+    // one REFILL apart
+    private void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(MAX_BURST, tokens + (double) (now - refilledAt) / REFILL_NANOS);
+            refilledAt = now;
+            tokens -= 1;
+            waitNanos = tokens < 0 ? (long) (-tokens * REFILL_NANOS) : 0;
+        }
+        if (waitNanos > 0) {
+            Thread.sleep(Duration.ofNanos(waitNanos));
+        }
     }
 
     public DiscordResult<Void> registerCommands(String applicationId, List<Command> commands) {
-        String url = BASE_URL + "/applications/" + applicationId + "/commands";
+        String url = baseUrl + "/applications/" + applicationId + "/commands";
         Log.info("http.register_commands", "url", url, "count", commands.size());
 
         return sendRequest(HttpRequest.newBuilder()
@@ -83,7 +88,7 @@ public class DiscordHttpClient {
     }
 
     public DiscordResult<Void> respondToInteraction(String interactionId, String interactionToken, InteractionResponse response) {
-        String url = BASE_URL + "/interactions/" + interactionId + "/" + interactionToken + "/callback";
+        String url = baseUrl + "/interactions/" + interactionId + "/" + interactionToken + "/callback";
 
         return sendRequest(HttpRequest.newBuilder()
             .uri(URI.create(url))
@@ -91,6 +96,16 @@ public class DiscordHttpClient {
             .POST(bodyPublisher(response)));
     }
 
+    public DiscordResult<Void> createMessage(String channelId, Message message) {
+        String url = baseUrl + "/channels/" + channelId + "/messages";
+
+        return sendRequest(HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .header("Authorization", "Bot " + token)
+            .header("Content-Type", "application/json")
+            .POST(bodyPublisher(message)));
+    }
+
     private HttpRequest.BodyPublisher bodyPublisher(Object data) {
         try {
             ByteArrayOutputStream os = new ByteArrayOutputStream();
@@ -103,7 +118,7 @@ public class DiscordHttpClient {
 
     private DiscordResult<Void> sendRequest(HttpRequest.Builder builder) {
         try {
-            limiter.acquire();
+            acquire();
             HttpResponse<Void> response = Http.CLIENT.send(
                 builder.timeout(REQUEST_TIMEOUT).build(),
                 HttpResponse.BodyHandlers.discarding());
@@ -1,5 +1,6 @@
 package com.github.anirbanmu.wen.discord;
 
+import com.github.anirbanmu.wen.capture.Capture;
 import com.github.anirbanmu.wen.discord.json.GatewayEvent;
 import com.github.anirbanmu.wen.discord.json.GatewayEventParser;
 import com.github.anirbanmu.wen.discord.json.GatewayEventParser.ParseResult;
@@ -8,10 +9,13 @@ import com.github.anirbanmu.wen.discord.json.Interaction;
 import com.github.anirbanmu.wen.log.Log;
 import com.github.anirbanmu.wen.util.Http;
 import com.github.anirbanmu.wen.util.Json;
+import com.github.anirbanmu.wen.util.TimerWheel;
+import com.github.anirbanmu.wen.util.Timers;
 import java.io.ByteArrayOutputStream;
 import java.net.URI;
 import java.net.http.WebSocket;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutorService;
@@ -36,7 +40,7 @@ public class Gateway {
     private volatile int lastSequence = -1;
 
     private volatile WebSocket socket;
-    private volatile Thread heartbeatThread;
+    private volatile TimerWheel.Timeout heartbeatTimer;
     private volatile long heartbeatInterval;
     private volatile long lastHeartbeatSentAt;
     private volatile long lastAckAt = System.nanoTime(); // init to now so first heartbeat check doesn't false-positive
@@ -113,9 +117,9 @@ public class Gateway {
             resumeGatewayUrl = null;
         }
 
-        Thread hb = heartbeatThread;
+        TimerWheel.Timeout hb = heartbeatTimer;
         if (hb != null) {
-            hb.interrupt();
+            hb.cancel();
         }
 
         WebSocket ws = socket;
@@ -138,6 +142,12 @@ public class Gateway {
         try {
             ParseResult result = parser.parse(raw);
 
+            // a dispatch we drop while closing must not advance the resume sequence,
+            // otherwise the resumed session won't replay it and it is lost
+            if (closed.get()) {
+                return;
+            }
+
             if (result.sequence() != null) {
                 int seq = result.sequence();
                 if (seq > lastSequence) {
@@ -175,10 +185,8 @@ public class Gateway {
                     Log.info("gateway.resumed");
                 }
                 case GatewayEvent.InteractionCreate ic -> {
-                    if (closed.get()) {
-                        return; // shutting down
-                    }
                     Interaction interaction = ic.interaction();
+                    Capture.interaction(raw);
                     handlerExecutor.execute(() -> interactionHandler.accept(interaction));
                 }
                 case GatewayEvent.HeartbeatRequest _ -> sendHeartbeat();
@@ -261,28 +269,35 @@ public class Gateway {
     }
 
     private void startHeartbeat() {
-        heartbeatThread = Thread.ofVirtual().name("heartbeat").start(() -> {
-            try {
-                // initial jitter per discord docs
-                Thread.sleep((long) (heartbeatInterval * Math.random()));
+        // initial jitter per discord docs
+        scheduleHeartbeat((long) (heartbeatInterval * Math.random()), false);
+    }
 
-                while (!closed.get() && !Thread.currentThread().isInterrupted()) {
-                    sendHeartbeat();
-                    Thread.sleep(heartbeatInterval);
+    private void scheduleHeartbeat(long delayMs, boolean expectAck) {
+        if (closed.get()) {
+            return;
+        }
+        heartbeatTimer = Timers.WHEEL.schedule("heartbeat", Duration.ofMillis(delayMs), () -> heartbeat(expectAck));
+    }
 
-                    if (lastAckAt < lastHeartbeatSentAt) {
-                        Log.warn("gateway.heartbeat_timeout");
-                        closeForReconnect();
-                        return;
-                    }
-                }
-            } catch (InterruptedException ex) {
-                // shutdown
-            } catch (Exception ex) {
-                Log.error("gateway.heartbeat_error", ex);
+    // one beat: give up on the connection if the previous one was never acked, else send and
+    // schedule the next
+    private void heartbeat(boolean expectAck) {
+        if (closed.get()) {
+            return;
+        }
+        try {
+            if (expectAck && lastAckAt < lastHeartbeatSentAt) {
+                Log.warn("gateway.heartbeat_timeout");
                 closeForReconnect();
+                return;
             }
-        });
+            sendHeartbeat();
+            scheduleHeartbeat(heartbeatInterval, true);
+        } catch (Exception ex) {
+            Log.error("gateway.heartbeat_error", ex);
+            closeForReconnect();
+        }
     }
 
     private class Listener implements WebSocket.Listener {
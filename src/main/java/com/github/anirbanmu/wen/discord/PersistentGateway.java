@@ -11,19 +11,28 @@ import java.util.function.Consumer;
 // reconnect loop around Gateway. creates a fresh gateway each iteration,
 // carries resume state across.
 public class PersistentGateway {
-    private static final String DEFAULT_GATEWAY_URL = "wss://gateway.discord.gg/?v=10&encoding=json";
+    public static final String DEFAULT_GATEWAY_URL = "wss://gateway.discord.gg";
+    private static final String GATEWAY_QUERY = "?v=10&encoding=json";
     private static final long BASE_RECONNECT_DELAY_MS = 200;
     private static final long MAX_RECONNECT_DELAY_MS = 30_000;
 
     private final String token;
+    private final String gatewayUrl;
     private final Consumer<Interaction> interactionHandler;
-    private final ExecutorService handlerExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    // named so allocation and pinning telemetry can attribute work to interaction handling
+    private final ExecutorService handlerExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("interaction").factory());
     private final AtomicBoolean running = new AtomicBoolean(false);
 
     private volatile Gateway current;
 
     public PersistentGateway(String token, Consumer<Interaction> interactionHandler) {
+        this(token, DEFAULT_GATEWAY_URL, interactionHandler);
+    }
+
+    // gatewayUrl without query string, e.g. a local stand-in for offline load testing
+    public PersistentGateway(String token, String gatewayUrl, Consumer<Interaction> interactionHandler) {
         this.token = token;
+        this.gatewayUrl = gatewayUrl;
         this.interactionHandler = interactionHandler;
     }
 
@@ -65,8 +74,8 @@ public class PersistentGateway {
 
         while (running.get() && !Thread.currentThread().isInterrupted()) {
             String url = (resume != null && resume.canResume())
-                ? resume.resumeGatewayUrl() + "?v=10&encoding=json"
-                : DEFAULT_GATEWAY_URL;
+                ? resume.resumeGatewayUrl() + GATEWAY_QUERY
+                : gatewayUrl + "/" + GATEWAY_QUERY;
 
             Gateway gw = new Gateway(token, url, interactionHandler, handlerExecutor, resume);
             current = gw;
@@ -6,18 +6,53 @@ import java.util.List;
 
 // INTERACTION_CREATE event data
 @CompiledJson
-public record Interaction(String id, @JsonAttribute(name = "application_id") String applicationId, int type, @JsonAttribute(nullable = true) Data data, @JsonAttribute(name = "guild_id", nullable = true) String guildId, @JsonAttribute(name = "channel_id", nullable = true) String channelId, String token) {
+public record Interaction(String id, @JsonAttribute(name = "application_id") String applicationId, int type, @JsonAttribute(nullable = true) Data data, @JsonAttribute(name = "guild_id", nullable = true) String guildId, @JsonAttribute(name = "channel_id", nullable = true) String channelId, String token, @JsonAttribute(nullable = true) Member member) {
 
     // interaction types
     public static final int TYPE_APPLICATION_COMMAND = 2;
+    public static final int TYPE_MESSAGE_COMPONENT = 3;
     public static final int TYPE_APPLICATION_COMMAND_AUTOCOMPLETE = 4;
 
-    // data field within an interaction (for slash commands)
+    // permission bits
+    public static final long MANAGE_GUILD = 1L << 5;
+
+    // without a member, as in a DM
+    public static Interaction of(String id, String applicationId, int type, Data data, String guildId, String channelId, String token) {
+        return new Interaction(id, applicationId, type, data, guildId, channelId, token, null);
+    }
+
+    // whether whoever sent it may change the guild's settings; only guild interactions carry a member
+    public boolean canManageGuild() {
+        if (guildId == null || member == null || member.permissions() == null) {
+            return false;
+        }
+        try {
+            return (Long.parseUnsignedLong(member.permissions()) & MANAGE_GUILD) != 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // data field within an interaction: slash commands carry id/name/options, button presses
+    // carry custom_id instead
     @CompiledJson
-    public record Data(String id, String name, int type, @JsonAttribute(nullable = true) List<Option> options) {
+    public record Data(@JsonAttribute(nullable = true) String id, @JsonAttribute(nullable = true) String name, int type, @JsonAttribute(nullable = true) List<Option> options, @JsonAttribute(name = "custom_id", nullable = true) String customId) {
 
         // application command types
         public static final int TYPE_CHAT_INPUT = 1;
+
+        public static Data command(String id, String name, int type, List<Option> options) {
+            return new Data(id, name, type, options, null);
+        }
+
+        public static Data component(String customId) {
+            return new Data(null, null, 0, null, customId);
+        }
+    }
+
+    // the invoking guild member; permissions is their computed permission bitfield in the channel
+    @CompiledJson
+    public record Member(@JsonAttribute(nullable = true) String permissions) {
     }
 
     // individual command option (e.g., source="f1", filter="r")
@@ -8,29 +8,68 @@ import java.util.List;
 public record InteractionResponse(int type, @JsonAttribute(nullable = true) Data data) {
     public static final int TYPE_CHANNEL_MESSAGE_WITH_SOURCE = 4;
     public static final int TYPE_DEFERRED_CHANNEL_MESSAGE_WITH_SOURCE = 5;
+    // edits the message a button was pressed on
+    public static final int TYPE_UPDATE_MESSAGE = 7;
     public static final int TYPE_APPLICATION_COMMAND_AUTOCOMPLETE_RESULT = 8;
 
     public static InteractionResponse message(String content) {
-        return new InteractionResponse(TYPE_CHANNEL_MESSAGE_WITH_SOURCE, new Data(content, null, null, null));
+        return new InteractionResponse(TYPE_CHANNEL_MESSAGE_WITH_SOURCE, new Data(content, null, null, null, null));
+    }
+
+    public static InteractionResponse ephemeralMessage(String content) {
+        return new InteractionResponse(TYPE_CHANNEL_MESSAGE_WITH_SOURCE, new Data(content, null, Data.FLAG_EPHEMERAL, null, null));
     }
 
     public static InteractionResponse embeds(List<Embed> embeds) {
-        return new InteractionResponse(TYPE_CHANNEL_MESSAGE_WITH_SOURCE, new Data(null, embeds, null, null));
+        return embeds(embeds, null);
+    }
+
+    public static InteractionResponse embeds(List<Embed> embeds, List<ActionRow> components) {
+        return new InteractionResponse(TYPE_CHANNEL_MESSAGE_WITH_SOURCE, new Data(null, embeds, null, null, components));
     }
 
     public static InteractionResponse ephemeralEmbeds(List<Embed> embeds) {
-        return new InteractionResponse(TYPE_CHANNEL_MESSAGE_WITH_SOURCE, new Data(null, embeds, Data.FLAG_EPHEMERAL, null));
+        return new InteractionResponse(TYPE_CHANNEL_MESSAGE_WITH_SOURCE, new Data(null, embeds, Data.FLAG_EPHEMERAL, null, null));
     }
 
     public static InteractionResponse autocomplete(List<Choice> choices) {
-        return new InteractionResponse(TYPE_APPLICATION_COMMAND_AUTOCOMPLETE_RESULT, new Data(null, null, null, choices));
+        return new InteractionResponse(TYPE_APPLICATION_COMMAND_AUTOCOMPLETE_RESULT, new Data(null, null, null, choices, null));
+    }
+
+    // the same message content, replacing the one the button is on. omitted components would keep
+    // the old buttons, so none is sent as an empty list
+    public static InteractionResponse update(InteractionResponse message) {
+        Data d = message.data();
+        return new InteractionResponse(TYPE_UPDATE_MESSAGE,
+            new Data(d.content(), d.embeds(), d.flags(), null, d.components() == null ? List.of() : d.components()));
     }
 
     @CompiledJson
-    public record Data(@JsonAttribute(nullable = true) String content, @JsonAttribute(nullable = true) List<Embed> embeds, @JsonAttribute(nullable = true) Integer flags, @JsonAttribute(nullable = true) List<Choice> choices) {
+    public record Data(@JsonAttribute(nullable = true) String content, @JsonAttribute(nullable = true) List<Embed> embeds, @JsonAttribute(nullable = true) Integer flags, @JsonAttribute(nullable = true) List<Choice> choices,
+        @JsonAttribute(nullable = true) List<ActionRow> components) {
         public static final int FLAG_EPHEMERAL = 64;
     }
 
+    // message components: buttons sit in an action row
+    @CompiledJson
+    public record ActionRow(int type, List<Button> components) {
+        public static final int TYPE = 1;
+
+        public static ActionRow of(Button... buttons) {
+            return new ActionRow(TYPE, List.of(buttons));
+        }
+    }
+
+    @CompiledJson
+    public record Button(int type, int style, String label, @JsonAttribute(name = "custom_id") String customId) {
+        public static final int TYPE = 2;
+        public static final int STYLE_SECONDARY = 2;
+
+        public static Button secondary(String label, String customId) {
+            return new Button(TYPE, STYLE_SECONDARY, label, customId);
+        }
+    }
+
     @CompiledJson
     public record Choice(String name, String value) {
     }
@@ -0,0 +1,20 @@
+package com.github.anirbanmu.wen.discord.json;
+
+import com.dslplatform.json.CompiledJson;
+import com.dslplatform.json.JsonAttribute;
+import java.util.List;
+
+// create message payload, for posts the bot makes on its own (reminders)
+@CompiledJson
+public record Message(String content, @JsonAttribute(name = "allowed_mentions") AllowedMentions allowedMentions) {
+
+    // event text comes from third-party feeds, so nothing in it may ping anyone
+    public static Message text(String content) {
+        return new Message(content, AllowedMentions.NONE);
+    }
+
+    @CompiledJson
+    public record AllowedMentions(List<String> parse) {
+        public static final AllowedMentions NONE = new AllowedMentions(List.of());
+    }
+}
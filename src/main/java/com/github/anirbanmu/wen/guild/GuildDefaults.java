@@ -0,0 +1,103 @@
+package com.github.anirbanmu.wen.guild;
+
+import com.github.anirbanmu.wen.log.Log;
+import com.github.anirbanmu.wen.store.Store;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// what "/wen" with no query means in a guild: a query text ("f1 sprint") set by its admins, in place of
+// the config's fallback calendar. stored in the Store's GUILD_SETTINGS space and read through a
+// direct-mapped cache of SLOTS entries keyed by guild id, so a hot guild's lookup is one array read
+// with nothing allocated. guilds without a default are cached too (as a null query), since that's
+// most of them. two guilds sharing a slot just take turns missing; a miss is one Store read, made
+// outside this class's lock so it never waits behind set or clear, which are the only serialized
+// writers. without a Store, defaults last until restart.
+public final class GuildDefaults {
+    // a default is a query, which discord caps at 100 characters
+    public static final int MAX_QUERY = 100;
+    static final int SLOTS = 1024;
+    private static final int SHIFT = 64 - Integer.numberOfTrailingZeros(SLOTS);
+
+    // query null: the guild has no default
+    private record Entry(long guild, String query) {
+    }
+
+    private final Store store;
+    // stands in for the Store when there isn't one
+    private final Map<Long, String> memory = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<>(SLOTS);
+
+    public GuildDefaults(Store store) {
+        this.store = store;
+    }
+
+    // null when the guild has no default (or it isn't a guild)
+    public String get(String guildId) {
+        if (guildId == null) {
+            return null;
+        }
+        long guild;
+        try {
+            guild = Long.parseUnsignedLong(guildId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return get(guild);
+    }
+
+    public String get(long guild) {
+        Entry e = slots.get(slot(guild));
+        if (e != null && e.guild() == guild) {
+            return e.query();
+        }
+        return load(guild, e);
+    }
+
+    // false if it couldn't be saved
+    public synchronized boolean set(long guild, String query) {
+        if (query.isEmpty() || query.length() > MAX_QUERY) {
+            return false;
+        }
+        if (store == null) {
+            memory.put(guild, query);
+        } else if (!store.put(Store.Space.GUILD_SETTINGS, guild, query.getBytes(StandardCharsets.UTF_8))) {
+            Log.warn("guild.save_failed", "guild", guild);
+            return false;
+        }
+        slots.set(slot(guild), new Entry(guild, query));
+        Log.info("guild.default_set", "guild", guild, "query", query);
+        return true;
+    }
+
+    // false if there was nothing to clear
+    public synchronized boolean clear(long guild) {
+        boolean removed = store == null ? memory.remove(guild) != null : store.delete(Store.Space.GUILD_SETTINGS, guild);
+        slots.set(slot(guild), new Entry(guild, null));
+        if (removed) {
+            Log.info("guild.default_cleared", "guild", guild);
+        }
+        return removed;
+    }
+
+    // set and clear write the store before the slot, so if the slot still holds what it did before
+    // the read (seen), no write has landed since and the read is safe to cache. otherwise a fill
+    // could put back what set or clear just replaced; losing the race just skips caching
+    private String load(long guild, Entry seen) {
+        String query;
+        if (store == null) {
+            query = memory.get(guild);
+        } else {
+            byte[] value = store.get(Store.Space.GUILD_SETTINGS, guild);
+            query = value == null ? null : new String(value, StandardCharsets.UTF_8);
+        }
+        slots.compareAndSet(slot(guild), seen, new Entry(guild, query));
+        return query;
+    }
+
+    // snowflakes' low bits are a per-process counter; multiplying spreads the whole id over the slots
+    private static int slot(long guild) {
+        return (int) ((guild * 0x9E3779B97F4A7C15L) >>> SHIFT);
+    }
+}
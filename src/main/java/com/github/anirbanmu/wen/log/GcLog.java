@@ -1,20 +1,55 @@
 package com.github.anirbanmu.wen.log;
 
+import com.github.anirbanmu.wen.util.TimerWheel;
+import com.github.anirbanmu.wen.util.Timers;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.consumer.RecordedThread;
 import jdk.jfr.consumer.RecordingStream;
 
 public final class GcLog {
-    private static final long WINDOW_MS = 60_000;
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+    private static final Duration REPORT_SLACK = Duration.ofSeconds(1);
     private static final long PAUSE_ALERT_US = 100_000;
+    private static final long PIN_ALERT_MS = 100;
+    private static final Duration CPU_PERIOD = Duration.ofSeconds(10);
+    private static final int TOP_ALLOCATORS = 4;
 
     private static volatile Stats stats = new Stats();
+    private static volatile long containerUsedBytes = -1;
 
     private GcLog() {
     }
 
+    // all fields are written from the jfr stream thread only; swapped out wholesale by the reporter.
+    // an event already in flight at the swap can still land in the old Stats while it's reported,
+    // so the one collection is concurrent; a late count in a scalar is just off by one event
     private static final class Stats {
         long totalPauseUs;
         long maxPauseUs;
         int pauseCount;
+
+        long allocBytes;
+        final Map<String, LongAdder> allocByThread = new ConcurrentHashMap<>();
+
+        double cpuSum;
+        double cpuMax;
+        double machineCpuSum;
+        int cpuSamples;
+
+        int pinnedCount;
+        long pinnedTotalUs;
+        long pinnedMaxUs;
+
+        int slowPageAllocs;
+        long slowPageAllocMaxUs;
     }
 
     public static void install() {
@@ -22,6 +57,12 @@ public final class GcLog {
 
         rs.enable("jdk.ZAllocationStall").withoutThreshold();
         rs.enable("jdk.GCPhasePause").withoutThreshold();
+        // sampled (throttled) allocations; weight approximates the bytes allocated since the previous sample
+        rs.enable("jdk.ObjectAllocationSample").with("throttle", "100/s");
+        rs.enable("jdk.CPULoad").withPeriod(CPU_PERIOD);
+        rs.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(1));
+        rs.enable("jdk.ZPageAllocation").withThreshold(Duration.ofMillis(1));
+        rs.enable("jdk.ContainerMemoryUsage").withPeriod(Duration.ofSeconds(30));
 
         rs.onEvent("jdk.ZAllocationStall", event -> {
             String thread = event.getThread() != null ? event.getThread().getJavaName() : "unknown";
@@ -48,23 +89,82 @@ public final class GcLog {
             }
         });
 
-        Thread.ofVirtual().name("gc-stats").start(() -> {
-            while (true) {
-                try {
-                    Thread.sleep(WINDOW_MS);
-                } catch (InterruptedException e) {
-                    return;
-                }
-                Stats old = stats;
-                stats = new Stats();
-                report(old);
+        rs.onEvent("jdk.ObjectAllocationSample", event -> {
+            long weight = event.getLong("weight");
+            RecordedThread thread = event.getThread("eventThread");
+            String subsystem = subsystem(thread != null ? thread.getJavaName() : null);
+
+            Stats s = stats;
+            s.allocBytes += weight;
+            s.allocByThread.computeIfAbsent(subsystem, _ -> new LongAdder()).add(weight);
+        });
+
+        rs.onEvent("jdk.CPULoad", event -> {
+            double jvm = event.getFloat("jvmUser") + event.getFloat("jvmSystem");
+
+            Stats s = stats;
+            s.cpuSum += jvm;
+            s.machineCpuSum += event.getFloat("machineTotal");
+            s.cpuSamples++;
+            if (jvm > s.cpuMax) {
+                s.cpuMax = jvm;
+            }
+        });
+
+        rs.onEvent("jdk.VirtualThreadPinned", event -> {
+            long us = event.getDuration().toNanos() / 1000;
+
+            if (us >= PIN_ALERT_MS * 1000) {
+                String thread = event.getThread() != null ? event.getThread().getJavaName() : "unknown";
+                Log.warn("vthread.long_pin", "thread", thread, "duration_ms", us / 1000);
+            }
+
+            Stats s = stats;
+            s.pinnedCount++;
+            s.pinnedTotalUs += us;
+            if (us > s.pinnedMaxUs) {
+                s.pinnedMaxUs = us;
             }
         });
 
+        rs.onEvent("jdk.ZPageAllocation", event -> {
+            long us = event.getDuration().toNanos() / 1000;
+
+            Stats s = stats;
+            s.slowPageAllocs++;
+            if (us > s.slowPageAllocMaxUs) {
+                s.slowPageAllocMaxUs = us;
+            }
+        });
+
+        // only emitted when the jvm detects a container
+        rs.onEvent("jdk.ContainerMemoryUsage", event -> containerUsedBytes = event.getLong("memoryUsage"));
+
+        Timers.WHEEL.repeat("gc-stats", WINDOW, REPORT_SLACK, () -> {
+            Stats old = stats;
+            stats = new Stats();
+            report(old);
+        });
+
         rs.startAsync();
         Log.info("gc.log.installed");
     }
 
+    // "calendar[123]" -> "calendar", "HttpClient-1-Worker-0" -> "HttpClient-1-Worker"
+    static String subsystem(String threadName) {
+        if (threadName == null || threadName.isEmpty()) {
+            return "unnamed";
+        }
+        int end = threadName.indexOf('[');
+        if (end < 0) {
+            end = threadName.length();
+        }
+        while (end > 0 && (Character.isDigit(threadName.charAt(end - 1)) || threadName.charAt(end - 1) == '-' || threadName.charAt(end - 1) == ' ')) {
+            end--;
+        }
+        return end > 0 ? threadName.substring(0, end) : "unnamed";
+    }
+
     private static void report(Stats s) {
         Runtime rt = Runtime.getRuntime();
         long total = rt.totalMemory();
@@ -78,5 +178,68 @@ public final class GcLog {
             "heap_mb", used >> 20,
             "committed_mb", total >> 20,
             "heap_pct", pct);
+
+        long metaspace = 0;
+        long codeCache = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.NON_HEAP) {
+                continue;
+            }
+            String name = pool.getName();
+            if (name.equals("Metaspace")) {
+                metaspace += pool.getUsage().getUsed();
+            } else if (name.startsWith("CodeHeap") || name.equals("CodeCache")) {
+                codeCache += pool.getUsage().getUsed();
+            }
+        }
+
+        long container = containerUsedBytes;
+
+        Log.info("runtime.stats",
+            "alloc_kb", s.allocBytes >> 10,
+            "alloc_top", topAllocators(s.allocByThread),
+            "cpu_avg_pct", s.cpuSamples > 0 ? Math.round(s.cpuSum * 100 / s.cpuSamples) : -1,
+            "cpu_max_pct", Math.round(s.cpuMax * 100),
+            "machine_cpu_avg_pct", s.cpuSamples > 0 ? Math.round(s.machineCpuSum * 100 / s.cpuSamples) : -1,
+            "pinned", s.pinnedCount,
+            "pinned_total_us", s.pinnedTotalUs,
+            "pinned_max_us", s.pinnedMaxUs,
+            "slow_page_allocs", s.slowPageAllocs,
+            "slow_page_alloc_max_us", s.slowPageAllocMaxUs,
+            "metaspace_kb", metaspace >> 10,
+            "code_cache_kb", codeCache >> 10,
+            "container_mb", container >= 0 ? container >> 20 : -1);
+
+        TimerWheel.Stats timers = Timers.WHEEL.stats();
+        Log.info("timers.stats",
+            "scheduled", timers.scheduled(),
+            "fired", timers.fired(),
+            "cancelled", timers.cancelled(),
+            "late", timers.late(),
+            "max_late_ms", timers.maxLateMs(),
+            "wakeups", timers.wakeups(),
+            "pending", timers.pending());
+    }
+
+    // heaviest allocating subsystems first: "calendar:4096,interaction:512" (kb)
+    static String topAllocators(Map<String, LongAdder> byThread) {
+        // totals read once, so the sort sees fixed values even if a late sample lands meanwhile
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(byThread.size());
+        for (Map.Entry<String, LongAdder> e : byThread.entrySet()) {
+            entries.add(Map.entry(e.getKey(), e.getValue().sum()));
+        }
+        if (entries.isEmpty()) {
+            return "none";
+        }
+        entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Math.min(TOP_ALLOCATORS, entries.size()); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(entries.get(i).getKey()).append(':').append(entries.get(i).getValue() >> 10);
+        }
+        return sb.toString();
     }
 }
@@ -0,0 +1,377 @@
+package com.github.anirbanmu.wen.reminder;
+
+import com.github.anirbanmu.wen.calendar.CalendarEvent;
+import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.discord.DiscordResult;
+import com.github.anirbanmu.wen.log.Log;
+import com.github.anirbanmu.wen.store.Store;
+import com.github.anirbanmu.wen.util.TimerWheel;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// "/wen subscribe" reminders. subscriptions are grouped by topic (calendar, filter, lead), and a
+// topic is one timer on the shared TimerWheel for its next matching event plus its channels as a
+// sorted long[], so tens of thousands of subscriptions are a few timers and 8 bytes each. a feed
+// refresh re-plans only that feed's topics, and only moves a timer whose next event changed.
+// deliveries go out one at a time, paced to about half of DiscordHttpClient's token bucket so a
+// burst of reminders never starves interaction responses. that is about 22 channels a second across
+// all topics, so a big topic (or a queue of them) can still be sending when its event starts; those
+// left by then are dropped rather than announce something already under way. with a Store, each
+// channel's topics are saved on every change and loaded back at startup.
+//
+// stored per channel: short count, count * (utf calendar, utf filter, long lead_seconds)
+public final class Reminders {
+    public static final int MAX_PER_CHANNEL = 25;
+    public static final int MAX_SUBSCRIPTIONS = 100_000;
+    static final Duration SEND_INTERVAL = Duration.ofMillis(45);
+    // lets reminders due within a few seconds of each other share one wheel wakeup
+    private static final Duration SLACK = Duration.ofSeconds(2);
+    private static final long[] NONE = {};
+
+    // calendar: the calendar's key; filter: the filter text as typed, "" for none
+    public record Topic(String calendar, String filter, Duration lead) {
+    }
+
+    // a topic against the current calendars; message renders the reminder for an event
+    public record Target(CalendarFeed feed, Predicate<CalendarEvent> filter, Function<CalendarEvent, String> message) {
+    }
+
+    @FunctionalInterface
+    public interface Sender {
+        DiscordResult<Void> send(long channelId, String content);
+    }
+
+    public enum Added {
+        ADDED, ALREADY, CHANNEL_FULL, FULL
+    }
+
+    private static final class Group {
+        final Topic topic;
+        // sorted, replaced rather than modified so a delivery can iterate it unlocked
+        long[] channels = NONE;
+        Target target;
+        CalendarEvent planned;
+        TimerWheel.Timeout timeout;
+        // start of the last event reminded about; the next plan starts after it
+        Instant sentThrough = Instant.EPOCH;
+
+        Group(Topic topic) {
+            this.topic = topic;
+        }
+    }
+
+    private final TimerWheel wheel;
+    private final Sender sender;
+    private final Clock clock;
+    // null: reminders last until restart
+    private final Store store;
+    private final Object delivery = new Object();
+    // guarded by this
+    private final Map<Topic, Group> groups = new HashMap<>();
+    private final Map<CalendarFeed, List<Group>> byFeed = new IdentityHashMap<>();
+    private Function<Topic, Target> resolver = _ -> null;
+    private int subscriptions;
+    // guarded by delivery
+    private long nextSendNanos;
+
+    public Reminders(TimerWheel wheel, Sender sender, Clock clock) {
+        this(wheel, sender, clock, null);
+    }
+
+    // stored subscriptions come back unplanned; they're planned once resolveWith says what they mean
+    public Reminders(TimerWheel wheel, Sender sender, Clock clock, Store store) {
+        this.wheel = wheel;
+        this.sender = sender;
+        this.clock = clock;
+        this.store = store;
+        if (store != null) {
+            synchronized (this) {
+                store.forEach(Store.Space.REMINDERS, (channel, value) -> {
+                    try {
+                        for (Topic topic : decode(value)) {
+                            add(channel, topic);
+                        }
+                    } catch (IllegalArgumentException | BufferUnderflowException e) {
+                        Log.warn("reminder.load_failed", "channel", channel, "error", e.toString());
+                    }
+                });
+            }
+            Log.info("reminder.loaded", "subscriptions", subscriptions, "topics", groups.size());
+        }
+    }
+
+    // how topics map onto calendars, replaced on every config (re)load: everything is re-planned.
+    // a topic whose calendar is gone resolves to null and sleeps until a config brings it back
+    public synchronized void resolveWith(Function<Topic, Target> resolver) {
+        this.resolver = resolver;
+        byFeed.clear();
+        for (Group g : groups.values()) {
+            g.target = resolver.apply(g.topic);
+            if (g.target != null) {
+                byFeed.computeIfAbsent(g.target.feed(), _ -> new ArrayList<>()).add(g);
+            }
+            plan(g);
+        }
+    }
+
+    // the feed's events changed
+    public synchronized void replan(CalendarFeed feed) {
+        for (Group g : byFeed.getOrDefault(feed, List.of())) {
+            plan(g);
+        }
+    }
+
+    public synchronized Added subscribe(long channel, Topic topic) {
+        Group g = groups.get(topic);
+        if (g != null && Arrays.binarySearch(g.channels, channel) >= 0) {
+            return Added.ALREADY;
+        }
+        if (subscriptions >= MAX_SUBSCRIPTIONS) {
+            return Added.FULL;
+        }
+        if (topics(channel).size() >= MAX_PER_CHANNEL) {
+            return Added.CHANNEL_FULL;
+        }
+        plan(add(channel, topic));
+        save(channel);
+        return Added.ADDED;
+    }
+
+    // lock held
+    private Group add(long channel, Topic topic) {
+        Group g = groups.get(topic);
+        if (g == null) {
+            g = new Group(topic);
+            g.target = resolver.apply(topic);
+            groups.put(topic, g);
+            if (g.target != null) {
+                byFeed.computeIfAbsent(g.target.feed(), _ -> new ArrayList<>()).add(g);
+            }
+        }
+        int at = Arrays.binarySearch(g.channels, channel);
+        if (at >= 0) {
+            return g;
+        }
+        at = -at - 1;
+        long[] channels = new long[g.channels.length + 1];
+        System.arraycopy(g.channels, 0, channels, 0, at);
+        channels[at] = channel;
+        System.arraycopy(g.channels, at, channels, at + 1, g.channels.length - at);
+        g.channels = channels;
+        subscriptions++;
+        return g;
+    }
+
+    // every lead for the calendar and filter; how many were removed
+    public synchronized int unsubscribe(long channel, String calendar, String filter) {
+        int removed = 0;
+        for (Group g : List.copyOf(groups.values())) {
+            if (g.topic.calendar().equals(calendar) && g.topic.filter().equals(filter) && remove(g, channel)) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            save(channel);
+        }
+        return removed;
+    }
+
+    public synchronized List<Topic> topics(long channel) {
+        List<Topic> out = new ArrayList<>();
+        for (Group g : groups.values()) {
+            if (Arrays.binarySearch(g.channels, channel) >= 0) {
+                out.add(g.topic);
+            }
+        }
+        return out;
+    }
+
+    // the event the topic's next reminder is for, if any
+    public synchronized CalendarEvent next(Topic topic) {
+        Group g = groups.get(topic);
+        return g == null ? null : g.planned;
+    }
+
+    public synchronized int count() {
+        return subscriptions;
+    }
+
+    // lock held
+    private boolean remove(Group g, long channel) {
+        int at = Arrays.binarySearch(g.channels, channel);
+        if (at < 0) {
+            return false;
+        }
+        long[] channels = new long[g.channels.length - 1];
+        System.arraycopy(g.channels, 0, channels, 0, at);
+        System.arraycopy(g.channels, at + 1, channels, at, channels.length - at);
+        g.channels = channels;
+        subscriptions--;
+        if (channels.length == 0) {
+            groups.remove(g.topic);
+            if (g.target != null) {
+                byFeed.get(g.target.feed()).remove(g);
+            }
+        }
+        plan(g);
+        return true;
+    }
+
+    // lock held: the channel's topics as they are now
+    private void save(long channel) {
+        if (store == null) {
+            return;
+        }
+        List<Topic> topics = topics(channel);
+        boolean saved = topics.isEmpty() ? store.delete(Store.Space.REMINDERS, channel) || store.get(Store.Space.REMINDERS, channel) == null
+            : store.put(Store.Space.REMINDERS, channel, encode(topics));
+        if (!saved) {
+            Log.warn("reminder.save_failed", "channel", channel);
+        }
+    }
+
+    static byte[] encode(List<Topic> topics) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + topics.size() * 32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeShort(topics.size());
+            for (Topic t : topics) {
+                out.writeUTF(t.calendar());
+                out.writeUTF(t.filter());
+                out.writeLong(t.lead().toSeconds());
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static List<Topic> decode(byte[] value) {
+        ByteBuffer buf = ByteBuffer.wrap(value);
+        int count = buf.getShort();
+        List<Topic> topics = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            topics.add(new Topic(readUtf(buf), readUtf(buf), Duration.ofSeconds(buf.getLong())));
+        }
+        if (buf.hasRemaining()) {
+            throw new IllegalArgumentException("trailing bytes");
+        }
+        return topics;
+    }
+
+    // DataOutputStream.writeUTF's format; topic strings are plain text, so standard utf-8 reads it
+    private static String readUtf(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort() & 0xFFFF];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // lock held: point the group's timer at its next event, leaving it alone if that hasn't changed
+    private void plan(Group g) {
+        CalendarEvent next = null;
+        if (g.target != null && g.channels.length > 0) {
+            // too late to remind about anything starting within the lead
+            Instant from = clock.instant().plus(g.topic.lead());
+            if (!from.isAfter(g.sentThrough)) {
+                from = g.sentThrough.plusNanos(1);
+            }
+            next = g.target.feed().next(g.target.filter(), from);
+        }
+        if (next == null ? g.planned == null : next.equals(g.planned)) {
+            return;
+        }
+        if (g.timeout != null) {
+            g.timeout.cancel();
+            g.timeout = null;
+        }
+        g.planned = next;
+        if (next != null) {
+            CalendarEvent event = next;
+            Duration delay = Duration.between(clock.instant(), next.start().minus(g.topic.lead()));
+            g.timeout = wheel.schedule("reminder", delay, SLACK, () -> fire(g, event));
+        }
+    }
+
+    private void fire(Group g, CalendarEvent event) {
+        long[] channels;
+        String text;
+        synchronized (this) {
+            if (!event.equals(g.planned) || g.target == null) {
+                return;
+            }
+            g.timeout = null;
+            // the wheel caps delays at about four months, so a far-off event can come up early
+            if (clock.instant().isBefore(event.start().minus(g.topic.lead()).minus(SLACK))) {
+                g.planned = null;
+                plan(g);
+                return;
+            }
+            g.sentThrough = event.start();
+            g.planned = null;
+            channels = g.channels;
+            text = g.target.message().apply(event);
+            plan(g);
+        }
+        deliver(g.topic, channels, text, event.start());
+    }
+
+    private void deliver(Topic topic, long[] channels, String text, Instant start) {
+        int failed = 0;
+        int late = 0;
+        synchronized (delivery) {
+            for (int i = 0; i < channels.length; i++) {
+                long channel = channels[i];
+                pace();
+                if (!clock.instant().isBefore(start)) {
+                    late = channels.length - i;
+                    break;
+                }
+                if (sender.send(channel, text) instanceof DiscordResult.Failure<Void> f) {
+                    failed++;
+                    Log.warn("reminder.send_failed", "channel", channel, "status", f.statusCode(), "error", f.message());
+                    // the channel is gone or the bot can't post there: stop trying
+                    if (f.statusCode() == 403 || f.statusCode() == 404) {
+                        synchronized (this) {
+                            Group g = groups.get(topic);
+                            if (g != null && remove(g, channel)) {
+                                save(channel);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (late > 0) {
+            Log.warn("reminder.late_dropped", "calendar", topic.calendar(), "filter", topic.filter(), "channels", late);
+        }
+        Log.info("reminder.sent", "calendar", topic.calendar(), "filter", topic.filter(), "channels", channels.length - late, "failed", failed);
+    }
+
+    // delivery held
+    private void pace() {
+        long wait = nextSendNanos - System.nanoTime();
+        if (wait > 0) {
+            try {
+                Thread.sleep(Duration.ofNanos(wait));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        nextSendNanos = System.nanoTime() + SEND_INTERVAL.toNanos();
+    }
+}
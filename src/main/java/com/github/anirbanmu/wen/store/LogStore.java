@@ -0,0 +1,434 @@
+package com.github.anirbanmu.wen.store;
+
+import com.github.anirbanmu.wen.log.Log;
+import com.github.anirbanmu.wen.util.TimerWheel;
+import com.github.anirbanmu.wen.util.Timers;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.zip.CRC32C;
+
+// Store as an append-only log in WEN_STATE_DIR. every put or delete appends one CRC-framed record
+// and is fsynced before returning; the index is a primitive id -> record offset map per space and
+// values are read back through a read-only mapping of the file, so the heap holds 16-32 bytes per
+// key and no values. once most of the file is dead records it is compacted: the live records are
+// copied into the next generation's file, which replaces the old one by atomic rename.
+//
+// file "store-<generation>.log": int magic, short version, long generation, then frames
+// frame: int payload length, int crc32c(payload), payload = byte op, byte space, long id, value
+//
+// recovery opens the newest complete generation and replays it. an interrupted append can only
+// leave a torn last frame (or zeros past it), which is truncated back to the last good frame. a
+// frame that fails its crc with good frames after it is skipped by its length and logged, so one
+// bad record doesn't take the records after it; a length that can't be skipped past refuses to
+// open rather than guess. new files, like compacted ones, appear by atomic rename with their header.
+public final class LogStore implements Store {
+    static final int MAGIC = 0x5753544F; // "WSTO"
+    static final short VERSION = 1;
+    static final int HEADER = 4 + 2 + 8;
+    static final int FRAME_HEADER = 8;
+    static final int PAYLOAD_HEADER = 1 + 1 + 8;
+    public static final int MAX_VALUE = 16 * 1024;
+    public static final int DEFAULT_MAX_KEYS = 100_000;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    // below this nothing is worth compacting
+    private static final long COMPACT_MIN_BYTES = 64 * 1024;
+    private static final Duration COMPACT_PERIOD = Duration.ofMinutes(30);
+    private static final Duration COMPACT_SLACK = Duration.ofMinutes(1);
+
+    private final Path dir;
+    private final int maxKeys;
+    private final LongLongMap[] index = new LongLongMap[Store.Space.values().length];
+    private final TimerWheel.Timeout compactTimer;
+    // guarded by this
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long size;
+    private long liveBytes;
+    private int keys;
+
+    private LogStore(Path dir, int maxKeys) {
+        this.dir = dir;
+        this.maxKeys = maxKeys;
+        for (int i = 0; i < index.length; i++) {
+            index[i] = new LongLongMap();
+        }
+        this.compactTimer = Timers.WHEEL.repeat("store-compact", COMPACT_PERIOD, COMPACT_SLACK, this::compactIfWasteful);
+    }
+
+    public static LogStore open(Path dir) throws IOException {
+        return open(dir, DEFAULT_MAX_KEYS);
+    }
+
+    public static LogStore open(Path dir, int maxKeys) throws IOException {
+        Files.createDirectories(dir);
+        LogStore store = new LogStore(dir, maxKeys);
+        try {
+            store.recover();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    @Override
+    public synchronized byte[] get(Space space, long id) {
+        long offset = index[space.ordinal()].get(id);
+        if (offset < 0) {
+            return null;
+        }
+        ByteBuffer frame = frame(offset);
+        byte[] value = new byte[frame.getInt(0) - PAYLOAD_HEADER];
+        frame.get(FRAME_HEADER + PAYLOAD_HEADER, value);
+        return value;
+    }
+
+    @Override
+    public synchronized boolean put(Space space, long id, byte[] value) {
+        LongLongMap map = index[space.ordinal()];
+        if (value.length > MAX_VALUE || id == 0) {
+            return false;
+        }
+        if (map.get(id) < 0 && keys >= maxKeys) {
+            Log.warn("store.full", "keys", keys);
+            return false;
+        }
+        long offset = append(PUT, space, id, value);
+        if (offset < 0) {
+            return false;
+        }
+        long old = map.put(id, offset);
+        if (old >= 0) {
+            liveBytes -= frameLength(old);
+        } else {
+            keys++;
+        }
+        liveBytes += FRAME_HEADER + PAYLOAD_HEADER + value.length;
+        compactIfWasteful();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean delete(Space space, long id) {
+        LongLongMap map = index[space.ordinal()];
+        long old = map.get(id);
+        if (old < 0) {
+            return false;
+        }
+        if (append(DELETE, space, id, new byte[0]) < 0) {
+            return false;
+        }
+        map.remove(id);
+        liveBytes -= frameLength(old);
+        keys--;
+        compactIfWasteful();
+        return true;
+    }
+
+    @Override
+    public synchronized void forEach(Space space, Visitor visitor) {
+        index[space.ordinal()].forEach((id, _) -> visitor.visit(id, get(space, id)));
+    }
+
+    @Override
+    public synchronized int size(Space space) {
+        return index[space.ordinal()].size();
+    }
+
+    synchronized long fileSize() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() {
+        compactTimer.cancel();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.warn("store.close_failed", "error", e.getMessage());
+            }
+            channel = null;
+            mapped = null;
+        }
+    }
+
+    // when dead records are over half the file
+    synchronized void compactIfWasteful() {
+        if (channel != null && size > COMPACT_MIN_BYTES && size - HEADER > 2 * liveBytes) {
+            try {
+                compact();
+            } catch (IOException e) {
+                Log.error("store.compact_failed", e, "generation", generation);
+            }
+        }
+    }
+
+    // live records into generation + 1, swapped in by rename. a crash before the rename leaves a
+    // .tmp that recovery deletes; after it, the old generation is the one deleted
+    synchronized void compact() throws IOException {
+        long before = size;
+        long next = generation + 1;
+        Path tmp = dir.resolve(fileName(next) + ".tmp");
+        LongLongMap[] moved = new LongLongMap[index.length];
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, header(next));
+            long[] position = {HEADER};
+            IOException[] failed = new IOException[1];
+            for (int i = 0; i < index.length; i++) {
+                LongLongMap copy = new LongLongMap(index[i].size());
+                moved[i] = copy;
+                index[i].forEach((id, offset) -> {
+                    if (failed[0] != null) {
+                        return;
+                    }
+                    ByteBuffer frame = frame(offset);
+                    try {
+                        writeFully(out, frame);
+                    } catch (IOException e) {
+                        failed[0] = e;
+                    }
+                    copy.put(id, position[0]);
+                    position[0] += frame.limit();
+                });
+            }
+            if (failed[0] != null) {
+                throw failed[0];
+            }
+            out.force(true);
+        }
+        Path file = dir.resolve(fileName(next));
+        moveIntoPlace(tmp, file);
+
+        Path old = dir.resolve(fileName(generation));
+        channel.close();
+        System.arraycopy(moved, 0, index, 0, index.length);
+        openGeneration(next, file);
+        Files.deleteIfExists(old);
+        Log.info("store.compacted", "generation", next, "bytes_before", before, "bytes_after", size, "keys", keys);
+    }
+
+    private void recover() throws IOException {
+        long newest = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "store-*")) {
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // an unfinished compaction; the generation it would replace is intact
+                    Files.deleteIfExists(p);
+                    continue;
+                }
+                long gen = generationOf(name);
+                newest = Math.max(newest, gen);
+            }
+        }
+        if (newest < 0) {
+            newest = 0;
+            create(newest);
+        } else if (Files.size(dir.resolve(fileName(newest))) < HEADER) {
+            // only a store from before headers were written by rename can hold less than one; it has no records
+            Log.warn("store.empty_file", "generation", newest);
+            create(newest);
+        }
+        // older generations were already compacted into the newest one
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "store-*.log")) {
+            for (Path p : files) {
+                long gen = generationOf(p.getFileName().toString());
+                if (gen >= 0 && gen < newest) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        }
+        openGeneration(newest, dir.resolve(fileName(newest)));
+        replay();
+    }
+
+    // an empty generation: header written and synced beside it, then renamed into place
+    private void create(long gen) throws IOException {
+        Path tmp = dir.resolve(fileName(gen) + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, header(gen));
+            out.force(true);
+        }
+        moveIntoPlace(tmp, dir.resolve(fileName(gen)));
+    }
+
+    private static void moveIntoPlace(Path tmp, Path file) throws IOException {
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void openGeneration(long gen, Path file) throws IOException {
+        this.generation = gen;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.size = channel.size();
+        this.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        ByteBuffer header = mapped.slice(0, (int) Math.min(HEADER, size));
+        if (size < HEADER || header.getInt(0) != MAGIC || header.getShort(4) != VERSION || header.getLong(6) != gen) {
+            throw new IOException("bad store header in " + file.getFileName());
+        }
+    }
+
+    private void replay() throws IOException {
+        for (LongLongMap map : index) {
+            map.clear();
+        }
+        keys = 0;
+        liveBytes = 0;
+        long pos = HEADER;
+        int records = 0;
+        int skipped = 0;
+        CRC32C crc = new CRC32C();
+        while (pos + FRAME_HEADER <= size) {
+            int length = mapped.getInt((int) pos);
+            if (length < PAYLOAD_HEADER || length > PAYLOAD_HEADER + MAX_VALUE) {
+                if (zeroFrom(pos)) {
+                    break;
+                }
+                // nothing to resync on; keep the file as it is for someone to look at
+                throw new IOException("corrupt store frame length " + length + " at " + pos + " in generation " + generation);
+            }
+            long end = pos + FRAME_HEADER + length;
+            if (end > size) {
+                break;
+            }
+            crc.reset();
+            crc.update(mapped.slice((int) pos + FRAME_HEADER, length));
+            byte op = mapped.get((int) pos + FRAME_HEADER);
+            Space space = Space.of(mapped.get((int) pos + FRAME_HEADER + 1));
+            long id = mapped.getLong((int) pos + FRAME_HEADER + 2);
+            boolean intact = (int) crc.getValue() == mapped.getInt((int) pos + 4);
+            if (!intact && end == size) {
+                // the last frame: an append that didn't finish
+                break;
+            }
+            if (!intact || space == null || id == 0 || (op != PUT && op != DELETE)) {
+                Log.warn("store.skipped_frame", "generation", generation, "offset", pos, "bytes", FRAME_HEADER + length, "crc_ok", intact);
+                skipped++;
+                pos = end;
+                continue;
+            }
+            LongLongMap map = index[space.ordinal()];
+            long old = op == PUT ? map.put(id, pos) : map.remove(id);
+            if (old >= 0) {
+                liveBytes -= frameLength(old);
+                keys--;
+            }
+            if (op == PUT) {
+                liveBytes += FRAME_HEADER + length;
+                keys++;
+            }
+            records++;
+            pos += FRAME_HEADER + length;
+        }
+        if (pos < size) {
+            Log.warn("store.truncated_tail", "generation", generation, "bytes", size - pos);
+            channel.truncate(pos);
+            channel.force(true);
+            size = pos;
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        Log.info("store.recovered", "generation", generation, "records", records, "skipped", skipped, "keys", keys, "bytes", size);
+    }
+
+    // a file system can leave zeros rather than data past a crashed append
+    private boolean zeroFrom(long pos) {
+        for (long i = pos; i < size; i++) {
+            if (mapped.get((int) i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // offset of the new frame, or -1 after logging a failure
+    private long append(byte op, Space space, long id, byte[] value) {
+        if (channel == null) {
+            return -1;
+        }
+        int length = PAYLOAD_HEADER + value.length;
+        if (size + FRAME_HEADER + length > Integer.MAX_VALUE) {
+            Log.warn("store.file_full", "bytes", size);
+            return -1;
+        }
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + length);
+        frame.putInt(length).putInt(0).put(op).put(space.code).putLong(id).put(value);
+        CRC32C crc = new CRC32C();
+        crc.update(frame.slice(FRAME_HEADER, length));
+        frame.putInt(4, (int) crc.getValue());
+        frame.flip();
+        long offset = size;
+        try {
+            channel.position(offset);
+            writeFully(channel, frame);
+            channel.force(false);
+        } catch (IOException e) {
+            Log.error("store.write_failed", e, "generation", generation);
+            // a partial frame would be cut off by the next recovery; cut it now so later appends follow good data
+            try {
+                channel.truncate(offset);
+            } catch (IOException ignored) {
+                // recovery handles it
+            }
+            return -1;
+        }
+        size = offset + frame.limit();
+        return offset;
+    }
+
+    // the whole frame at offset, remapping first if it was appended after the current mapping
+    private ByteBuffer frame(long offset) {
+        if (offset + FRAME_HEADER > mapped.limit() || offset + FRAME_HEADER + mapped.getInt((int) offset) > mapped.limit()) {
+            try {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } catch (IOException e) {
+                throw new IllegalStateException("store remap failed", e);
+            }
+        }
+        return mapped.slice((int) offset, FRAME_HEADER + mapped.getInt((int) offset));
+    }
+
+    private int frameLength(long offset) {
+        return frame(offset).limit();
+    }
+
+    private static ByteBuffer header(long gen) {
+        return ByteBuffer.allocate(HEADER).putInt(MAGIC).putShort(VERSION).putLong(gen).flip();
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+    }
+
+    static String fileName(long gen) {
+        return "store-" + gen + ".log";
+    }
+
+    // -1 for anything else in the directory
+    private static long generationOf(String name) {
+        if (!name.startsWith("store-") || !name.endsWith(".log")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(6, name.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
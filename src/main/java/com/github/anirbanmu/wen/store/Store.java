@@ -0,0 +1,47 @@
+package com.github.anirbanmu.wen.store;
+
+// bot state that users create (reminders, guild settings), as small values keyed by a guild or
+// channel snowflake within a space. writes are durable once they return true.
+public interface Store extends AutoCloseable {
+
+    // what an id refers to; code is the on-disk tag, so existing codes never change
+    enum Space {
+        REMINDERS(1),
+        GUILD_SETTINGS(2);
+
+        final byte code;
+
+        Space(int code) {
+            this.code = (byte) code;
+        }
+
+        static Space of(byte code) {
+            for (Space s : values()) {
+                if (s.code == code) {
+                    return s;
+                }
+            }
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    interface Visitor {
+        void visit(long id, byte[] value);
+    }
+
+    // null when absent
+    byte[] get(Space space, long id);
+
+    // false if it could not be stored (full, too large, or an I/O error, which is logged)
+    boolean put(Space space, long id, byte[] value);
+
+    boolean delete(Space space, long id);
+
+    void forEach(Space space, Visitor visitor);
+
+    int size(Space space);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,369 @@
+package com.github.anirbanmu.wen.util;
+
+import com.github.anirbanmu.wen.log.Log;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// hierarchical timing wheel: 5 levels of 64 slots over a 10ms tick (640ms, 41s, 44min, 46h,
+// 124 days). one thread sleeps until the next occupied slot instead of every periodic task
+// sleeping on its own, and timers with slack are rounded onto shared boundaries so nearby
+// wakeups coalesce. tasks run on their own named virtual thread, never on the wheel thread.
+public final class TimerWheel implements AutoCloseable {
+    static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int LEVELS = 5;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+    // fired more than this many ticks after its deadline counts as late
+    private static final long LATE_TICKS = 2;
+
+    private final long origin = System.nanoTime();
+    private final Timeout[][] wheel = new Timeout[LEVELS][SLOTS];
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Thread thread;
+
+    // guarded by lock
+    private long current;
+    private long nextWake = Long.MAX_VALUE;
+    private int pending;
+    private boolean closed;
+
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong fired = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+    private final AtomicLong maxLateMs = new AtomicLong();
+    private final AtomicLong wakeups = new AtomicLong();
+
+    // counters are cumulative since the wheel started
+    public record Stats(long scheduled, long fired, long cancelled, long late, long maxLateMs, long wakeups, int pending) {
+    }
+
+    public TimerWheel(String name) {
+        this.thread = Thread.ofVirtual().name(name).start(this::run);
+    }
+
+    // a scheduled task; cancel before it fires (or between repeats) and it never runs again
+    public final class Timeout {
+        private final String name;
+        private final Runnable task;
+        private final long periodTicks;
+        private final long slackTicks;
+        private long deadline;
+        private Timeout prev;
+        private Timeout next;
+        private int level = -1;
+        private int slot;
+        private volatile boolean cancelledFlag;
+
+        private Timeout(String name, Runnable task, long periodTicks, long slackTicks) {
+            this.name = name;
+            this.task = task;
+            this.periodTicks = periodTicks;
+            this.slackTicks = slackTicks;
+        }
+
+        public boolean cancel() {
+            lock.lock();
+            try {
+                if (cancelledFlag) {
+                    return false;
+                }
+                cancelledFlag = true;
+                cancelled.incrementAndGet();
+                if (level >= 0) {
+                    unlink(this);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelledFlag;
+        }
+
+        public String name() {
+            return name;
+        }
+    }
+
+    // runs task once after delay; it may run up to slack late so it can share a wakeup
+    public Timeout schedule(String name, Duration delay, Duration slack, Runnable task) {
+        Timeout t = new Timeout(name, task, 0, toTicks(slack));
+        add(t, delay.toNanos());
+        return t;
+    }
+
+    public Timeout schedule(String name, Duration delay, Runnable task) {
+        return schedule(name, delay, Duration.ZERO, task);
+    }
+
+    // runs task every period (first run one period from now) until cancelled. a run that falls
+    // behind is skipped rather than bunched up, and runs never overlap
+    public Timeout repeat(String name, Duration period, Duration slack, Runnable task) {
+        long periodTicks = Math.max(1, toTicks(period));
+        Timeout t = new Timeout(name, task, periodTicks, toTicks(slack));
+        add(t, periodTicks * TICK_NANOS);
+        return t;
+    }
+
+    // base +/- a uniformly random amount up to spread, never negative
+    public static Duration jitter(Duration base, Duration spread) {
+        long spreadMs = spread.toMillis();
+        if (spreadMs <= 0) {
+            return base;
+        }
+        long ms = base.toMillis() + ThreadLocalRandom.current().nextLong(-spreadMs, spreadMs + 1);
+        return Duration.ofMillis(Math.max(0, ms));
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(scheduled.get(), fired.get(), cancelled.get(), late.get(), maxLateMs.get(), wakeups.get(), pending);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long toTicks(Duration d) {
+        long nanos = d.toNanos();
+        return nanos <= 0 ? 0 : (nanos + TICK_NANOS - 1) / TICK_NANOS;
+    }
+
+    private long nowTick() {
+        return (System.nanoTime() - origin) / TICK_NANOS;
+    }
+
+    private void add(Timeout t, long delayNanos) {
+        scheduled.incrementAndGet();
+        lock.lock();
+        try {
+            if (t.cancelledFlag) {
+                return;
+            }
+            // first tick that starts at or after now + delay, so nothing fires early
+            long due = System.nanoTime() - origin + Math.min(Math.max(0, delayNanos), MAX_TICKS * TICK_NANOS);
+            t.deadline = align((due + TICK_NANOS - 1) / TICK_NANOS, t.slackTicks);
+            insert(t, current + 1);
+            if (t.deadline < nextWake) {
+                changed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // round up onto a multiple of the slack, so timers with similar slack land on the same tick
+    static long align(long tick, long slackTicks) {
+        if (slackTicks <= 1) {
+            return tick;
+        }
+        return ((tick + slackTicks - 1) / slackTicks) * slackTicks;
+    }
+
+    // lock held. new timers go no earlier than the next tick; cascading ones may land on the
+    // tick being processed
+    private void insert(Timeout t, long earliest) {
+        long deadline = Math.max(t.deadline, earliest);
+        long delta = deadline - current;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+        t.level = level;
+        t.slot = slot;
+        t.prev = null;
+        t.next = wheel[level][slot];
+        if (t.next != null) {
+            t.next.prev = t;
+        }
+        wheel[level][slot] = t;
+        pending++;
+    }
+
+    // lock held
+    private void unlink(Timeout t) {
+        if (t.prev != null) {
+            t.prev.next = t.next;
+        } else {
+            wheel[t.level][t.slot] = t.next;
+        }
+        if (t.next != null) {
+            t.next.prev = t.prev;
+        }
+        t.prev = null;
+        t.next = null;
+        t.level = -1;
+        pending--;
+    }
+
+    // lock held: empties a slot, returning its timers
+    private Timeout take(int level, int slot) {
+        Timeout head = wheel[level][slot];
+        wheel[level][slot] = null;
+        for (Timeout t = head; t != null; t = t.next) {
+            t.level = -1;
+            pending--;
+        }
+        return head;
+    }
+
+    // lock held: the earliest tick after current that has work, either an occupied level 0 slot
+    // or the boundary where an occupied higher slot cascades down
+    private long nextTick() {
+        long best = Long.MAX_VALUE;
+        for (int i = 1; i <= SLOTS; i++) {
+            if (wheel[0][(int) ((current + i) & SLOT_MASK)] != null) {
+                best = current + i;
+                break;
+            }
+        }
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            long base = current >>> shift;
+            for (int i = 1; i <= SLOTS; i++) {
+                if (wheel[level][(int) ((base + i) & SLOT_MASK)] != null) {
+                    best = Math.min(best, (base + i) << shift);
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    // lock held: moves current up to now, collecting every timer that came due on the way.
+    // jumps straight between ticks that have work, so an idle wheel costs nothing per tick
+    private void advance(long now, List<Timeout> due) {
+        while (current < now) {
+            long tick = nextTick();
+            if (tick > now) {
+                current = now;
+                return;
+            }
+            current = tick;
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                int shift = SLOT_BITS * level;
+                if ((tick & ((1L << shift) - 1)) == 0) {
+                    for (Timeout t = take(level, (int) ((tick >>> shift) & SLOT_MASK)), next; t != null; t = next) {
+                        next = t.next;
+                        insert(t, tick);
+                    }
+                }
+            }
+            for (Timeout t = take(0, (int) (tick & SLOT_MASK)), next; t != null; t = next) {
+                next = t.next;
+                t.next = null;
+                due.add(t);
+            }
+        }
+    }
+
+    private void run() {
+        List<Timeout> due = new ArrayList<>();
+        while (true) {
+            lock.lock();
+            try {
+                long now = nowTick();
+                advance(now, due);
+                if (due.isEmpty()) {
+                    if (closed) {
+                        return;
+                    }
+                    long tick = nextTick();
+                    nextWake = tick;
+                    if (tick == Long.MAX_VALUE) {
+                        changed.await();
+                    } else {
+                        changed.awaitNanos(origin + tick * TICK_NANOS - System.nanoTime());
+                    }
+                    nextWake = Long.MAX_VALUE;
+                    wakeups.incrementAndGet();
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            long now = nowTick();
+            for (Timeout t : due) {
+                fire(t, now);
+            }
+            due.clear();
+        }
+    }
+
+    private void fire(Timeout t, long now) {
+        if (t.cancelledFlag) {
+            return;
+        }
+        fired.incrementAndGet();
+        long lateTicks = now - t.deadline;
+        if (lateTicks > LATE_TICKS) {
+            late.incrementAndGet();
+            maxLateMs.accumulateAndGet(TimeUnit.NANOSECONDS.toMillis(lateTicks * TICK_NANOS), Math::max);
+        }
+        Thread.ofVirtual().name(t.name).start(() -> {
+            try {
+                t.task.run();
+            } catch (Exception e) {
+                Log.error("timer.task_failed", e, "timer", t.name);
+            }
+            if (t.periodTicks > 0) {
+                reschedule(t);
+            }
+        });
+    }
+
+    // next run of a repeating timer, one period after the one that just ran
+    private void reschedule(Timeout t) {
+        lock.lock();
+        try {
+            if (t.cancelledFlag) {
+                return;
+            }
+            long deadline = t.deadline + t.periodTicks;
+            long now = nowTick();
+            if (deadline <= now) {
+                // fell behind by a period or more; skip the missed runs
+                deadline = now + t.periodTicks - (now - t.deadline) % t.periodTicks;
+            }
+            t.deadline = align(deadline, t.slackTicks);
+            insert(t, current + 1);
+            if (t.deadline < nextWake) {
+                changed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
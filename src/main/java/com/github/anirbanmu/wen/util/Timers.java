@@ -0,0 +1,9 @@
+package com.github.anirbanmu.wen.util;
+
+public final class Timers {
+    // every periodic task in the process: feed refreshes, heartbeats, keepalive, stats, watchdog
+    public static final TimerWheel WHEEL = new TimerWheel("timer-wheel");
+
+    private Timers() {
+    }
+}
@@ -0,0 +1,249 @@
+package com.github.anirbanmu.wen;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.github.anirbanmu.wen.calendar.CalendarEvent;
+import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.calendar.EventTerms;
+import com.github.anirbanmu.wen.calendar.IcsCorpus;
+import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.config.Filter;
+import com.github.anirbanmu.wen.config.MatchField;
+import com.github.anirbanmu.wen.discord.json.GatewayEventParser;
+import com.github.anirbanmu.wen.discord.json.Interaction;
+import com.github.anirbanmu.wen.discord.json.Interaction.Data;
+import com.github.anirbanmu.wen.discord.json.Interaction.Option;
+import com.github.anirbanmu.wen.guild.GuildDefaults;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.RecordComponent;
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+// per-call allocation and retained-footprint budgets for the request hot path. on a 64MB heap a
+// few hundred bytes per event or a couple of KB per interaction is a real regression.
+// budgets live in src/test/resources/allocation-budgets.properties; raise them deliberately.
+class AllocationBudgetTest {
+    private static final int WARMUP = 5_000;
+    private static final int MEASURED = 2_000;
+    private static final int RETAINED_EVENTS = 5_000;
+
+    private static final String COMMAND = """
+        {"t":"INTERACTION_CREATE","s":7,"op":0,"d":{"version":1,"type":2,"token":"REDACTED","member":{"user":{"username":"racefan","public_flags":0,"id":"200000000000000000","global_name":"Race Fan","discriminator":"0","avatar":null},"roles":[],"permissions":"2248473465835073","pending":false,"nick":null,"mute":false,"joined_at":"2023-03-01T18:21:08.123000+00:00","flags":0,"deaf":false},"locale":"en-US","id":"1300000000000000000","guild_locale":"en-US","guild_id":"100000000000000000","entitlements":[],"data":{"type":1,"options":[{"value":"f1 sprint","type":3,"name":"query"}],"name":"wen","id":"1200000000000000000"},"context":0,"channel_id":"110000000000000000","application_id":"1100000000000000000","app_permissions":"2248473465835073"}}
+        """;
+
+    private static final String HEARTBEAT_ACK = """
+        {"t":null,"s":null,"op":11,"d":null}
+        """;
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static Properties budgets;
+    private static Instant anchor;
+    private static List<CalendarEvent> events;
+    private static Processor processor;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported(), "thread allocation accounting unavailable");
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        budgets = new Properties();
+        try (InputStream in = AllocationBudgetTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+            assertNotNull(in, "allocation-budgets.properties missing");
+            budgets.load(in);
+        }
+
+        anchor = Instant.now().truncatedTo(ChronoUnit.DAYS);
+        events = IcsCorpus.events(IcsCorpus.Spec.production(1).withAnchor(anchor));
+        Calendar f1 = new Calendar(
+            List.of("f1"), "Formula 1", "http://127.0.0.1/f1.ics", Duration.ofHours(6),
+            Map.of("sprint", new Filter("sprint", MatchField.SUMMARY)), null, true, null);
+        processor = new Processor(Map.of("f1", f1), Map.of("f1", CalendarFeed.fixed(events)),
+            Clock.fixed(anchor.plus(Duration.ofHours(1)), ZoneOffset.UTC));
+    }
+
+    @Test
+    void processorCommand() {
+        Interaction command = interaction(Interaction.TYPE_APPLICATION_COMMAND, "f1 sprint", null);
+        assertWithinBudget("processor.command", () -> processor.process(command));
+    }
+
+    @Test
+    void guildDefaultLookup() {
+        GuildDefaults defaults = new GuildDefaults(null);
+        defaults.set(100000000000000000L, "f1 sprint");
+        assertWithinBudget("guild.default_lookup", () -> defaults.get("100000000000000000"));
+    }
+
+    @Test
+    void processorAutocomplete() {
+        Interaction autocomplete = interaction(Interaction.TYPE_APPLICATION_COMMAND_AUTOCOMPLETE, "f1 s", true);
+        assertWithinBudget("processor.autocomplete", () -> processor.process(autocomplete));
+    }
+
+    @Test
+    void suggestionRebuild() {
+        // what Processor rebuilds on a refresh: a dozen calendars' keywords and filters, then each
+        // one's event terms
+        List<String> fixed = new ArrayList<>();
+        List<String> extra = new ArrayList<>();
+        List<EventTerms.Term> terms = EventTerms.extract(events, anchor, Processor.MAX_EVENT_TERMS);
+        for (int c = 0; c < 12; c++) {
+            for (String keyword : List.of("series" + c, "racing series " + c)) {
+                fixed.add(keyword);
+                for (String filter : List.of("practice", "qualifying", "sprint", "race")) {
+                    fixed.add(keyword + " " + filter);
+                }
+            }
+            for (EventTerms.Term term : terms) {
+                extra.add("series" + c + " " + term.text());
+            }
+        }
+        assertWithinBudget("suggestions.rebuild", () -> new SuggestionIndex(fixed, extra), 20, 50);
+    }
+
+    @Test
+    void calendarQuery() {
+        CalendarFeed feed = CalendarFeed.fixed(events);
+        Instant now = anchor.plus(Duration.ofHours(1));
+        assertWithinBudget("calendar.query", () -> feed.query(e -> e.lowerSummary().contains("sprint"), 2, now));
+    }
+
+    @Test
+    void gatewayParseCommand() {
+        GatewayEventParser parser = new GatewayEventParser();
+        assertWithinBudget("gateway.parse.command", () -> parser.parse(COMMAND));
+    }
+
+    @Test
+    void gatewayParseHeartbeatAck() {
+        GatewayEventParser parser = new GatewayEventParser();
+        assertWithinBudget("gateway.parse.heartbeat_ack", () -> parser.parse(HEARTBEAT_ACK));
+    }
+
+    @Test
+    void retainedSnapshotPerThousandEvents() {
+        List<CalendarEvent> snapshot = IcsCorpus.events(IcsCorpus.Spec.of(RETAINED_EVENTS, 2).withAnchor(anchor));
+        assertTrue(snapshot.size() > 0);
+
+        // sized from the snapshot's own object graph rather than a heap delta, which moves by more
+        // than the regression this is meant to catch between otherwise identical runs
+        long perThousand = new Footprint().of(snapshot) * 1000 / snapshot.size();
+        long budget = budget("feed.retained_per_1k_events");
+        assertTrue(perThousand <= budget, "retained " + perThousand + " bytes per 1k events, budget " + budget);
+    }
+
+    private static void assertWithinBudget(String key, Callable<?> call) {
+        assertWithinBudget(key, call, WARMUP, MEASURED);
+    }
+
+    private static void assertWithinBudget(String key, Callable<?> call, int warmup, int measured) {
+        long budget = budget(key);
+        long perCall = allocatedPerCall(call, warmup, measured);
+        assertTrue(perCall <= budget, key + " allocated " + perCall + " bytes/call, budget " + budget);
+    }
+
+    // steady-state average after warmup so one-off class init and jit noise don't count
+    private static long allocatedPerCall(Callable<?> call, int warmup, int measured) {
+        List<Object> sink = new ArrayList<>(1);
+        try {
+            for (int i = 0; i < warmup; i++) {
+                sink.add(call.call());
+                sink.clear();
+            }
+            long thread = Thread.currentThread().threadId();
+            long start = THREADS.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < measured; i++) {
+                sink.add(call.call());
+                sink.clear();
+            }
+            return (THREADS.getThreadAllocatedBytes(thread) - start) / measured;
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static long budget(String key) {
+        String value = budgets.getProperty(key);
+        assertNotNull(value, "no budget for " + key);
+        return Long.parseLong(value.strip());
+    }
+
+    private static Interaction interaction(int type, String query, Boolean focused) {
+        return Interaction.of(
+            "id", "appId", type,
+            Data.command("id", "wen", Data.TYPE_CHAT_INPUT, List.of(new Option("query", Option.TYPE_STRING, query, focused))),
+            "guild", "channel", "token");
+    }
+
+    // deep size of an object graph under the image's layout: 64-bit, compressed oops, compact object
+    // headers (8 byte object header, 12 byte array header), 8 byte alignment. shared objects count once.
+    // covers what a snapshot is made of: records, strings, instants and lists
+    private static final class Footprint {
+        private final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        long of(Object o) {
+            if (o == null || !seen.add(o)) {
+                return 0;
+            }
+            return switch (o) {
+                // value, hash, coder, hashIsZero
+                case String s -> align(8 + 4 + 4 + 1 + 1) + array(s.chars().allMatch(c -> c < 256) ? s.length() : 2L * s.length());
+                // seconds, nanos
+                case Instant _ -> align(8 + 8 + 4);
+                // the list (array ref, size) and its backing array
+                case List<?> list -> {
+                    long size = align(8 + 4 + 4) + array(4L * list.size());
+                    for (Object e : list) {
+                        size += of(e);
+                    }
+                    yield size;
+                }
+                case Record r -> {
+                    long shallow = 8;
+                    long deep = 0;
+                    for (RecordComponent c : r.getClass().getRecordComponents()) {
+                        Class<?> type = c.getType();
+                        shallow += type == long.class || type == double.class ? 8
+                            : type == int.class || type == float.class || !type.isPrimitive() ? 4
+                            : type == short.class || type == char.class ? 2 : 1;
+                        if (!type.isPrimitive()) {
+                            try {
+                                deep += of(c.getAccessor().invoke(r));
+                            } catch (ReflectiveOperationException e) {
+                                throw new AssertionError(e);
+                            }
+                        }
+                    }
+                    yield align(shallow) + deep;
+                }
+                default -> throw new AssertionError("no size for " + o.getClass());
+            };
+        }
+
+        private static long array(long payload) {
+            return align(12 + payload);
+        }
+
+        private static long align(long bytes) {
+            return (bytes + 7) & ~7L;
+        }
+    }
+}
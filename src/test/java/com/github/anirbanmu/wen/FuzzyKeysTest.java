@@ -0,0 +1,79 @@
+package com.github.anirbanmu.wen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class FuzzyKeysTest {
+
+    @Test
+    void correctsTyposWithinTheLengthBasedRadius() {
+        FuzzyKeys keys = new FuzzyKeys(List.of("f1", "formula1", "wrc", "nascar", "motogp", "indycar"));
+
+        assertEquals(List.of("formula1"), keys.find("formual1").closest());
+        assertEquals(List.of("nascar"), keys.find("nascr").closest());
+        assertEquals(List.of("wrc"), keys.find("wrx").closest());
+        // two characters: too short to guess at
+        assertEquals(List.of(), keys.find("f2").closest());
+        assertEquals(List.of("f1"), keys.find("f2").nearby());
+        assertEquals(List.of(), keys.find("cricket").closest());
+        assertEquals(List.of(), keys.find("cricket").nearby());
+    }
+
+    @Test
+    void tiesAreAllClosest() {
+        // Processor corrects a tie only when every closest key names the same calendar
+        FuzzyKeys keys = new FuzzyKeys(List.of("wec", "wrc", "f1"));
+        FuzzyKeys.Match match = keys.find("wxc");
+        assertEquals(List.of("wec", "wrc"), match.closest());
+        assertEquals(List.of("wec", "wrc"), match.nearby());
+    }
+
+    @Test
+    void findsTheSameKeysAsABruteForceScan() {
+        Random random = new Random(11);
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            all.add(word(random, 3 + random.nextInt(10)));
+        }
+        FuzzyKeys keys = new FuzzyKeys(all);
+
+        for (int i = 0; i < 500; i++) {
+            String q = random.nextBoolean() ? mutate(random, all.get(random.nextInt(all.size()))) : word(random, 3 + random.nextInt(10));
+            int reach = FuzzyKeys.radius(q.length()) + 1;
+            List<String> expected = all.stream().distinct()
+                .filter(k -> FuzzyKeys.distance(q, k) <= reach)
+                .sorted((a, b) -> FuzzyKeys.distance(q, a) != FuzzyKeys.distance(q, b)
+                    ? FuzzyKeys.distance(q, a) - FuzzyKeys.distance(q, b)
+                    : a.compareTo(b))
+                .limit(FuzzyKeys.MAX_SUGGESTIONS)
+                .toList();
+            assertEquals(expected, keys.find(q).nearby(), q);
+        }
+    }
+
+    @Test
+    void levenshtein() {
+        assertEquals(0, FuzzyKeys.distance("f1", "f1"));
+        assertEquals(2, FuzzyKeys.distance("formual1", "formula1"));
+        assertEquals(3, FuzzyKeys.distance("kitten", "sitting"));
+        assertEquals(4, FuzzyKeys.distance("", "abcd"));
+    }
+
+    private static String mutate(Random random, String s) {
+        int at = random.nextInt(s.length());
+        char c = (char) ('a' + random.nextInt(6));
+        return random.nextBoolean() ? s.substring(0, at) + c + s.substring(at + 1) : s.substring(0, at) + s.substring(at + 1) + c;
+    }
+
+    private static String word(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(6)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.anirbanmu.wen;
+
+import com.github.anirbanmu.wen.discord.FakeDiscord;
+import com.github.anirbanmu.wen.discord.PersistentGateway;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// injects one gateway fault under steady command traffic and measures how long the bot is
+// deaf: the longest gap between consecutive answered interactions around the fault. lost
+// (never answered) and replayed (answered twice) interactions are flagged.
+//
+// java GatewayFaultHarness   runs every fault and prints a table
+public final class GatewayFaultHarness {
+    // short heartbeat so ack-based detection finishes in well under a second
+    static final int HEARTBEAT_MS = 250;
+    static final Duration TRAFFIC_GAP = Duration.ofMillis(10);
+    static final Duration SETTLE = Duration.ofMillis(300);
+    static final Duration RECOVERY_TIMEOUT = Duration.ofSeconds(15);
+    static final Duration SLOW_HELLO = Duration.ofMillis(1500);
+    // traffic outpaces the ~45/s response limiter, so a replayed backlog takes a few seconds to
+    // answer; lost means still unanswered after this
+    static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(10);
+
+    public enum Fault {
+        RECONNECT_OPCODE,
+        INVALID_SESSION_RESUMABLE,
+        INVALID_SESSION_NON_RESUMABLE,
+        HEARTBEAT_ACKS_DROPPED,
+        HALF_OPEN_SOCKET,
+        TCP_ABORT,
+        SLOW_HELLO
+    }
+
+    public record Result(Fault fault, long deafMs, String recoveredBy, int lost, int replayed) {
+        @Override
+        public String toString() {
+            return String.format("%-30s deaf=%5dms via=%-8s lost=%d replayed=%d", fault, deafMs, recoveredBy, lost, replayed);
+        }
+    }
+
+    private GatewayFaultHarness() {
+    }
+
+    public static Result run(Fault fault) throws Exception {
+        try (FakeDiscord fake = FakeDiscord.start(HEARTBEAT_MS)) {
+            PersistentGateway gateway = LoadGenerator.connectBot(fake);
+            try {
+                if (!fake.awaitSession(Duration.ofSeconds(10))) {
+                    throw new IllegalStateException("bot never identified");
+                }
+
+                Thread traffic = Thread.ofVirtual().name("fault-traffic").start(() -> {
+                    try {
+                        while (!Thread.currentThread().isInterrupted()) {
+                            fake.sendCommand("f1");
+                            Thread.sleep(TRAFFIC_GAP);
+                        }
+                    } catch (InterruptedException e) {
+                        // done
+                    }
+                });
+
+                Thread.sleep(SETTLE);
+                int identifies = fake.identifies();
+                int resumes = fake.resumes();
+                long faultAt = System.nanoTime();
+                inject(fake, fault);
+
+                // recovered once a new identify/resume has attached to a live connection
+                long deadline = System.nanoTime() + RECOVERY_TIMEOUT.toNanos();
+                while (fake.identifies() == identifies && fake.resumes() == resumes) {
+                    if (System.nanoTime() > deadline) {
+                        throw new IllegalStateException(fault + ": bot never reconnected");
+                    }
+                    Thread.sleep(5);
+                }
+                fake.awaitSession(RECOVERY_TIMEOUT);
+                String recoveredBy = fake.resumes() > resumes ? "resume" : "identify";
+
+                Thread.sleep(SETTLE);
+                traffic.interrupt();
+                traffic.join();
+
+                long drainUntil = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+                while (!fake.unanswered().isEmpty() && System.nanoTime() < drainUntil) {
+                    Thread.sleep(20);
+                }
+
+                return new Result(fault, deafMs(fake.answerTimes(), faultAt), recoveredBy, fake.unanswered().size(), fake.duplicates().size());
+            } finally {
+                gateway.disconnect();
+            }
+        }
+    }
+
+    private static void inject(FakeDiscord fake, Fault fault) {
+        switch (fault) {
+            case RECONNECT_OPCODE -> fake.requestReconnect();
+            case INVALID_SESSION_RESUMABLE -> fake.invalidateSession(true);
+            case INVALID_SESSION_NON_RESUMABLE -> fake.invalidateSession(false);
+            case HEARTBEAT_ACKS_DROPPED -> fake.dropHeartbeatAcks();
+            case HALF_OPEN_SOCKET -> fake.halfOpen();
+            case TCP_ABORT -> fake.abortConnection();
+            case SLOW_HELLO -> {
+                fake.delayHello(SLOW_HELLO, 1);
+                fake.abortConnection();
+            }
+        }
+    }
+
+    // longest gap between consecutive answers from the last answer before the fault onward
+    static long deafMs(long[] answerTimes, long faultAt) {
+        long prev = -1;
+        long maxGap = 0;
+        for (long t : answerTimes) {
+            if (t > faultAt && prev >= 0) {
+                maxGap = Math.max(maxGap, t - prev);
+            }
+            prev = t;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(maxGap);
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (Fault fault : Fault.values()) {
+            System.out.println(run(fault));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.anirbanmu.wen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.anirbanmu.wen.GatewayFaultHarness.Fault;
+import com.github.anirbanmu.wen.GatewayFaultHarness.Result;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+// the fault scenarios run real sockets and heartbeats for several seconds each, so they're tagged
+// out of the default run: mvn -B -Pfaults test
+class GatewayFaultHarnessTest {
+
+    @Tag("fault")
+    @ParameterizedTest
+    @EnumSource(value = Fault.class, names = "INVALID_SESSION_NON_RESUMABLE", mode = EnumSource.Mode.EXCLUDE)
+    void resumableFaultsLoseNothing(Fault fault) throws Exception {
+        Result result = GatewayFaultHarness.run(fault);
+
+        assertEquals("resume", result.recoveredBy(), result.toString());
+        assertEquals(0, result.lost(), result.toString());
+        assertEquals(0, result.replayed(), result.toString());
+        assertTrue(result.deafMs() < 5_000, result.toString());
+    }
+
+    @Tag("fault")
+    @Test
+    void nonResumableInvalidSessionReidentifiesWithoutReplay() throws Exception {
+        // a fresh session gets no replay, so interactions sent in the gap are lost by design
+        Result result = GatewayFaultHarness.run(Fault.INVALID_SESSION_NON_RESUMABLE);
+
+        assertEquals("identify", result.recoveredBy(), result.toString());
+        assertEquals(0, result.replayed(), result.toString());
+        assertTrue(result.deafMs() < 5_000, result.toString());
+    }
+
+    @Test
+    void deafGapIsMeasuredFromLastAnswerBeforeFault() {
+        long[] times = {0, 10_000_000, 20_000_000, 520_000_000, 530_000_000};
+        assertEquals(500, GatewayFaultHarness.deafMs(times, 15_000_000));
+        assertEquals(0, GatewayFaultHarness.deafMs(new long[0], 0));
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.anirbanmu.wen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.anirbanmu.wen.calendar.CalendarEvent;
+import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.config.Filter;
+import com.github.anirbanmu.wen.config.MatchField;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+
+class IcsExportTest {
+    private static final Instant START = Instant.parse("2026-06-01T13:00:00Z");
+
+    private static final Calendar F1 = new Calendar(List.of("f1", "Formula 1"), "Formula 1", "http://f1", Duration.ofHours(1),
+        Map.of("sprint", new Filter("sprint", MatchField.SUMMARY)), null, false, null);
+
+    private static final CalendarFeed FEED = CalendarFeed.fixed(List.of(
+        CalendarEvent.create("F1 Sprint", START, START.plus(Duration.ofHours(1)), "Miami, FL; USA", null, null),
+        CalendarEvent.create("F1 Race", START.plus(Duration.ofDays(1)), START.plus(Duration.ofDays(1).plusHours(2)), null,
+            "Lights out " + "é".repeat(60), List.of("race"))));
+
+    @Test
+    void bodyIsBuiltOncePerSnapshot() throws IOException {
+        IcsExport export = new IcsExport(Map.of(F1, FEED));
+        IcsExport.Body body = export.body("f1/sprint");
+        assertSame(body, export.body("f1/sprint"));
+        assertNull(export.body("f1/race"));
+        assertNull(export.body("nascar"));
+
+        String ics = gunzip(body.gzip());
+        assertTrue(ics.startsWith("BEGIN:VCALENDAR\r\n"), ics);
+        assertTrue(ics.contains("DTSTART:20260601T130000Z\r\n"), ics);
+        assertTrue(ics.contains("LOCATION:Miami\\, FL\\; USA\r\n"), ics);
+        assertFalse(ics.contains("F1 Race"), ics);
+
+        // a rebuild of the same events is the same etag, so a new IcsExport (a reload, a restart) still gets 304s
+        assertEquals(body.etag(), new IcsExport(Map.of(F1, FEED)).body("f1/sprint").etag());
+        assertFalse(body.etag().equals(export.body("formula-1").etag()));
+    }
+
+    @Test
+    void dtstampIsTheBuildTimeAndLeavesTheEtagAlone() throws IOException {
+        IcsExport.Body body = new IcsExport(Map.of(F1, FEED), Clock.fixed(Instant.parse("2026-05-01T08:30:00Z"), ZoneOffset.UTC))
+            .body("f1/sprint");
+        String ics = gunzip(body.gzip());
+        assertTrue(ics.contains("DTSTAMP:20260501T083000Z\r\n"), ics);
+        assertTrue(ics.contains("DTSTART:20260601T130000Z\r\n"), ics);
+
+        IcsExport.Body later = new IcsExport(Map.of(F1, FEED), Clock.fixed(Instant.parse("2026-05-02T09:00:00Z"), ZoneOffset.UTC))
+            .body("f1/sprint");
+        assertTrue(gunzip(later.gzip()).contains("DTSTAMP:20260502T090000Z\r\n"));
+        assertEquals(body.etag(), later.etag());
+    }
+
+    @Test
+    void gzipRefusedByQualityZero() {
+        assertTrue(IcsExport.acceptsGzip("gzip"));
+        assertTrue(IcsExport.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(IcsExport.acceptsGzip("br;q=1.0, *;q=0.1"));
+        assertTrue(IcsExport.acceptsGzip("*;q=0, gzip"));
+        assertFalse(IcsExport.acceptsGzip(null));
+        assertFalse(IcsExport.acceptsGzip("identity"));
+        assertFalse(IcsExport.acceptsGzip("gzip;q=0"));
+        assertFalse(IcsExport.acceptsGzip("gzip; q=0.0, *"));
+        assertFalse(IcsExport.acceptsGzip("*;q=0"));
+        assertFalse(IcsExport.acceptsGzip("gzip;q=bogus"));
+    }
+
+    @Test
+    void longLinesFoldWithoutSplittingCharacters() throws IOException {
+        String ics = gunzip(new IcsExport(Map.of(F1, FEED)).body("f1").gzip());
+        for (String line : ics.split("\r\n")) {
+            assertTrue(line.getBytes(StandardCharsets.UTF_8).length <= 75, line);
+        }
+        assertTrue(ics.replace("\r\n ", "").contains("DESCRIPTION:Lights out " + "é".repeat(60) + "\r\n"), ics);
+        assertTrue(ics.contains("CATEGORIES:race\r\n"), ics);
+    }
+
+    @Test
+    void servesGzipAndAnswersRevalidationWith304() throws Exception {
+        IcsExport export = new IcsExport(Map.of(F1, FEED));
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(IcsExport.PREFIX, IcsExport.handler(() -> export));
+        server.start();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort() + IcsExport.PREFIX;
+
+            HttpResponse<byte[]> first = client.send(HttpRequest.newBuilder(URI.create(base + "F1/sprint.ics"))
+                .header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, first.statusCode());
+            assertEquals("gzip", first.headers().firstValue("Content-Encoding").orElse(null));
+            assertTrue(gunzip(first.body()).contains("SUMMARY:F1 Sprint"));
+            String etag = first.headers().firstValue("ETag").orElseThrow();
+
+            HttpResponse<byte[]> again = client.send(HttpRequest.newBuilder(URI.create(base + "f1/sprint.ics"))
+                .header("If-None-Match", "\"0\", W/" + etag).build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(304, again.statusCode());
+            assertEquals(0, again.body().length);
+
+            HttpResponse<String> plain = client.send(HttpRequest.newBuilder(URI.create(base + "f1/sprint")).build(),
+                HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, plain.statusCode());
+            assertTrue(plain.body().contains("SUMMARY:F1 Sprint"), plain.body());
+
+            HttpResponse<String> refused = client.send(HttpRequest.newBuilder(URI.create(base + "f1/sprint.ics"))
+                .header("Accept-Encoding", "gzip;q=0, identity").build(), HttpResponse.BodyHandlers.ofString());
+            assertTrue(refused.headers().firstValue("Content-Encoding").isEmpty());
+            assertTrue(refused.body().contains("SUMMARY:F1 Sprint"), refused.body());
+
+            assertEquals(404, client.send(HttpRequest.newBuilder(URI.create(base + "nascar.ics")).build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+            assertEquals(405, client.send(HttpRequest.newBuilder(URI.create(base + "f1.ics")).DELETE().build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static String gunzip(byte[] gzip) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
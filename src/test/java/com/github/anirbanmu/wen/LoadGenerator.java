@@ -0,0 +1,158 @@
+package com.github.anirbanmu.wen;
+
+import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.calendar.IcsCorpus;
+import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.config.Filter;
+import com.github.anirbanmu.wen.config.MatchField;
+import com.github.anirbanmu.wen.discord.DiscordHttpClient;
+import com.github.anirbanmu.wen.discord.FakeDiscord;
+import com.github.anirbanmu.wen.discord.LatencyRecorder;
+import com.github.anirbanmu.wen.discord.PersistentGateway;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// end-to-end load against FakeDiscord: steady /wen commands plus autocomplete bursts
+// (one interaction per keystroke), reporting callback latency percentiles.
+//
+// in-process (real Processor/DiscordHttpClient/PersistentGateway wiring):
+// java LoadGenerator [commandsPerSecond] [burstsPerSecond] [seconds]
+//
+// external bot: java LoadGenerator --external ... then start the jar with the printed env
+public final class LoadGenerator {
+    static final String[] SPORTS = {"f1", "motogp", "wec", "indycar", "wrc", "formula-e"};
+    static final String[] COMMANDS = {"f1", "f1 sprint", "motogp", "wec quali", "f1 monaco", "indycar race", "help", "formula-e", "nope"};
+    static final String[] TYPED = {"f1 sprint", "motogp race", "wec quali", "indycar", "formula-e sprint"};
+
+    private LoadGenerator() {
+    }
+
+    public record Profile(int commandsPerSecond, int burstsPerSecond, Duration duration, Duration keystrokeGap) {
+        public static Profile of(int commandsPerSecond, int burstsPerSecond, Duration duration) {
+            return new Profile(commandsPerSecond, burstsPerSecond, duration, Duration.ofMillis(60));
+        }
+    }
+
+    public record Report(LatencyRecorder.Summary commands, LatencyRecorder.Summary autocomplete, int unanswered, int duplicates) {
+        @Override
+        public String toString() {
+            return "commands:     " + commands + "\nautocomplete: " + autocomplete + "\nunanswered=" + unanswered + " duplicates=" + duplicates;
+        }
+    }
+
+    public static Report run(FakeDiscord fake, Profile profile) throws InterruptedException {
+        long end = System.nanoTime() + profile.duration().toNanos();
+        long commandGap = profile.commandsPerSecond() > 0 ? 1_000_000_000L / profile.commandsPerSecond() : Long.MAX_VALUE;
+        long burstGap = profile.burstsPerSecond() > 0 ? 1_000_000_000L / profile.burstsPerSecond() : Long.MAX_VALUE;
+
+        try (ExecutorService bursts = Executors.newVirtualThreadPerTaskExecutor()) {
+            long nextCommand = System.nanoTime();
+            long nextBurst = nextCommand;
+            int c = 0;
+            int b = 0;
+            while (System.nanoTime() < end) {
+                long now = System.nanoTime();
+                if (now >= nextCommand) {
+                    fake.sendCommand(COMMANDS[c++ % COMMANDS.length]);
+                    nextCommand += commandGap;
+                }
+                if (now >= nextBurst) {
+                    String typed = TYPED[b++ % TYPED.length];
+                    bursts.execute(() -> typeOut(fake, typed, profile.keystrokeGap()));
+                    nextBurst += burstGap;
+                }
+                long sleepNanos = Math.min(nextCommand, nextBurst) - System.nanoTime();
+                if (sleepNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(Math.min(sleepNanos, end - System.nanoTime()));
+                }
+            }
+        }
+
+        // let in-flight callbacks land
+        long drainUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!fake.unanswered().isEmpty() && System.nanoTime() < drainUntil) {
+            Thread.sleep(20);
+        }
+
+        return new Report(
+            fake.latencies().get(FakeDiscord.Kind.COMMAND).summary(),
+            fake.latencies().get(FakeDiscord.Kind.AUTOCOMPLETE).summary(),
+            fake.unanswered().size(),
+            fake.duplicates().size());
+    }
+
+    // "f1 sprint" -> "f", "f1", "f1 ", "f1 s", ...
+    private static void typeOut(FakeDiscord fake, String text, Duration gap) {
+        for (int i = 1; i <= text.length(); i++) {
+            fake.sendAutocomplete(text.substring(0, i));
+            try {
+                Thread.sleep(gap);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // synthetic calendars over fixed corpus feeds; no network
+    static Processor processor() {
+        Map<String, Calendar> configs = new HashMap<>();
+        Map<String, CalendarFeed> feeds = new HashMap<>();
+        for (int i = 0; i < SPORTS.length; i++) {
+            String sport = SPORTS[i];
+            Calendar config = new Calendar(
+                List.of(sport), sport.toUpperCase() + " Championship", "http://127.0.0.1/" + sport + ".ics", Duration.ofHours(6),
+                Map.of("sprint", new Filter("sprint", MatchField.SUMMARY),
+                    "quali", new Filter("qualifying", MatchField.SUMMARY),
+                    "race", new Filter("grand prix", MatchField.SUMMARY)),
+                null, i == 0, null);
+            configs.put(sport, config);
+            feeds.put(sport, CalendarFeed.fixed(IcsCorpus.events(IcsCorpus.Spec.of(IcsCorpus.PRODUCTION_EVENTS / 4, i))));
+        }
+        return new Processor(configs, feeds);
+    }
+
+    // the same pieces Main wires, pointed at the fake
+    static PersistentGateway connectBot(FakeDiscord fake) {
+        DiscordHttpClient http = new DiscordHttpClient("fake-token", fake.apiUrl());
+        PersistentGateway gateway = new PersistentGateway("fake-token", fake.gatewayUrl(), Main.interactionHandler(processor(), http));
+        gateway.connect();
+        return gateway;
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean external = args.length > 0 && args[0].equals("--external");
+        int offset = external ? 1 : 0;
+        int commands = args.length > offset ? Integer.parseInt(args[offset]) : 20;
+        int bursts = args.length > offset + 1 ? Integer.parseInt(args[offset + 1]) : 2;
+        int seconds = args.length > offset + 2 ? Integer.parseInt(args[offset + 2]) : 30;
+
+        try (FakeDiscord fake = FakeDiscord.start()) {
+            PersistentGateway gateway = null;
+            if (external) {
+                System.out.println("DISCORD_GATEWAY_URL=" + fake.gatewayUrl());
+                System.out.println("DISCORD_API_URL=" + fake.apiUrl());
+                System.out.println("waiting for the bot to identify...");
+                while (!fake.awaitSession(Duration.ofSeconds(1))) {
+                    // keep waiting
+                }
+            } else {
+                gateway = connectBot(fake);
+                if (!fake.awaitSession(Duration.ofSeconds(10))) {
+                    throw new IllegalStateException("bot never identified");
+                }
+            }
+
+            Report report = run(fake, Profile.of(commands, bursts, Duration.ofSeconds(seconds)));
+            System.out.println(report);
+
+            if (gateway != null) {
+                gateway.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.anirbanmu.wen;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.anirbanmu.wen.discord.FakeDiscord;
+import com.github.anirbanmu.wen.discord.PersistentGateway;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class LoadGeneratorTest {
+
+    @Test
+    void botAnswersEveryInteractionFromFakeDiscord() throws Exception {
+        try (FakeDiscord fake = FakeDiscord.start()) {
+            PersistentGateway gateway = LoadGenerator.connectBot(fake);
+            try {
+                assertTrue(fake.awaitSession(Duration.ofSeconds(10)), "bot should identify against the fake gateway");
+                assertEquals(1, fake.identifies());
+
+                LoadGenerator.Report report = LoadGenerator.run(fake, LoadGenerator.Profile.of(20, 2, Duration.ofMillis(1500)));
+
+                assertTrue(report.commands().count() >= 20, report.toString());
+                assertTrue(report.autocomplete().count() > 0, report.toString());
+                assertEquals(0, report.unanswered(), report.toString());
+                assertEquals(0, report.duplicates(), report.toString());
+            } finally {
+                gateway.disconnect();
+            }
+        }
+    }
+}
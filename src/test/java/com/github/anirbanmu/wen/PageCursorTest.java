@@ -0,0 +1,38 @@
+package com.github.anirbanmu.wen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class PageCursorTest {
+
+    @Test
+    void roundTripsIncludingColonsInTheQuery() {
+        PageCursor cursor = new PageCursor(Instant.ofEpochSecond(1_780_000_000L), 2, Instant.MAX, "f1 next 5: extra");
+        assertEquals(cursor, PageCursor.decode(cursor.encode()));
+        PageCursor bounded = new PageCursor(Instant.ofEpochSecond(1_780_000_000L), 0, Instant.ofEpochSecond(1_790_000_000L), "f1");
+        assertEquals(bounded, PageCursor.decode(bounded.encode()));
+    }
+
+    @Test
+    void skipIsBounded() {
+        assertEquals(PageCursor.MAX_SKIP, PageCursor.decode("more:1780000000:" + PageCursor.MAX_SKIP + ":-:f1").skip());
+        assertNull(PageCursor.decode("more:1780000000:" + (PageCursor.MAX_SKIP + 1) + ":-:f1"));
+        assertNull(PageCursor.decode("more:1780000000:2147483647:-:f1"));
+        assertNull(PageCursor.decode("more:1780000000:-1:-:f1"));
+        // no button rather than one that can't be pressed
+        assertNull(new PageCursor(Instant.ofEpochSecond(1_780_000_000L), PageCursor.MAX_SKIP + 1, Instant.MAX, "f1").encode());
+    }
+
+    @Test
+    void instantsOutOfRangeAreNotCursors() {
+        assertNull(PageCursor.decode("more:9223372036854775807:0:-:f1"));
+        assertNull(PageCursor.decode("more:1780000000:0:-9223372036854775808:f1"));
+        assertNull(PageCursor.decode("more:x:0:-:f1"));
+        assertNull(PageCursor.decode("more:1780000000:0"));
+        assertNull(PageCursor.decode("other:1:0:-:f1"));
+        assertNull(PageCursor.decode(null));
+    }
+}
@@ -5,13 +5,24 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.github.anirbanmu.wen.calendar.CalendarEvent;
 import com.github.anirbanmu.wen.calendar.CalendarFeed;
 import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.config.Filter;
+import com.github.anirbanmu.wen.config.MatchField;
+import com.github.anirbanmu.wen.config.VirtualCalendar;
+import com.github.anirbanmu.wen.discord.DiscordResult;
 import com.github.anirbanmu.wen.discord.json.Interaction;
 import com.github.anirbanmu.wen.discord.json.Interaction.Data;
 import com.github.anirbanmu.wen.discord.json.Interaction.Option;
 import com.github.anirbanmu.wen.discord.json.InteractionResponse;
+import com.github.anirbanmu.wen.guild.GuildDefaults;
+import com.github.anirbanmu.wen.reminder.Reminders;
+import com.github.anirbanmu.wen.util.TimerWheel;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -67,15 +78,242 @@ class ProcessorTest {
         assertNull(response.data().embeds());
     }
 
+    @Test
+    void testAutocompleteSuggestsUpcomingEventTerms() {
+        Calendar config = new Calendar(
+            List.of("f1"), "Formula 1", "http://invalid.url", Duration.ofHours(1),
+            Map.of("sprint", new Filter("sprint", MatchField.SUMMARY)), null, false, null);
+        Instant start = Instant.now().plus(Duration.ofDays(3));
+        List<CalendarEvent> events = new ArrayList<>();
+        for (String place : List.of("Monaco", "Barcelona", "Montreal", "Austria", "Silverstone")) {
+            events.add(CalendarEvent.create(place + " Grand Prix", start, start.plus(Duration.ofHours(2)), null, null, null));
+            start = start.plus(Duration.ofDays(7));
+        }
+        Processor processor = new Processor(Map.of("f1", config), Map.of("f1", CalendarFeed.fixed(events)));
+
+        assertEquals(List.of("f1 monaco", "f1 montreal"), choices(processor, "f1 mon"));
+        // named filters first, then event terms soonest first
+        assertEquals(List.of("f1 sprint", "f1 monaco", "f1 barcelona", "f1 montreal", "f1 austria", "f1 silverstone"),
+            choices(processor, "f1 "));
+    }
+
+    @Test
+    void testMistypedCalendarIsCorrectedOrSuggested() {
+        Calendar config = new Calendar(
+            List.of("formula1", "f1"), "Formula 1", "http://invalid.url", Duration.ofHours(1),
+            Collections.emptyMap(), null, false, null);
+        Processor processor = new Processor(Map.of("formula1", config, "f1", config), Map.of("formula1", CalendarFeed.fixed(List.of()), "f1", CalendarFeed.fixed(List.of())));
+
+        assertEquals("No upcoming events found for Formula 1", processor.process(createWenInteraction("formual1 monaco")).data().content());
+
+        InteractionResponse suggested = processor.process(createWenInteraction("formxyz1"));
+        assertEquals("Unknown calendar: formxyz1", suggested.data().embeds().getFirst().title());
+        assertTrue(suggested.data().embeds().getFirst().description().contains("`formula1`"));
+
+        assertTrue(processor.process(createWenInteraction("cricket")).data().content().startsWith("Unknown calendar:"));
+    }
+
+    @Test
+    void testGroupQueriesMergeCalendars() {
+        Instant now = Instant.now();
+        Calendar f1 = new Calendar(List.of("f1"), "Formula 1", "http://f1", Duration.ofHours(1), Collections.emptyMap(), null, false, null);
+        Calendar motogp = new Calendar(List.of("motogp"), "MotoGP", "http://motogp", Duration.ofHours(1), Collections.emptyMap(), null, false, null);
+        Calendar wrc = new Calendar(List.of("wrc"), "WRC", "http://wrc", Duration.ofHours(1), Collections.emptyMap(), null, false, null);
+        Map<String, CalendarFeed> feeds = Map.of(
+            "f1", CalendarFeed.fixed(List.of(event("Monaco GP", now, 30), event("Canada GP", now, 50))),
+            "motogp", CalendarFeed.fixed(List.of(event("Mugello", now, 10), event("Assen", now, 40))),
+            "wrc", CalendarFeed.fixed(List.of(event("Rally Italia", now, 20))));
+        Processor processor = new Processor(Map.of("f1", f1, "motogp", motogp, "wrc", wrc), feeds,
+            List.of(new VirtualCalendar(List.of("bikes-and-cars"), "Circuits", List.of("f1", "motogp"))), Clock.systemUTC());
+
+        String adhoc = processor.process(createWenInteraction("f1 motogp")).data().embeds().getFirst().description();
+        assertTrue(adhoc.indexOf("Mugello") < adhoc.indexOf("Monaco GP") && adhoc.indexOf("Monaco GP") < adhoc.indexOf("Assen"), adhoc);
+        assertTrue(!adhoc.contains("Rally"), adhoc);
+
+        String all = processor.process(createWenInteraction("all")).data().embeds().getFirst().description();
+        assertTrue(all.indexOf("Mugello") < all.indexOf("Rally Italia") && all.indexOf("Rally Italia") < all.indexOf("Monaco GP"), all);
+
+        InteractionResponse virtual = processor.process(createWenInteraction("bikes-and-cars canada"));
+        assertEquals("Circuits", virtual.data().embeds().getFirst().author().name());
+        assertTrue(virtual.data().embeds().getFirst().description().startsWith("Formula 1 · **Canada GP**"));
+
+        // a word that isn't a calendar keeps the free-text filter meaning
+        assertEquals("Formula 1", processor.process(createWenInteraction("f1 monaco")).data().embeds().getFirst().author().name());
+    }
+
+    @Test
+    void testTimeWindowsAndCounts() {
+        Instant now = Instant.now();
+        Calendar f1 = new Calendar(List.of("f1"), "Formula 1", "http://f1", Duration.ofHours(1), Collections.emptyMap(), null, false, null);
+        List<CalendarEvent> events = new ArrayList<>();
+        for (int day = 1; day <= 40; day += 3) {
+            events.add(event((day % 2 == 0 ? "Sprint " : "Race ") + day, now, day));
+        }
+        Processor processor = new Processor(Map.of("f1", f1), Map.of("f1", CalendarFeed.fixed(events)));
+
+        InteractionResponse next = processor.process(createWenInteraction("f1 next 5"));
+        assertEquals("Formula 1 · next 5", next.data().embeds().getFirst().author().name());
+        assertEquals(5, next.data().embeds().getFirst().description().split("\n\n").length);
+
+        // the filter still applies inside the window: days 4, 10, 16, 22, 28 within 30 days
+        String sprints = processor.process(createWenInteraction("f1 sprint in 30d")).data().embeds().getFirst().description();
+        assertEquals(5, sprints.split("\n\n").length, sprints);
+        assertTrue(!sprints.contains("Sprint 34"), sprints);
+
+        assertEquals(TimeWindow.MAX_EVENTS,
+            processor.process(createWenInteraction("f1 next 50")).data().embeds().getFirst().description().split("\n\n").length);
+        assertEquals("No events found for Formula 1 in 12h", processor.process(createWenInteraction("f1 in 12h")).data().content());
+    }
+
+    @Test
+    void testPagesFollowTheCursorInTheButton() {
+        Instant now = Instant.now();
+        Calendar f1 = new Calendar(List.of("f1"), "Formula 1", "http://f1", Duration.ofHours(1), Collections.emptyMap(), null, false, null);
+        // three events share a start, so a page boundary falls between them
+        List<CalendarEvent> events = new ArrayList<>(List.of(event("Race 1", now, 1), event("Race 2a", now, 2), event("Race 2b", now, 2),
+            event("Race 2c", now, 2), event("Race 3", now, 3)));
+        Processor processor = new Processor(Map.of("f1", f1), Map.of("f1", CalendarFeed.fixed(events)));
+
+        List<String> seen = new ArrayList<>();
+        InteractionResponse response = processor.process(createWenInteraction("F1"));
+        assertEquals(InteractionResponse.TYPE_CHANNEL_MESSAGE_WITH_SOURCE, response.type());
+        while (true) {
+            for (String line : response.data().embeds().getFirst().description().split("\n\n")) {
+                seen.add(line.substring(2, line.indexOf("**", 2)));
+            }
+            if (response.data().components() == null || response.data().components().isEmpty()) {
+                break;
+            }
+            String customId = response.data().components().getFirst().components().getFirst().customId();
+            assertTrue(customId.length() <= PageCursor.MAX_CUSTOM_ID, customId);
+            response = processor.process(Interaction.of("id", "appId", Interaction.TYPE_MESSAGE_COMPONENT, Data.component(customId),
+                "guild", "channel", "token"));
+            assertEquals(InteractionResponse.TYPE_UPDATE_MESSAGE, response.type());
+        }
+        assertEquals(List.of("Race 1", "Race 2a", "Race 2b", "Race 2c", "Race 3"), seen);
+
+        // a cursor past the end of the feed gets a private note, not an edit
+        String past = new PageCursor(now.plus(Duration.ofDays(30)), 0, Instant.MAX, "f1").encode();
+        InteractionResponse none = processor.process(Interaction.of("id", "appId", Interaction.TYPE_MESSAGE_COMPONENT, Data.component(past),
+            "guild", "channel", "token"));
+        assertEquals(InteractionResponse.Data.FLAG_EPHEMERAL, none.data().flags());
+        assertNull(processor.process(Interaction.of("id", "appId", Interaction.TYPE_MESSAGE_COMPONENT, Data.component("other:1"),
+            "guild", "channel", "token")));
+    }
+
+    @Test
+    void testSubscribeCommands() {
+        Instant now = Instant.now();
+        Calendar f1 = new Calendar(List.of("f1"), "Formula 1", "http://f1", Duration.ofHours(1),
+            Map.of("sprint", new Filter("sprint", MatchField.SUMMARY)), null, false, null);
+        CalendarFeed feed = CalendarFeed.fixed(List.of(event("F1 Sprint", now, 2), event("F1 Race", now, 3)));
+        try (TimerWheel wheel = new TimerWheel("test-wheel")) {
+            Reminders reminders = new Reminders(wheel, (_, _) -> new DiscordResult.Success<>(null), Clock.systemUTC());
+            Processor processor = new Processor(Map.of("f1", f1), Map.of("f1", feed), List.of(), Clock.systemUTC(), reminders);
+
+            assertEquals("Changing reminders needs the Manage Server permission",
+                processor.process(createWenInteraction("subscribe f1 sprint")).data().content());
+            assertEquals(0, reminders.count());
+
+            String on = processor.process(admin("subscribe F1 sprint 2h")).data().content();
+            assertTrue(on.startsWith("⏰ Reminders on for **Formula 1** sprint, 2h before each event\nNext: **Sprint**"), on);
+            assertEquals(new Reminders.Topic("f1", "sprint", Duration.ofHours(2)), reminders.topics(Long.parseUnsignedLong("555")).getFirst());
+            assertEquals("This channel already has that reminder",
+                processor.process(admin("subscribe f1 sprint 2h")).data().content());
+            // a typo is still corrected, and the default lead applies
+            processor.process(admin("subscribe formual1"));
+            // anyone may list them
+            assertTrue(processor.process(createWenInteraction("subscriptions")).data().content().contains("`f1` · 15m before"));
+            assertEquals("Changing reminders needs the Manage Server permission",
+                processor.process(createWenInteraction("unsubscribe f1 sprint")).data().content());
+
+            assertEquals("Reminders off for **Formula 1** sprint", processor.process(admin("unsubscribe f1 sprint")).data().content());
+            assertEquals(1, reminders.count());
+            assertTrue(processor.process(admin("subscribe nascar")).data().content().startsWith("Unknown calendar"));
+            // a dm has no one else to ask
+            assertTrue(processor.process(guildInteraction(null, "subscribe f1 sprint", null)).data().content().startsWith("⏰"));
+        }
+    }
+
+    @Test
+    void testGuildDefaultReplacesFallback() {
+        Instant now = Instant.now();
+        Calendar f1 = new Calendar(List.of("f1"), "Formula 1", "http://f1", Duration.ofHours(1),
+            Map.of("sprint", new Filter("sprint", MatchField.SUMMARY)), null, true, null);
+        Calendar motogp = new Calendar(List.of("motogp"), "MotoGP", "http://motogp", Duration.ofHours(1), Collections.emptyMap(), null, false, null);
+        GuildDefaults defaults = new GuildDefaults(null);
+        Processor processor = new Processor(Map.of("f1", f1, "motogp", motogp),
+            Map.of("f1", CalendarFeed.fixed(List.of(event("F1 Sprint", now, 1), event("F1 Race", now, 2))),
+                "motogp", CalendarFeed.fixed(List.of(event("MotoGP Race", now, 1)))),
+            List.of(), Clock.systemUTC(), null, defaults);
+        String admin = String.valueOf(Interaction.MANAGE_GUILD | 1);
+
+        assertEquals("Formula 1", processor.process(guildInteraction("7", null, null)).data().embeds().getFirst().author().name());
+        assertEquals("Changing the default needs the Manage Server permission",
+            processor.process(guildInteraction("7", "default motogp", "1")).data().content());
+        assertTrue(processor.process(guildInteraction("7", "default cricket", admin)).data().content().startsWith("Unknown calendar"));
+
+        assertEquals("`/wen` here now shows `motogp`", processor.process(guildInteraction("7", "default  MotoGP ", admin)).data().content());
+        assertEquals("MotoGP", processor.process(guildInteraction("7", null, null)).data().embeds().getFirst().author().name());
+        assertEquals("MotoGP", processor.process(guildInteraction("7", " ", null)).data().embeds().getFirst().author().name());
+        // other guilds keep the fallback
+        assertEquals("Formula 1", processor.process(guildInteraction("8", null, null)).data().embeds().getFirst().author().name());
+        assertEquals("`/wen` here shows `motogp`", processor.process(guildInteraction("7", "default", null)).data().content());
+
+        processor.process(guildInteraction("7", "default f1 sprint", admin));
+        String sprint = processor.process(guildInteraction("7", null, null)).data().embeds().getFirst().description();
+        assertTrue(sprint.contains("Sprint") && !sprint.contains("Race"), sprint);
+
+        assertTrue(processor.process(guildInteraction("7", "default clear", admin)).data().content().startsWith("Default cleared"));
+        assertNull(defaults.get(7));
+        assertEquals("Defaults are set per server", processor.process(guildInteraction(null, "default f1", admin)).data().content());
+    }
+
+    @Test
+    void testDescriptionStaysUnderDiscordLimit() {
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entries.add("x".repeat(900));
+        }
+        String desc = Processor.describe(entries);
+        assertTrue(desc.length() <= Processor.MAX_DESCRIPTION, String.valueOf(desc.length()));
+        assertTrue(desc.endsWith("+6 more"), desc);
+
+        assertTrue(Processor.describe(List.of("y".repeat(10_000))).length() <= Processor.MAX_DESCRIPTION);
+    }
+
+    private static CalendarEvent event(String summary, Instant now, int days) {
+        Instant start = now.plus(Duration.ofDays(days));
+        return CalendarEvent.create(summary, start, start.plus(Duration.ofHours(2)), null, null, null);
+    }
+
+    private static List<String> choices(Processor processor, String partial) {
+        Interaction interaction = Interaction.of(
+            "id", "appId", Interaction.TYPE_APPLICATION_COMMAND_AUTOCOMPLETE,
+            Data.command("id", "wen", Data.TYPE_CHAT_INPUT, List.of(new Option("query", Option.TYPE_STRING, partial, true))),
+            "guild", "channel", "token");
+        return processor.process(interaction).data().choices().stream().map(InteractionResponse.Choice::name).toList();
+    }
+
+    private static Interaction admin(String query) {
+        return guildInteraction("7", query, String.valueOf(Interaction.MANAGE_GUILD));
+    }
+
+    private static Interaction guildInteraction(String guildId, String query, String permissions) {
+        List<Option> options = query == null ? List.of() : List.of(new Option("query", Option.TYPE_STRING, query, null));
+        return new Interaction("id", "appId", Interaction.TYPE_APPLICATION_COMMAND, Data.command("id", "wen", Data.TYPE_CHAT_INPUT, options),
+            guildId, "555", "token", permissions == null ? null : new Interaction.Member(permissions));
+    }
+
     private Interaction createWenInteraction(String query) {
         List<Option> options = new java.util.ArrayList<>();
         if (query != null) {
             options.add(new Option("query", Option.TYPE_STRING, query, null));
         }
 
-        return new Interaction(
+        return Interaction.of(
             "id", "appId", Interaction.TYPE_APPLICATION_COMMAND,
-            new Data("id", "wen", Data.TYPE_CHAT_INPUT, options),
-            "guild", "channel", "token");
+            Data.command("id", "wen", Data.TYPE_CHAT_INPUT, options),
+            "guild", "555", "token");
     }
 }
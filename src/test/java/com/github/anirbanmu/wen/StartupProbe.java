@@ -0,0 +1,52 @@
+package com.github.anirbanmu.wen;
+
+import com.github.anirbanmu.wen.calendar.IcsCorpus;
+import com.github.anirbanmu.wen.discord.FakeDiscord;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+// discord + calendar host stand-in for docker/startup-bench.sh. prints the bot's env as
+// shell exports, then keeps sending `/wen f1` once the bot identifies and exits when the
+// first one is answered. the bot itself logs startup.first_response.
+public final class StartupProbe {
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    private StartupProbe() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (FakeDiscord fake = FakeDiscord.start(); IcsCorpus.Server ics = IcsCorpus.Server.start()) {
+            StringBuilder toml = new StringBuilder();
+            for (int i = 0; i < LoadGenerator.SPORTS.length; i++) {
+                String sport = LoadGenerator.SPORTS[i];
+                String url = ics.put(sport + ".ics", IcsCorpus.Spec.of(IcsCorpus.PRODUCTION_EVENTS / 4, i));
+                toml.append("[[calendars]]\n")
+                    .append("keywords = [\"").append(sport).append("\"]\n")
+                    .append("name = \"").append(sport.toUpperCase()).append(" Championship\"\n")
+                    .append("url = \"").append(url).append("\"\n")
+                    .append("fallback = ").append(i == 0).append("\n\n");
+            }
+
+            System.out.println("export DISCORD_GATEWAY_URL=" + fake.gatewayUrl());
+            System.out.println("export DISCORD_API_URL=" + fake.apiUrl());
+            System.out.println("export WEN_CONFIG_B64=" + Base64.getEncoder().encodeToString(toml.toString().getBytes(StandardCharsets.UTF_8)));
+            System.out.println("# ready");
+            System.out.flush();
+
+            long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while (!fake.awaitSession(Duration.ofSeconds(1))) {
+                if (System.nanoTime() > deadline) {
+                    System.exit(1);
+                }
+            }
+            while (fake.answered() == 0) {
+                if (System.nanoTime() > deadline) {
+                    System.exit(1);
+                }
+                fake.sendCommand("f1");
+                Thread.sleep(50);
+            }
+        }
+    }
+}
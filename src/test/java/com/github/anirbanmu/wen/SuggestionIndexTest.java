@@ -0,0 +1,84 @@
+package com.github.anirbanmu.wen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.anirbanmu.wen.discord.json.InteractionResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class SuggestionIndexTest {
+
+    @Test
+    void prefixMatchesComeFirstThenSubstringsShortestFirst() {
+        SuggestionIndex index = new SuggestionIndex(List.of("f1", "f1 sprint", "formula1", "help", "wrc", "wrc shakedown", "nascar"));
+
+        assertEquals(List.of("f1", "formula1", "f1 sprint"), names(index.autocomplete("f")));
+        // nothing starts with "1"; these contain it
+        assertEquals(List.of("f1", "formula1", "f1 sprint"), names(index.autocomplete("1")));
+        assertEquals(List.of("nascar", "formula1", "wrc shakedown"), names(index.autocomplete("a")));
+        assertEquals(List.of(), names(index.autocomplete("zzz")));
+        assertEquals(List.of(), names(index.autocomplete("f1 sprintx")));
+        assertEquals(List.of("f1 sprint"), names(index.autocomplete("1 spr")));
+    }
+
+    @Test
+    void shortQueriesAreServedPrebuilt() {
+        SuggestionIndex index = new SuggestionIndex(List.of("f1", "f1 sprint", "formula1", "help"));
+        assertSame(index.autocomplete("f"), index.autocomplete("f"));
+        assertSame(index.autocomplete("f1"), index.autocomplete("f1"));
+        assertSame(index.autocomplete(""), index.autocomplete(""));
+        assertEquals(4, index.autocomplete("").data().choices().size());
+    }
+
+    @Test
+    void matchesTheLinearScanItReplaced() {
+        Random random = new Random(7);
+        String alphabet = "abcde 1";
+        Set<String> suggestions = new HashSet<>();
+        while (suggestions.size() < 400) {
+            suggestions.add(word(random, alphabet, 1 + random.nextInt(12)));
+        }
+        SuggestionIndex index = new SuggestionIndex(suggestions);
+
+        for (int i = 0; i < 2000; i++) {
+            String q = word(random, alphabet, random.nextInt(7));
+            assertEquals(linearScan(index.suggestions(), q), names(index.autocomplete(q)), "query '" + q + "'");
+        }
+    }
+
+    // the pre-index implementation: prefix pass, then substring pass, capped at 25
+    private static List<String> linearScan(List<String> ranked, String q) {
+        List<String> out = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String s : ranked) {
+            if (s.startsWith(q) && seen.add(s) && out.add(s) && out.size() >= SuggestionIndex.MAX_CHOICES) {
+                return out;
+            }
+        }
+        for (String s : ranked) {
+            if (s.contains(q) && seen.add(s) && out.add(s) && out.size() >= SuggestionIndex.MAX_CHOICES) {
+                return out;
+            }
+        }
+        return out;
+    }
+
+    private static String word(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    private static List<String> names(InteractionResponse response) {
+        assertTrue(response.data().choices().size() <= SuggestionIndex.MAX_CHOICES);
+        return response.data().choices().stream().map(InteractionResponse.Choice::name).toList();
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.anirbanmu.wen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class TimeWindowTest {
+    // a wednesday
+    private static final Instant NOW = Instant.parse("2026-06-03T15:00:00Z");
+
+    @Test
+    void parsesCountsAndSpans() {
+        TimeWindow next = TimeWindow.parse("f1 sprint next 5", NOW);
+        assertEquals("f1 sprint", next.rest());
+        assertEquals(5, next.max());
+        assertEquals(Instant.MAX, next.to());
+
+        assertEquals(TimeWindow.MAX_EVENTS, TimeWindow.parse("f1 next 99", NOW).max());
+
+        TimeWindow span = TimeWindow.parse("MotoGP  in 30 days", NOW);
+        assertEquals("motogp", span.rest());
+        assertEquals("in 30d", span.label());
+        assertEquals(Instant.parse("2026-07-03T15:00:00Z"), span.to());
+        assertEquals(NOW.plus(TimeWindow.MAX_SPAN), TimeWindow.parse("f1 in 900w", NOW).to());
+    }
+
+    @Test
+    void resolvesNamedWindowsInUtc() {
+        TimeWindow weekend = TimeWindow.parse("f1 this weekend", NOW);
+        assertEquals(Instant.parse("2026-06-06T00:00:00Z"), weekend.from());
+        assertEquals(Instant.parse("2026-06-08T00:00:00Z"), weekend.to());
+
+        // on a sunday the weekend is already underway
+        Instant sunday = Instant.parse("2026-06-07T10:00:00Z");
+        assertEquals(sunday, TimeWindow.parse("f1 this weekend", sunday).from());
+        assertEquals(Instant.parse("2026-06-13T00:00:00Z"), TimeWindow.parse("f1 next weekend", sunday).from());
+
+        assertEquals(Instant.parse("2026-06-04T00:00:00Z"), TimeWindow.parse("today", NOW).to());
+        assertEquals("", TimeWindow.parse("today", NOW).rest());
+        assertEquals(Instant.parse("2026-06-08T00:00:00Z"), TimeWindow.parse("f1 next week", NOW).from());
+    }
+
+    @Test
+    void leavesOtherQueriesAlone() {
+        assertNull(TimeWindow.parse("f1 monaco", NOW));
+        assertNull(TimeWindow.parse("f1 next", NOW));
+        assertNull(TimeWindow.parse("f1 next 0", NOW));
+        assertNull(TimeWindow.parse("f1 in 2026", NOW));
+        assertNull(TimeWindow.parse(null, NOW));
+    }
+}
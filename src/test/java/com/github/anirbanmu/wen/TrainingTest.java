@@ -0,0 +1,67 @@
+package com.github.anirbanmu.wen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.anirbanmu.wen.config.ConfigLoader;
+import com.github.anirbanmu.wen.config.WenConfig;
+import com.github.anirbanmu.wen.discord.json.GatewayEvent;
+import com.github.anirbanmu.wen.discord.json.GatewayEventParser;
+import com.github.anirbanmu.wen.discord.json.InteractionResponse;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TrainingTest {
+
+    // fixtures must keep producing real embeds or training stops covering the formatting path
+    @Test
+    void fixturesAnswerEveryCalendarWithEvents() throws Exception {
+        WenConfig config;
+        try (InputStream in = Training.class.getResourceAsStream("/training/config.toml")) {
+            assertNotNull(in);
+            config = ConfigLoader.load(in);
+        }
+        Processor processor = Training.processor(config, Instant.now());
+
+        for (String query : List.of("f1", "f1 sprint", "formula1 race", "motogp", "motogp practice")) {
+            InteractionResponse response = processor.process(parse(Training.command(1, query)));
+            assertNotNull(response.data().embeds(), query + ": " + response.data().content());
+        }
+    }
+
+    @Test
+    void syntheticInteractionsParse() throws Exception {
+        WenConfig config;
+        try (InputStream in = Training.class.getResourceAsStream("/training/config.toml")) {
+            config = ConfigLoader.load(in);
+        }
+        List<String> payloads = Training.interactions(config.calendars());
+        assertFalse(payloads.isEmpty());
+
+        int autocompletes = 0;
+        for (String payload : payloads) {
+            var interaction = parse(payload);
+            assertEquals("wen", interaction.data().name());
+            if (interaction.type() == 4) {
+                autocompletes++;
+            }
+        }
+        assertTrue(autocompletes > payloads.size() / 2);
+    }
+
+    @Test
+    void queriesAreEscapedInThePayload() throws Exception {
+        String query = "say \"hi\" \\ bye\n";
+        assertEquals(query, parse(Training.command(1, query)).data().options().getFirst().value());
+        assertEquals(query, parse(Training.autocomplete(2, query)).data().options().getFirst().value());
+    }
+
+    private static com.github.anirbanmu.wen.discord.json.Interaction parse(String payload) throws Exception {
+        GatewayEvent event = new GatewayEventParser().parse(payload).event();
+        return ((GatewayEvent.InteractionCreate) event).interaction();
+    }
+}
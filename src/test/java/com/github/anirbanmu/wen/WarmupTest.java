@@ -0,0 +1,68 @@
+package com.github.anirbanmu.wen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.calendar.FeedRegistry;
+import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.config.WenConfig;
+import com.github.anirbanmu.wen.discord.json.Interaction;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class WarmupTest {
+
+    @Test
+    void stopsAtTimeBudget() throws Exception {
+        Warmup.Result result = Warmup.run(processors(), interactions(), Duration.ofMillis(300), Long.MAX_VALUE);
+
+        assertTrue(result.rounds() > 1, result.toString());
+        // one round past the deadline at most
+        assertTrue(result.elapsedMs() < 1_000, result.toString());
+        // the cold round loads classes and runs interpreted; some later round beats it even with the
+        // last one landing on a gc pause
+        assertTrue(result.bestRoundNanos() < result.firstRoundNanos(), result.toString());
+    }
+
+    @Test
+    void stopsAtAllocationBudget() throws Exception {
+        Warmup.Result result = Warmup.run(processors(), interactions(), Duration.ofMinutes(1), 1);
+
+        assertEquals(1, result.rounds(), result.toString());
+        assertTrue(result.allocatedBytes() > 0, result.toString());
+        assertEquals(result.firstRoundNanos(), result.bestRoundNanos(), result.toString());
+    }
+
+    @Test
+    void warmupQueriesDontCountTowardPopularity() throws Exception {
+        WenConfig config = Training.fixtureConfig();
+        FeedRegistry registry = new FeedRegistry(null);
+        Map<Calendar, CalendarFeed> views = new LinkedHashMap<>();
+        for (Calendar calendar : config.calendars()) {
+            views.put(calendar, registry.view(calendar));
+        }
+
+        Warmup.run(config, views, Duration.ofMillis(200), Long.MAX_VALUE);
+        for (CalendarFeed feed : views.values()) {
+            assertEquals(0, feed.pendingQueries());
+        }
+        // while a real query through the live view still counts
+        CalendarFeed first = views.values().iterator().next();
+        first.query(_ -> true, 1);
+        assertEquals(1, first.pendingQueries());
+    }
+
+    private static List<Processor> processors() throws Exception {
+        return List.of(Training.processor(Training.fixtureConfig(), Instant.now()));
+    }
+
+    private static List<Interaction> interactions() throws Exception {
+        WenConfig config = Training.fixtureConfig();
+        return Warmup.parse(Training.interactions(config.calendars()));
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.anirbanmu.wen.calendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class EventTermsTest {
+    private static final Instant NOW = Instant.parse("2026-05-20T00:00:00Z");
+
+    @Test
+    void distinctiveTermsSoonestFirst() {
+        List<CalendarEvent> events = new ArrayList<>();
+        String[][] rounds = {{"Bahrain", "Sakhir"}, {"Monaco", "Monte Carlo"}, {"British", "Silverstone"}, {"Italian", "Monza"}};
+        for (int week = 0; week < rounds.length; week++) {
+            for (String session : new String[] {"Practice 1", "Qualifying", "Grand Prix"}) {
+                Instant start = NOW.plus(Duration.ofDays(7L * week - 7 + 1));
+                events.add(CalendarEvent.create("FORMULA 1 " + rounds[week][0] + " " + session + " 2026", start, start.plus(Duration.ofHours(2)),
+                    rounds[week][1], null, null));
+            }
+        }
+
+        List<EventTerms.Term> terms = EventTerms.extract(events, NOW, 32);
+        List<String> texts = terms.stream().map(EventTerms.Term::text).toList();
+
+        // bahrain is over; monaco's weekend is next
+        assertFalse(texts.contains("bahrain"));
+        assertEquals(List.of("monte carlo", "monte", "carlo", "monaco"), texts.subList(0, 4));
+        assertTrue(texts.containsAll(List.of("silverstone", "british", "monza", "italian")));
+        // on every event, so they say nothing about which one
+        assertFalse(texts.contains("formula"));
+        assertFalse(texts.contains("2026"));
+        assertEquals(events.get(3).start(), terms.getFirst().next());
+    }
+
+    @Test
+    void capsTermsPerFeed() {
+        List<CalendarEvent> events = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Instant start = NOW.plus(Duration.ofHours(i + 1));
+            events.add(CalendarEvent.create("Stage " + Integer.toString(i * 7919, 36) + "xx", start, start.plus(Duration.ofHours(1)), null, null, null));
+        }
+        assertEquals(10, EventTerms.extract(events, NOW, 10).size());
+    }
+}
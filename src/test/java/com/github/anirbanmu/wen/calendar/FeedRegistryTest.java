@@ -0,0 +1,266 @@
+package com.github.anirbanmu.wen.calendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.config.Filter;
+import com.github.anirbanmu.wen.config.MatchField;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class FeedRegistryTest {
+
+    @Test
+    void calendarsOnOneUrlShareASingleFetch() throws Exception {
+        byte[] ics = IcsCorpus.generate(IcsCorpus.Spec.of(300, 4)).getBytes(StandardCharsets.UTF_8);
+        AtomicInteger fetches = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/feed.ics", exchange -> {
+            fetches.incrementAndGet();
+            exchange.sendResponseHeaders(200, ics.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(ics);
+            }
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/feed.ics";
+            Calendar races = calendar("races", url, Duration.ofHours(6), new Filter("grand prix", MatchField.SUMMARY));
+            Calendar practice = calendar("practice", url, Duration.ofHours(1), new Filter("practice", MatchField.SUMMARY));
+            Calendar everything = calendar("all", url, Duration.ofHours(3), null);
+
+            FeedRegistry registry = new FeedRegistry(null);
+            CalendarFeed racesFeed = registry.view(races);
+            CalendarFeed practiceFeed = registry.view(practice);
+            CalendarFeed allFeed = registry.view(everything);
+            registry.start();
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(15).toNanos();
+            while (allFeed.getEvents().isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+
+            assertEquals(1, registry.sourceCount());
+            assertEquals(1, fetches.get());
+            assertFalse(racesFeed.getEvents().isEmpty());
+            assertFalse(practiceFeed.getEvents().isEmpty());
+            assertTrue(racesFeed.getEvents().stream().allMatch(e -> e.lowerSummary().contains("grand prix")));
+            assertTrue(practiceFeed.getEvents().stream().allMatch(e -> e.lowerSummary().contains("practice")));
+            assertTrue(allFeed.getEvents().size() > racesFeed.getEvents().size() + practiceFeed.getEvents().size());
+            // views share the parsed events rather than re-parsing
+            assertSame(allFeed.getEvents().get(allFeed.getEvents().indexOf(racesFeed.getEvents().getFirst())), racesFeed.getEvents().getFirst());
+            assertEquals(racesFeed.snapshotHash(), practiceFeed.snapshotHash());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void sharedSourceRefreshesAtShortestInterval() {
+        FeedSource source = new FeedSource("http://invalid.url", Duration.ofHours(6), null);
+        source.requestInterval(Duration.ofHours(12));
+        source.requestInterval(Duration.ofMinutes(30));
+        source.requestInterval(Duration.ofHours(1));
+        assertEquals(Duration.ofMinutes(30), source.refreshInterval());
+    }
+
+    @Test
+    void initialLoadFetchesInParallelWithinTheHostLimit() throws Exception {
+        byte[] ics = IcsCorpus.generate(IcsCorpus.Spec.of(20, 1)).getBytes(StandardCharsets.UTF_8);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        HttpServer server = server(exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            exchange.sendResponseHeaders(200, ics.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(ics);
+            }
+        });
+        try {
+            FeedRegistry registry = new FeedRegistry(null);
+            List<CalendarFeed> views = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                views.add(registry.view(calendar("c" + i, url(server, "/c" + i + ".ics"), Duration.ofHours(6), null)));
+            }
+            assertEquals(0, registry.loadedFraction());
+
+            FeedRegistry.LoadResult result = registry.load(Duration.ofSeconds(15), 2);
+
+            assertEquals(5, result.loaded());
+            assertEquals(1.0, registry.loadedFraction());
+            assertTrue(views.stream().noneMatch(v -> v.getEvents().isEmpty()));
+            assertTrue(maxInFlight.get() <= 2, "max in flight " + maxInFlight.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void initialLoadGivesUpOnStragglersAtTheDeadline() throws Exception {
+        byte[] ics = IcsCorpus.generate(IcsCorpus.Spec.of(20, 1)).getBytes(StandardCharsets.UTF_8);
+        HttpServer server = server(exchange -> {
+            if (exchange.getRequestURI().getPath().equals("/slow.ics")) {
+                try {
+                    Thread.sleep(30_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.sendResponseHeaders(200, ics.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(ics);
+            }
+        });
+        try {
+            FeedRegistry registry = new FeedRegistry(null);
+            CalendarFeed fast = registry.view(calendar("fast", url(server, "/fast.ics"), Duration.ofHours(6), null));
+            CalendarFeed slow = registry.view(calendar("slow", url(server, "/slow.ics"), Duration.ofHours(6), null));
+
+            long start = System.nanoTime();
+            FeedRegistry.LoadResult result = registry.load(Duration.ofSeconds(1), 4);
+            long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+            assertTrue(elapsedMs < 10_000, "load took " + elapsedMs + "ms");
+            assertEquals(1, result.loaded());
+            assertEquals(2, result.total());
+            assertEquals(0.5, registry.loadedFraction());
+            assertFalse(fast.getEvents().isEmpty());
+            assertTrue(slow.getEvents().isEmpty());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void reconcileKeepsUnchangedViewsAndParsedSources() throws Exception {
+        byte[] ics = IcsCorpus.generate(IcsCorpus.Spec.of(100, 2)).getBytes(StandardCharsets.UTF_8);
+        Map<String, AtomicInteger> fetches = new ConcurrentHashMap<>();
+        HttpServer server = server(exchange -> {
+            fetches.computeIfAbsent(exchange.getRequestURI().getPath(), _ -> new AtomicInteger()).incrementAndGet();
+            exchange.sendResponseHeaders(200, ics.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(ics);
+            }
+        });
+        try {
+            Calendar races = calendar("races", url(server, "/a.ics"), Duration.ofHours(6), new Filter("grand prix", MatchField.SUMMARY));
+            Calendar practice = calendar("practice", url(server, "/a.ics"), Duration.ofHours(6), new Filter("practice", MatchField.SUMMARY));
+            Calendar other = calendar("other", url(server, "/b.ics"), Duration.ofHours(6), null);
+
+            FeedRegistry registry = new FeedRegistry(null);
+            CalendarFeed racesFeed = registry.view(races);
+            CalendarFeed practiceFeed = registry.view(practice);
+            registry.view(other);
+            registry.load(Duration.ofSeconds(15), 4);
+            registry.start();
+
+            // practice's filter edited, other dropped, a new url added
+            Calendar qualifying = calendar("practice", url(server, "/a.ics"), Duration.ofHours(6), new Filter("qualifying", MatchField.SUMMARY));
+            Calendar added = calendar("added", url(server, "/c.ics"), Duration.ofHours(6), null);
+            Map<Calendar, CalendarFeed> views = registry.reconcile(List.of(races, qualifying, added), Duration.ofSeconds(15), 4);
+
+            assertEquals(3, views.size());
+            assertSame(racesFeed, views.get(races));
+            assertFalse(views.get(qualifying).getEvents().isEmpty());
+            assertTrue(views.get(qualifying).getEvents().stream().allMatch(e -> e.lowerSummary().contains("qualifying")));
+            assertFalse(views.get(added).getEvents().isEmpty());
+            // the edited calendar reused the already parsed url
+            assertEquals(1, fetches.get("/a.ics").get());
+            assertEquals(1, fetches.get("/c.ics").get());
+            assertEquals(2, registry.sourceCount());
+            // the replaced view no longer follows the source
+            assertEquals(2, racesFeed.source().listenerCount());
+            assertFalse(practiceFeed.getEvents().isEmpty());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void feedFailingAtStartupDoesntHoldUpReadinessOrTheRefreshPolicy() throws Exception {
+        byte[] ics = IcsCorpus.generate(IcsCorpus.Spec.of(20, 1)).getBytes(StandardCharsets.UTF_8);
+        AtomicInteger downFetches = new AtomicInteger();
+        AtomicBoolean down = new AtomicBoolean(true);
+        HttpServer server = server(exchange -> {
+            if (exchange.getRequestURI().getPath().equals("/down.ics")) {
+                downFetches.incrementAndGet();
+                if (down.get()) {
+                    exchange.sendResponseHeaders(500, -1);
+                    exchange.close();
+                    return;
+                }
+            }
+            exchange.sendResponseHeaders(200, ics.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(ics);
+            }
+        });
+        try {
+            FeedRegistry registry = new FeedRegistry(null);
+            registry.view(calendar("up", url(server, "/up.ics"), Duration.ofHours(6), null));
+            CalendarFeed failing = registry.view(calendar("down", url(server, "/down.ics"), Duration.ofSeconds(1), null));
+
+            assertEquals(1, registry.load(Duration.ofSeconds(15), 4).loaded());
+            long start = System.nanoTime();
+            assertFalse(registry.awaitReady(0.8, Duration.ofMillis(300), Duration.ofMillis(50)));
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2_000);
+
+            // a query since the last plan; planning a refresh takes it into the policy and resets it
+            failing.query(_ -> true, 1);
+            registry.start();
+            // by the third fetch, the second (the first refresh) has failed and been rescheduled
+            long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            while (downFetches.get() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(downFetches.get() >= 3, "fetches " + downFetches.get());
+            // failures went to the error backoff without being planned as quiet fetches
+            assertEquals(1, failing.pendingQueries());
+
+            down.set(false);
+            assertTrue(registry.awaitReady(1.0, Duration.ofSeconds(30), Duration.ofMillis(50)), "fetches " + downFetches.get());
+            assertFalse(failing.getEvents().isEmpty());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static HttpServer server(HttpHandler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", handler);
+        server.start();
+        return server;
+    }
+
+    private static String url(HttpServer server, String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static Calendar calendar(String keyword, String url, Duration interval, Filter prefilter) {
+        return new Calendar(List.of(keyword), keyword, url, interval, Map.of(), prefilter, false, null);
+    }
+}
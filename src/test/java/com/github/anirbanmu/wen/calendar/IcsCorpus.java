@@ -0,0 +1,359 @@
+package com.github.anirbanmu.wen.calendar;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+// deterministic synthetic ics feeds for parse/scale testing. same spec + seed + anchor -> same bytes.
+//
+// java IcsCorpus <events> <seed> <out.ics>   writes a feed to disk
+public final class IcsCorpus {
+    // roughly the largest feed we run in production, and ten times that
+    public static final int PRODUCTION_EVENTS = 1_500;
+    public static final int TEN_X_EVENTS = 15_000;
+
+    private static final int FOLD_OCTETS = 75;
+    private static final DateTimeFormatter UTC_FMT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter LOCAL_FMT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final String[] SERIES = {"F1", "MotoGP", "WEC", "IndyCar", "WRC", "Formula E"};
+    private static final String[] SESSIONS = {"Practice 1", "Practice 2", "Practice 3", "Qualifying", "Sprint", "Grand Prix", "Warm Up"};
+    private static final String[] VENUES = {"Bahrain", "Jeddah", "Melbourne", "Suzuka", "Shanghai", "Miami", "Imola", "Monaco", "Montréal", "Barcelona",
+        "Spielberg", "Silverstone", "Budapest", "Spa-Francorchamps", "Zandvoort", "Monza", "Baku", "Singapore", "Austin", "México City", "São Paulo",
+        "Las Vegas", "Lusail", "Yas Marina"};
+    private static final String[] DAYS = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+
+    // zones with hand-written VTIMEZONE blocks below; null = floating UTC ("Z") times
+    private static final String[] ZONES = {null, "Europe/London", "America/New_York", "Australia/Melbourne", "Asia/Tokyo"};
+
+    private IcsCorpus() {
+    }
+
+    public record Spec(
+        int events,
+        double recurringFraction,
+        int maxExdates,
+        int descriptionChars,
+        double multiDayFraction,
+        long seed,
+        Instant anchor) {
+
+        public static Spec of(int events, long seed) {
+            return new Spec(events, 0.2, 4, 600, 0.05, seed, Instant.now().truncatedTo(ChronoUnit.DAYS));
+        }
+
+        public static Spec production(long seed) {
+            return of(PRODUCTION_EVENTS, seed);
+        }
+
+        public static Spec tenX(long seed) {
+            return of(TEN_X_EVENTS, seed);
+        }
+
+        public Spec withAnchor(Instant anchor) {
+            return new Spec(events, recurringFraction, maxExdates, descriptionChars, multiDayFraction, seed, anchor);
+        }
+    }
+
+    public static String generate(Spec spec) {
+        SplittableRandom rnd = new SplittableRandom(spec.seed());
+        StringBuilder out = new StringBuilder(spec.events() * (spec.descriptionChars() + 400));
+
+        line(out, "BEGIN:VCALENDAR");
+        line(out, "VERSION:2.0");
+        line(out, "PRODID:-//wen//synthetic corpus//EN");
+        line(out, "CALSCALE:GREGORIAN");
+        line(out, "X-WR-CALNAME:Synthetic Motorsport");
+        for (String zone : ZONES) {
+            if (zone != null) {
+                out.append(VTIMEZONES.get(zone));
+            }
+        }
+
+        // spread events from a week in the past to a year ahead so some have already ended
+        long spanMinutes = Duration.ofDays(372).toMinutes();
+        Instant base = spec.anchor().minus(Duration.ofDays(7));
+
+        for (int i = 0; i < spec.events(); i++) {
+            String series = SERIES[rnd.nextInt(SERIES.length)];
+            String session = SESSIONS[rnd.nextInt(SESSIONS.length)];
+            String venue = VENUES[rnd.nextInt(VENUES.length)];
+            String zone = ZONES[rnd.nextInt(ZONES.length)];
+
+            Instant start = base.plus(Duration.ofMinutes(rnd.nextLong(spanMinutes) / 15 * 15));
+            boolean multiDay = rnd.nextDouble() < spec.multiDayFraction();
+            boolean recurring = !multiDay && rnd.nextDouble() < spec.recurringFraction();
+
+            line(out, "BEGIN:VEVENT");
+            line(out, "UID:synthetic-" + spec.seed() + "-" + i + "@wen");
+            line(out, "DTSTAMP:" + UTC_FMT.format(spec.anchor()));
+
+            if (multiDay) {
+                // all-day, 2-4 day "race weekend" style event
+                LocalDateTime day = LocalDateTime.ofInstant(start, ZoneOffset.UTC);
+                line(out, "DTSTART;VALUE=DATE:" + DATE_FMT.format(day));
+                line(out, "DTEND;VALUE=DATE:" + DATE_FMT.format(day.plusDays(2 + rnd.nextInt(3))));
+            } else {
+                line(out, "DTSTART" + dateTime(start, zone));
+                if (rnd.nextBoolean()) {
+                    line(out, "DTEND" + dateTime(start.plus(Duration.ofMinutes(30L + rnd.nextInt(8) * 30L)), zone));
+                } else {
+                    line(out, "DURATION:PT" + (1 + rnd.nextInt(3)) + "H");
+                }
+            }
+
+            if (recurring) {
+                recurrence(out, rnd, start, zone, spec.maxExdates());
+            }
+
+            line(out, "SUMMARY:" + escape(series + ": " + venue + " " + session));
+            line(out, "LOCATION:" + escape("Circuit " + venue + ", " + venue));
+            line(out, "DESCRIPTION:" + escape(htmlDescription(rnd, series, venue, session, spec.descriptionChars())));
+            line(out, "CATEGORIES:" + escape(series) + "," + escape(session));
+            line(out, "STATUS:CONFIRMED");
+            line(out, "END:VEVENT");
+        }
+
+        line(out, "END:VCALENDAR");
+        return out.toString();
+    }
+
+    // parsed, sorted events - for wiring fixed feeds outside this package
+    public static List<CalendarEvent> events(Spec spec) {
+        return CalendarFeed.parse(generate(spec), _ -> true);
+    }
+
+    public static Path write(Spec spec, Path file) throws IOException {
+        Files.writeString(file, generate(spec), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    // dense weekly/daily rules with exdates that land on real occurrences
+    private static void recurrence(StringBuilder out, SplittableRandom rnd, Instant start, String zone, int maxExdates) {
+        int count = 4 + rnd.nextInt(40);
+        int stepDays;
+        if (rnd.nextBoolean()) {
+            stepDays = 7;
+            String day = DAYS[start.atZone(zone == null ? ZoneOffset.UTC : ZoneId.of(zone)).getDayOfWeek().getValue() - 1];
+            line(out, "RRULE:FREQ=WEEKLY;BYDAY=" + day + ";COUNT=" + count);
+        } else {
+            stepDays = 1 + rnd.nextInt(3);
+            line(out, "RRULE:FREQ=DAILY;INTERVAL=" + stepDays + ";COUNT=" + count);
+        }
+
+        int exdates = rnd.nextInt(maxExdates + 1);
+        for (int e = 0; e < exdates; e++) {
+            // step in local time so the exdate still matches across dst changes
+            ZoneId tz = zone == null ? ZoneOffset.UTC : ZoneId.of(zone);
+            Instant skipped = start.atZone(tz).plusDays((long) stepDays * (1 + rnd.nextInt(count - 1))).toInstant();
+            line(out, "EXDATE" + dateTime(skipped, zone));
+        }
+    }
+
+    private static String dateTime(Instant instant, String zone) {
+        if (zone == null) {
+            return ":" + UTC_FMT.format(instant);
+        }
+        return ";TZID=" + zone + ":" + LOCAL_FMT.format(LocalDateTime.ofInstant(instant, ZoneId.of(zone)));
+    }
+
+    private static String htmlDescription(SplittableRandom rnd, String series, String venue, String session, int chars) {
+        StringBuilder sb = new StringBuilder(chars + 64);
+        sb.append("<p><b>").append(series).append(" ").append(session).append("</b> at ").append(venue).append("</p>\n");
+        String[] words = {"live", "coverage", "timing", "tyres", "strategy", "pit", "window", "safety", "car", "grid", "pole", "lap", "sector", "DRS",
+            "weather", "track", "limits", "stewards", "penalty", "podium"};
+        while (sb.length() < chars) {
+            sb.append("<p>");
+            int n = 8 + rnd.nextInt(20);
+            for (int w = 0; w < n; w++) {
+                sb.append(words[rnd.nextInt(words.length)]).append(w + 1 < n ? " " : ".");
+            }
+            sb.append("</p>\n");
+            if (rnd.nextInt(4) == 0) {
+                sb.append("<a href=\"https://example.com/").append(series.toLowerCase().replace(' ', '-')).append("/").append(rnd.nextInt(10_000))
+                    .append("?utm_source=ics&amp;utm_medium=calendar\">Watch, stream; follow</a>\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    // rfc 5545 text escaping
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case ';' -> sb.append("\\;");
+                case ',' -> sb.append("\\,");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // content line folded at 75 octets, never splitting a utf-8 sequence
+    static void line(StringBuilder out, String content) {
+        int octets = 0;
+        int limit = FOLD_OCTETS;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            int width = c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isHighSurrogate(c) ? 4 : Character.isLowSurrogate(c) ? 0 : 3;
+            if (width > 0 && octets + width > limit) {
+                out.append("\r\n ");
+                octets = 0;
+                limit = FOLD_OCTETS - 1; // continuation lines lose one octet to the leading space
+            }
+            out.append(c);
+            octets += width;
+        }
+        out.append("\r\n");
+    }
+
+    // local http stand-in for feed hosts; CalendarFeed can point at url(name)
+    public static final class Server implements AutoCloseable {
+        private final HttpServer server;
+        private final Map<String, byte[]> feeds = new ConcurrentHashMap<>();
+
+        private Server(HttpServer server) {
+            this.server = server;
+        }
+
+        public static Server start() throws IOException {
+            HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            Server s = new Server(http);
+            http.createContext("/", exchange -> {
+                byte[] body = s.feeds.get(exchange.getRequestURI().getPath());
+                if (body == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Type", "text/calendar; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            });
+            http.start();
+            return s;
+        }
+
+        // (re)publishes a feed; returns its url
+        public String put(String name, String ics) {
+            feeds.put("/" + name + ".ics", ics.getBytes(StandardCharsets.UTF_8));
+            return url(name);
+        }
+
+        public String put(String name, Spec spec) {
+            return put(name, generate(spec));
+        }
+
+        public String url(String name) {
+            return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/" + name + ".ics";
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("usage: IcsCorpus <events> <seed> <out.ics>");
+            System.exit(2);
+        }
+        Path out = write(Spec.of(Integer.parseInt(args[0]), Long.parseLong(args[1])), Path.of(args[2]));
+        System.out.println(out.toAbsolutePath() + " " + Files.size(out) + " bytes");
+    }
+
+    // minimal but valid definitions; rules match current tzdb so biweekly resolves local times correctly
+    private static final Map<String, String> VTIMEZONES = Map.of(
+        "Europe/London", """
+            BEGIN:VTIMEZONE\r
+            TZID:Europe/London\r
+            BEGIN:DAYLIGHT\r
+            TZOFFSETFROM:+0000\r
+            TZOFFSETTO:+0100\r
+            TZNAME:BST\r
+            DTSTART:19700329T010000\r
+            RRULE:FREQ=YEARLY;BYMONTH=3;BYDAY=-1SU\r
+            END:DAYLIGHT\r
+            BEGIN:STANDARD\r
+            TZOFFSETFROM:+0100\r
+            TZOFFSETTO:+0000\r
+            TZNAME:GMT\r
+            DTSTART:19701025T020000\r
+            RRULE:FREQ=YEARLY;BYMONTH=10;BYDAY=-1SU\r
+            END:STANDARD\r
+            END:VTIMEZONE\r
+            """,
+        "America/New_York", """
+            BEGIN:VTIMEZONE\r
+            TZID:America/New_York\r
+            BEGIN:DAYLIGHT\r
+            TZOFFSETFROM:-0500\r
+            TZOFFSETTO:-0400\r
+            TZNAME:EDT\r
+            DTSTART:19700308T020000\r
+            RRULE:FREQ=YEARLY;BYMONTH=3;BYDAY=2SU\r
+            END:DAYLIGHT\r
+            BEGIN:STANDARD\r
+            TZOFFSETFROM:-0400\r
+            TZOFFSETTO:-0500\r
+            TZNAME:EST\r
+            DTSTART:19701101T020000\r
+            RRULE:FREQ=YEARLY;BYMONTH=11;BYDAY=1SU\r
+            END:STANDARD\r
+            END:VTIMEZONE\r
+            """,
+        "Australia/Melbourne", """
+            BEGIN:VTIMEZONE\r
+            TZID:Australia/Melbourne\r
+            BEGIN:STANDARD\r
+            TZOFFSETFROM:+1100\r
+            TZOFFSETTO:+1000\r
+            TZNAME:AEST\r
+            DTSTART:19700405T030000\r
+            RRULE:FREQ=YEARLY;BYMONTH=4;BYDAY=1SU\r
+            END:STANDARD\r
+            BEGIN:DAYLIGHT\r
+            TZOFFSETFROM:+1000\r
+            TZOFFSETTO:+1100\r
+            TZNAME:AEDT\r
+            DTSTART:19701004T020000\r
+            RRULE:FREQ=YEARLY;BYMONTH=10;BYDAY=1SU\r
+            END:DAYLIGHT\r
+            END:VTIMEZONE\r
+            """,
+        "Asia/Tokyo", """
+            BEGIN:VTIMEZONE\r
+            TZID:Asia/Tokyo\r
+            BEGIN:STANDARD\r
+            TZOFFSETFROM:+0900\r
+            TZOFFSETTO:+0900\r
+            TZNAME:JST\r
+            DTSTART:19700101T000000\r
+            END:STANDARD\r
+            END:VTIMEZONE\r
+            """);
+}
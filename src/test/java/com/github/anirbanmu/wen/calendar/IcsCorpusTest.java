@@ -0,0 +1,69 @@
+package com.github.anirbanmu.wen.calendar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.anirbanmu.wen.util.Http;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class IcsCorpusTest {
+
+    @Test
+    void sameSeedSameBytes() {
+        Instant anchor = Instant.parse("2026-01-01T00:00:00Z");
+        String a = IcsCorpus.generate(IcsCorpus.Spec.of(200, 42).withAnchor(anchor));
+        String b = IcsCorpus.generate(IcsCorpus.Spec.of(200, 42).withAnchor(anchor));
+        String c = IcsCorpus.generate(IcsCorpus.Spec.of(200, 43).withAnchor(anchor));
+
+        assertEquals(a, b);
+        assertNotEquals(a, c);
+    }
+
+    @Test
+    void linesAreFoldedAt75Octets() {
+        String ics = IcsCorpus.generate(IcsCorpus.Spec.of(50, 1));
+
+        assertTrue(ics.contains("\r\n "), "long descriptions should be folded");
+        for (String line : ics.split("\r\n")) {
+            assertTrue(line.getBytes(StandardCharsets.UTF_8).length <= 75, "line too long: " + line);
+        }
+    }
+
+    @Test
+    void parsesWithRecurrencesAndTimezones() {
+        String ics = IcsCorpus.generate(IcsCorpus.Spec.of(500, 7));
+
+        assertTrue(ics.contains("RRULE:"));
+        assertTrue(ics.contains("EXDATE"));
+        assertTrue(ics.contains("TZID=Europe/London"));
+        assertTrue(ics.contains("VALUE=DATE"));
+
+        List<CalendarEvent> events = CalendarFeed.parse(ics, _ -> true);
+
+        // recurrences expand past the vevent count; a week of history drops out
+        assertTrue(events.size() > 400, "parsed " + events.size());
+        for (int i = 1; i < events.size(); i++) {
+            assertFalse(events.get(i).start().isBefore(events.get(i - 1).start()), "events should be sorted");
+        }
+        assertTrue(events.stream().anyMatch(e -> e.description() != null && e.description().contains("<p>")));
+    }
+
+    @Test
+    void servesFeedsOverHttp() throws Exception {
+        try (IcsCorpus.Server server = IcsCorpus.Server.start()) {
+            String url = server.put("f1", IcsCorpus.Spec.of(20, 3));
+
+            HttpResponse<String> ok = Http.CLIENT.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, ok.statusCode());
+            assertTrue(ok.body().startsWith("BEGIN:VCALENDAR"));
+
+            HttpResponse<String> missing = Http.CLIENT.send(HttpRequest.newBuilder(URI.create(server.url("nope"))).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(404, missing.statusCode());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.anirbanmu.wen.calendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+
+class MergedQueryTest {
+    private static final Instant NOW = Instant.parse("2026-06-01T12:00:00Z");
+
+    @Test
+    void mergesFeedsInStartOrder() {
+        CalendarFeed a = feed("a", 1, 4, 7, 10);
+        CalendarFeed b = feed("b", 2, 3, 9);
+        CalendarFeed c = feed("c");
+
+        MergedQuery.Result result = MergedQuery.query(List.of(a, b, c), List.of(_ -> true, _ -> true, _ -> true), 4, NOW);
+
+        assertNull(result.current());
+        assertEquals(List.of("a1", "b2", "b3", "a4"), summaries(result.upcoming()));
+        assertEquals(List.of(0, 1, 1, 0), result.upcoming().stream().map(MergedQuery.Hit::feed).toList());
+    }
+
+    @Test
+    void appliesEachFeedsOwnFilterAndFindsTheCurrentEvent() {
+        CalendarFeed a = feed("a", -1, 5, 6);
+        CalendarFeed b = feed("b", 2, 3, 4);
+        Predicate<CalendarEvent> notB3 = e -> !e.summary().equals("b3");
+
+        MergedQuery.Result result = MergedQuery.query(List.of(a, b), List.of(_ -> true, notB3), 3, NOW);
+
+        // a-1 started an hour ago and runs two
+        assertEquals("a-1", result.current().event().summary());
+        assertEquals(List.of("b2", "b4", "a5"), summaries(result.upcoming()));
+    }
+
+    @Test
+    void matchesSingleFeedQuery() {
+        CalendarFeed a = feed("a", -1, 1, 2, 3);
+        QueryResult single = a.query(_ -> true, 2, NOW);
+        MergedQuery.Result merged = MergedQuery.query(List.of(a), List.of(_ -> true), 2, NOW);
+        assertEquals(single.current(), merged.current().event());
+        assertEquals(single.upcoming(), merged.upcoming().stream().map(MergedQuery.Hit::event).toList());
+    }
+
+    @Test
+    void windowsAreRangesOfEachFeed() {
+        CalendarFeed a = feed("a", -1, 1, 5, 9);
+        CalendarFeed b = feed("b", 2, 6, 12);
+
+        // a later window skips the in-progress event and stops at its end
+        MergedQuery.Result later = MergedQuery.query(List.of(a, b), List.of(_ -> true, _ -> true), 10, NOW,
+            NOW.plus(Duration.ofHours(2)), NOW.plus(Duration.ofHours(9)));
+        assertNull(later.current());
+        assertEquals(List.of("b2", "a5", "b6"), summaries(later.upcoming()));
+
+        QueryResult single = a.query(_ -> true, 10, NOW, NOW, NOW.plus(Duration.ofHours(5)));
+        assertEquals("a-1", single.current().summary());
+        assertEquals(List.of("a1"), single.upcoming().stream().map(CalendarEvent::summary).toList());
+    }
+
+    // events starting the given number of hours from NOW, two hours long
+    private static CalendarFeed feed(String name, int... hours) {
+        List<CalendarEvent> events = new ArrayList<>();
+        for (int h : hours) {
+            Instant start = NOW.plus(Duration.ofHours(h));
+            events.add(CalendarEvent.create(name + h, start, start.plus(Duration.ofHours(2)), null, null, null));
+        }
+        return CalendarFeed.fixed(events);
+    }
+
+    private static List<String> summaries(List<MergedQuery.Hit> hits) {
+        return hits.stream().map(h -> h.event().summary()).toList();
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.anirbanmu.wen.calendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class RefreshPolicyTest {
+    private static final Duration NOMINAL = Duration.ofHours(6);
+    private static final Instant NOW = Instant.parse("2026-05-24T10:00:00Z");
+
+    @Test
+    void quietFeedsBackOffUpToFourTimesNominal() {
+        RefreshPolicy policy = new RefreshPolicy(30);
+        Duration previous = NOMINAL;
+        for (Duration expected : new Duration[] {Duration.ofHours(12), Duration.ofHours(24), Duration.ofHours(24)}) {
+            RefreshPolicy.Decision d = policy.next(new RefreshPolicy.Signals(NOMINAL, previous, 0, 0, null), NOW);
+            assertEquals("quiet", d.reason());
+            assertEquals(expected, d.delay());
+            previous = d.delay();
+        }
+    }
+
+    @Test
+    void volatileAndPopularFeedsRefreshSooner() {
+        RefreshPolicy policy = new RefreshPolicy(30);
+
+        RefreshPolicy.Decision changing = policy.next(new RefreshPolicy.Signals(NOMINAL, NOMINAL, 0.5, 0, null), NOW);
+        assertEquals("volatile", changing.reason());
+        assertTrue(changing.delay().compareTo(NOMINAL) < 0, changing.toString());
+
+        RefreshPolicy.Decision busy = policy.next(new RefreshPolicy.Signals(NOMINAL, NOMINAL, 0, 10, null), NOW);
+        assertEquals("popular", busy.reason());
+        assertEquals(Duration.ofHours(3), busy.delay());
+
+        // same feed with its next event a few hours out halves again
+        RefreshPolicy.Decision soon = policy.next(new RefreshPolicy.Signals(NOMINAL, NOMINAL, 0, 10, Duration.ofHours(3)), NOW);
+        assertEquals("soon", soon.reason());
+        assertEquals(Duration.ofMinutes(90), soon.delay());
+    }
+
+    @Test
+    void neverFasterThanAQuarterOfNominal() {
+        RefreshPolicy policy = new RefreshPolicy(30);
+        RefreshPolicy.Decision d = policy.next(new RefreshPolicy.Signals(NOMINAL, NOMINAL, 1, 10_000, Duration.ofMinutes(10)), NOW);
+        assertEquals(NOMINAL.dividedBy(RefreshPolicy.RANGE), d.delay());
+
+        // short nominal intervals keep the 5 minute floor without going above nominal
+        RefreshPolicy.Decision tight = policy.next(new RefreshPolicy.Signals(Duration.ofMinutes(2), Duration.ofMinutes(2), 1, 10_000, null), NOW);
+        assertEquals(Duration.ofMinutes(2), tight.delay());
+    }
+
+    @Test
+    void spentBudgetHoldsSpeedupsAtNominal() {
+        RefreshPolicy policy = new RefreshPolicy(3);
+        for (int i = 0; i < 3; i++) {
+            policy.recordFetch(NOW.minus(Duration.ofMinutes(10 * i)));
+        }
+        RefreshPolicy.Decision d = policy.next(new RefreshPolicy.Signals(NOMINAL, NOMINAL, 1, 100, null), NOW);
+        assertEquals("budget", d.reason());
+        assertEquals(NOMINAL, d.delay());
+
+        // an hour later the window has emptied
+        Instant later = NOW.plus(Duration.ofMinutes(61));
+        assertEquals(0, policy.fetchesLastHour(later));
+        assertTrue(policy.next(new RefreshPolicy.Signals(NOMINAL, NOMINAL, 1, 100, null), later).delay().compareTo(NOMINAL) < 0);
+    }
+
+    @Test
+    void changeRateTracksRecentRefreshes() {
+        FeedSource source = new FeedSource("http://invalid.url", NOMINAL, null);
+        for (int i = 0; i < 10; i++) {
+            source.observe(true);
+        }
+        assertTrue(source.changeRate() > 0.95, Double.toString(source.changeRate()));
+        for (int i = 0; i < 10; i++) {
+            source.observe(false);
+        }
+        assertTrue(source.changeRate() < 0.05, Double.toString(source.changeRate()));
+    }
+}
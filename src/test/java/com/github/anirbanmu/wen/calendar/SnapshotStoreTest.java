@@ -0,0 +1,110 @@
+package com.github.anirbanmu.wen.calendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.github.anirbanmu.wen.config.Calendar;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotStoreTest {
+    private static final String KEY = "https://example.com/f1.ics";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsEventsAndMetadata() throws IOException {
+        SnapshotStore store = SnapshotStore.open(dir);
+        List<CalendarEvent> events = IcsCorpus.events(IcsCorpus.Spec.of(200, 1));
+        Instant savedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        store.save(new SnapshotStore.Snapshot(KEY, savedAt, 0x1234, "\"abc\"", events));
+        SnapshotStore.Snapshot loaded = store.load(KEY);
+
+        assertNotNull(loaded);
+        assertEquals(savedAt, loaded.savedAt());
+        assertEquals(0x1234, loaded.bodyHash());
+        assertEquals("\"abc\"", loaded.etag());
+        assertEquals(events, loaded.events());
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count(), "temp file left behind");
+        }
+    }
+
+    @Test
+    void replacesPreviousSnapshot() throws IOException {
+        SnapshotStore store = SnapshotStore.open(dir);
+        store.save(new SnapshotStore.Snapshot(KEY, Instant.now(), 1, null, List.of(event("old"))));
+        store.save(new SnapshotStore.Snapshot(KEY, Instant.now(), 2, null, List.of(event("new"), event("newer"))));
+
+        SnapshotStore.Snapshot loaded = store.load(KEY);
+        assertEquals(2, loaded.bodyHash());
+        assertNull(loaded.etag());
+        assertEquals("new", loaded.events().getFirst().summary());
+    }
+
+    @Test
+    void ignoresCorruptAndTruncatedFiles() throws IOException {
+        SnapshotStore store = SnapshotStore.open(dir);
+        store.save(new SnapshotStore.Snapshot(KEY, Instant.now(), 1, null, List.of(event("a"), event("b"))));
+        Path file = store.file(KEY);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(40);
+            int b = raf.read();
+            raf.seek(40);
+            raf.write(b ^ 0xFF);
+        }
+        assertNull(store.load(KEY));
+
+        store.save(new SnapshotStore.Snapshot(KEY, Instant.now(), 1, null, List.of(event("a"), event("b"))));
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        assertNull(store.load(KEY));
+
+        Files.write(file, new byte[0]);
+        assertNull(store.load(KEY));
+    }
+
+    @Test
+    void missingAndForeignKeysLoadNothing() throws IOException {
+        SnapshotStore store = SnapshotStore.open(dir);
+        assertNull(store.load(KEY));
+
+        store.save(new SnapshotStore.Snapshot(KEY, Instant.now(), 1, null, List.of(event("a"))));
+        Files.copy(store.file(KEY), store.file("https://example.com/other.ics"));
+        assertNull(store.load("https://example.com/other.ics"));
+    }
+
+    @Test
+    void feedServesRestoredSnapshotBeforeFirstFetch() throws IOException {
+        SnapshotStore store = SnapshotStore.open(dir);
+        CalendarEvent upcoming = CalendarEvent.create("F1: Monaco Grand Prix", Instant.now().plus(Duration.ofDays(3)),
+            Instant.now().plus(Duration.ofDays(3)).plus(Duration.ofHours(2)), "Monaco", null, List.of());
+        store.save(new SnapshotStore.Snapshot("http://invalid.url", Instant.now(), 7, null, List.of(upcoming)));
+
+        Calendar config = new Calendar(List.of("f1"), "F1", "http://invalid.url", Duration.ofHours(1), Map.of(), null, false, null);
+        CalendarFeed feed = new FeedRegistry(store).view(config);
+
+        assertEquals(7, feed.snapshotHash());
+        assertFalse(feed.query(_ -> true, 2).upcoming().isEmpty());
+    }
+
+    private static CalendarEvent event(String summary) {
+        Instant start = Instant.parse("2026-05-24T13:00:00Z");
+        return CalendarEvent.create(summary, start, start.plus(Duration.ofHours(2)), null, "desc", List.of("F1"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.anirbanmu.wen.capture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.anirbanmu.wen.Processor;
+import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.calendar.IcsCorpus;
+import com.github.anirbanmu.wen.config.Calendar;
+import com.github.anirbanmu.wen.discord.json.Interaction;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CaptureTest {
+    private static final String COMMAND = """
+        {"op":0,"s":7,"t":"INTERACTION_CREATE","d":{"id":"1","application_id":"2","type":2,\
+        "data":{"id":"3","name":"wen","type":1,"options":[{"name":"query","type":3,"value":"f1"}]},\
+        "channel_id":"4","token":"aW50ZXJhY3Rpb246c2VjcmV0"}}""";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void redactsInteractionTokens() {
+        String redacted = Capture.redact(COMMAND);
+        assertFalse(redacted.contains("aW50ZXJhY3Rpb246c2VjcmV0"));
+        assertTrue(redacted.contains("\"token\":\"REDACTED\""));
+        assertTrue(redacted.contains("\"value\":\"f1\""));
+    }
+
+    @Test
+    void roundTripsAndAppendsWithoutSecondHeader() throws IOException {
+        Path file = dir.resolve("capture.bin");
+
+        Capture first = Capture.open(file);
+        first.write(new ArrayList<>(List.of(
+            new CaptureRecord.Snapshot(100, "https://example.com/f1.ics", 24, 0xCAFE),
+            new CaptureRecord.Interaction(200, COMMAND))));
+        first.close();
+
+        Capture second = Capture.open(file);
+        second.write(new ArrayList<>(List.of(new CaptureRecord.Interaction(300, COMMAND))));
+        second.close();
+
+        List<CaptureRecord> records = Capture.read(file);
+        assertEquals(3, records.size());
+        assertEquals(new CaptureRecord.Snapshot(100, "https://example.com/f1.ics", 24, 0xCAFE), records.get(0));
+        assertEquals(new CaptureRecord.Interaction(200, Capture.redact(COMMAND)), records.get(1));
+        assertEquals(300, records.get(2).atMillis());
+    }
+
+    @Test
+    void ignoresTornTail() throws IOException {
+        Path file = dir.resolve("torn.bin");
+        Capture capture = Capture.open(file);
+        capture.write(new ArrayList<>(List.of(new CaptureRecord.Interaction(1, COMMAND), new CaptureRecord.Interaction(2, COMMAND))));
+        capture.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+
+        List<CaptureRecord> records = Capture.read(file);
+        assertEquals(1, records.size());
+        assertEquals(1, records.getFirst().atMillis());
+    }
+
+    @Test
+    void refusesForeignFiles() throws IOException {
+        Path file = dir.resolve("foreign.bin");
+        Files.writeString(file, "BEGIN:VCALENDAR\n");
+        assertThrows(IOException.class, () -> Capture.open(file));
+        assertThrows(IOException.class, () -> Capture.read(file));
+    }
+
+    @Test
+    void replayPinsClockToArrivalAndMeasuresEachInteraction() throws Exception {
+        Instant anchor = Instant.parse("2026-03-01T00:00:00Z");
+        Path ics = IcsCorpus.write(IcsCorpus.Spec.of(200, 3).withAnchor(anchor), dir.resolve("f1.ics"));
+        CalendarFeed feed = CalendarFeed.fromSnapshot(ics, _ -> true, anchor);
+        assertTrue(feed.snapshotHash() != 0);
+
+        Calendar config = new Calendar(List.of("f1"), "Formula 1", "https://example.com/f1.ics", Duration.ofHours(6), Map.of(), null, true, null);
+        Replay.ReplayClock clock = new Replay.ReplayClock(anchor);
+        Processor processor = new Processor(Map.of("f1", config), Map.of("f1", feed), clock);
+
+        long at = anchor.plus(Duration.ofDays(1)).toEpochMilli();
+        List<Replay.Sample> samples = Replay.run(List.of(new CaptureRecord.Interaction(at, Capture.redact(COMMAND))), processor, clock, 2);
+
+        assertEquals(1, samples.size());
+        Replay.Sample sample = samples.getFirst();
+        assertEquals(Interaction.TYPE_APPLICATION_COMMAND, sample.type());
+        assertEquals("f1", sample.query());
+        assertTrue(sample.cpuNanos() > 0);
+        assertTrue(sample.allocBytes() > 0);
+        assertTrue(sample.responseBytes() > 0);
+        assertEquals(Instant.ofEpochMilli(at), clock.instant());
+    }
+}
@@ -2,6 +2,7 @@ package com.github.anirbanmu.wen.config;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 class ConfigLoaderTest {
@@ -84,6 +85,34 @@ class ConfigLoaderTest {
         assertEquals(MatchField.SUMMARY, moto2.prefilter().field());
     }
 
+    @Test
+    void testVirtualCalendars() {
+        String toml = """
+            [[calendars]]
+            keywords = ["f1"]
+            name = "Formula 1"
+            url = "https://example.com/f1.ics"
+
+            [[calendars]]
+            keywords = ["motogp"]
+            name = "MotoGP"
+            url = "https://example.com/motogp.ics"
+
+            [[virtual]]
+            keywords = ["racing"]
+            name = "Racing"
+            include = ["f1", "motogp"]
+            """;
+
+        WenConfig config = ConfigLoader.load(toml);
+        assertEquals(1, config.virtualCalendars().size());
+        assertEquals(List.of("f1", "motogp"), config.virtualCalendars().get(0).include());
+
+        ConfigException exception = assertThrows(ConfigException.class,
+            () -> ConfigLoader.load(toml.replace("[\"f1\", \"motogp\"]", "[\"f1\", \"nascar\"]")));
+        assertTrue(exception.getMessage().contains("unknown calendar 'nascar'"), exception.getMessage());
+    }
+
     @Test
     void testMissingRequiredFields() {
         String toml = """
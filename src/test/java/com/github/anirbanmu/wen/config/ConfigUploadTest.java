@@ -0,0 +1,74 @@
+package com.github.anirbanmu.wen.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigUploadTest {
+    private static final String ONE = """
+        [[calendars]]
+        keywords = ["f1"]
+        name = "Formula 1"
+        url = "https://example.com/f1.ics"
+        """;
+
+    private static final String TWO = ONE + """
+
+        [[calendars]]
+        keywords = ["wrc"]
+        name = "WRC"
+        url = "https://example.com/wrc.ics"
+        """;
+
+    @Test
+    void anAuthorizedUploadIsAppliedByTheWatcher(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("config.toml");
+        Files.writeString(path, ONE);
+        LinkedBlockingQueue<WenConfig> applied = new LinkedBlockingQueue<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(ConfigUpload.PATH, ConfigUpload.handler(path, "s3cret"));
+        server.start();
+        try (ConfigWatcher _ = ConfigWatcher.start(path, ConfigLoader.load(path), applied::add);
+            HttpClient client = HttpClient.newHttpClient()) {
+            URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + ConfigUpload.PATH);
+
+            assertEquals(401, put(client, uri, null, TWO).statusCode());
+            assertEquals(401, put(client, uri, "Bearer wrong", TWO).statusCode());
+            assertEquals(405, client.send(HttpRequest.newBuilder(uri).header("Authorization", "Bearer s3cret").build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode());
+            HttpResponse<String> broken = put(client, uri, "Bearer s3cret", "[[calendars]\nkeywords = ");
+            assertEquals(400, broken.statusCode());
+            assertTrue(broken.body().contains("TOML"), broken.body());
+            assertEquals(413, put(client, uri, "Bearer s3cret", "#".repeat(ConfigUpload.MAX_BYTES + 1)).statusCode());
+            assertEquals(ONE, Files.readString(path));
+
+            assertEquals(202, put(client, uri, "Bearer s3cret", TWO).statusCode());
+            WenConfig next = applied.poll(10, TimeUnit.SECONDS);
+            assertEquals(2, next.calendars().size());
+            assertEquals(TWO, Files.readString(path));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static HttpResponse<String> put(HttpClient client, URI uri, String auth, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri).PUT(HttpRequest.BodyPublishers.ofString(body));
+        if (auth != null) {
+            request.header("Authorization", auth);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
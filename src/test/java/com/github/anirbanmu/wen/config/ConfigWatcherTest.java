@@ -0,0 +1,48 @@
+package com.github.anirbanmu.wen.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigWatcherTest {
+    private static final String ONE = """
+        [[calendars]]
+        keywords = ["f1"]
+        name = "Formula 1"
+        url = "https://example.com/f1.ics"
+        """;
+
+    private static final String TWO = ONE + """
+
+        [[calendars]]
+        keywords = ["wrc"]
+        name = "WRC"
+        url = "https://example.com/wrc.ics"
+        """;
+
+    @Test
+    void reloadsChangedConfigAndSkipsBadOrUnchangedOnes(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("config.toml");
+        Files.writeString(path, ONE);
+        LinkedBlockingQueue<WenConfig> applied = new LinkedBlockingQueue<>();
+
+        try (ConfigWatcher _ = ConfigWatcher.start(path, ConfigLoader.load(path), applied::add)) {
+            Files.writeString(path, TWO);
+            WenConfig next = applied.poll(10, TimeUnit.SECONDS);
+            assertEquals(2, next.calendars().size());
+
+            // a broken edit keeps the running config, and rewriting the same content is a no-op
+            Files.writeString(path, "[[calendars]\nkeywords = ");
+            assertNull(applied.poll(1, TimeUnit.SECONDS));
+            Files.writeString(path.resolveSibling("unrelated.toml"), ONE);
+            Files.writeString(path, TWO);
+            assertNull(applied.poll(2, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package com.github.anirbanmu.wen.discord;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// local stand-in for discord: gateway websocket (HELLO/IDENTIFY/READY/RESUME/heartbeat)
+// plus the rest endpoints the bot calls. injects INTERACTION_CREATE traffic and records
+// callback latency per interaction.
+//
+// point the bot at it with DISCORD_GATEWAY_URL=gatewayUrl() DISCORD_API_URL=apiUrl()
+public final class FakeDiscord implements AutoCloseable {
+    public static final int DEFAULT_HEARTBEAT_MS = 41_250;
+
+    private static final String WS_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final Pattern OP = Pattern.compile("\"op\"\\s*:\\s*(\\d+)");
+    private static final Pattern SESSION_ID = Pattern.compile("\"session_id\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern SEQ = Pattern.compile("\"seq\"\\s*:\\s*(-?\\d+)");
+    private static final Pattern CALLBACK = Pattern.compile("^/api/v10/interactions/([^/]+)/([^/]+)/callback$");
+
+    public enum Kind {
+        COMMAND, AUTOCOMPLETE
+    }
+
+    // one injected interaction, from dispatch to first callback
+    public record Sent(String id, Kind kind, long sentNanos) {
+    }
+
+    private final ServerSocket gatewaySocket;
+    private final HttpServer rest;
+    private final int heartbeatIntervalMs;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger sessionCounter = new AtomicInteger();
+    private final AtomicLong nextInteractionId = new AtomicLong(1_300_000_000_000_000_000L);
+
+    private final Map<String, Sent> pending = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> callbacks = new ConcurrentHashMap<>();
+    private final Map<String, Long> firstAnsweredAt = new ConcurrentHashMap<>();
+    private final Map<Kind, LatencyRecorder> latencies = Map.of(Kind.COMMAND, new LatencyRecorder(), Kind.AUTOCOMPLETE, new LatencyRecorder());
+    private final AtomicInteger identifies = new AtomicInteger();
+    private final AtomicInteger resumes = new AtomicInteger();
+
+    private volatile Session current;
+    private volatile boolean closed;
+    private volatile long helloDelayMs;
+    private final AtomicInteger delayedHellos = new AtomicInteger();
+
+    private FakeDiscord(int heartbeatIntervalMs) throws IOException {
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        this.gatewaySocket = new ServerSocket(0, 50, loopback);
+        this.rest = HttpServer.create(new InetSocketAddress(loopback, 0), 0);
+        this.rest.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.rest.createContext("/api/v10/", this::handleRest);
+    }
+
+    public static FakeDiscord start() throws IOException {
+        return start(DEFAULT_HEARTBEAT_MS);
+    }
+
+    public static FakeDiscord start(int heartbeatIntervalMs) throws IOException {
+        FakeDiscord fake = new FakeDiscord(heartbeatIntervalMs);
+        fake.rest.start();
+        Thread.ofVirtual().name("fake-gateway-accept").start(fake::acceptLoop);
+        return fake;
+    }
+
+    public String gatewayUrl() {
+        return "ws://" + gatewaySocket.getInetAddress().getHostAddress() + ":" + gatewaySocket.getLocalPort();
+    }
+
+    public String apiUrl() {
+        return "http://" + rest.getAddress().getHostString() + ":" + rest.getAddress().getPort() + "/api/v10";
+    }
+
+    // true once a session has identified or resumed and is attached to a live connection
+    public boolean awaitSession(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            Session s = current;
+            if (s != null && s.connection != null) {
+                return true;
+            }
+            Thread.sleep(5);
+        }
+        return false;
+    }
+
+    public String sendCommand(String query) {
+        return sendInteraction(Kind.COMMAND, query);
+    }
+
+    public String sendAutocomplete(String partial) {
+        return sendInteraction(Kind.AUTOCOMPLETE, partial);
+    }
+
+    private String sendInteraction(Kind kind, String value) {
+        String id = Long.toString(nextInteractionId.getAndIncrement());
+        int type = kind == Kind.COMMAND ? 2 : 4;
+        String focused = kind == Kind.AUTOCOMPLETE ? ",\"focused\":true" : "";
+        String d = "{\"id\":\"" + id + "\",\"application_id\":\"1100000000000000000\",\"type\":" + type
+            + ",\"token\":\"tok-" + id + "\",\"guild_id\":\"100000000000000000\",\"channel_id\":\"110000000000000000\""
+            + ",\"member\":{\"user\":{\"id\":\"200000000000000000\",\"username\":\"loadgen\"},\"permissions\":\"0\"}"
+            + ",\"data\":{\"id\":\"1200000000000000000\",\"name\":\"wen\",\"type\":1,\"options\":[{\"name\":\"query\",\"type\":3,\"value\":"
+            + jsonString(value) + focused + "}]}}";
+
+        pending.put(id, new Sent(id, kind, System.nanoTime()));
+        dispatch("INTERACTION_CREATE", d);
+        return id;
+    }
+
+    // sequenced dispatch to the current session; buffered so a RESUME can replay it
+    public void dispatch(String type, String d) {
+        Session s = current;
+        if (s == null) {
+            return;
+        }
+        synchronized (s) {
+            int seq = s.seq.incrementAndGet();
+            String raw = "{\"op\":0,\"t\":\"" + type + "\",\"s\":" + seq + ",\"d\":" + d + "}";
+            s.history.add(new Dispatch(seq, raw));
+            Connection c = s.connection;
+            if (c != null) {
+                c.sendText(raw);
+            }
+        }
+    }
+
+    public Map<Kind, LatencyRecorder> latencies() {
+        return latencies;
+    }
+
+    // injected but never answered
+    public List<Sent> unanswered() {
+        return List.copyOf(pending.values());
+    }
+
+    // interaction ids answered more than once
+    public List<String> duplicates() {
+        List<String> dupes = new ArrayList<>();
+        callbacks.forEach((id, n) -> {
+            if (n.get() > 1) {
+                dupes.add(id);
+            }
+        });
+        return dupes;
+    }
+
+    public int answered() {
+        return callbacks.size();
+    }
+
+    // nanoTime of each interaction's first callback, ascending
+    public long[] answerTimes() {
+        return firstAnsweredAt.values().stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    public int identifies() {
+        return identifies.get();
+    }
+
+    public int resumes() {
+        return resumes.get();
+    }
+
+    // --- fault injection, all aimed at the current session's live connection ---
+
+    // op 7: client should drop the connection and resume
+    public void requestReconnect() {
+        withConnection(c -> c.sendText("{\"op\":7,\"d\":null}"));
+    }
+
+    // op 9: resumable keeps the session; otherwise it is forgotten and anything dispatched
+    // before the next IDENTIFY is lost, as with real discord
+    public void invalidateSession(boolean resumable) {
+        Session s = current;
+        if (s != null && !resumable) {
+            sessions.remove(s.id);
+        }
+        withConnection(c -> c.sendText("{\"op\":9,\"d\":" + resumable + "}"));
+    }
+
+    // keep the socket healthy but stop acking heartbeats
+    public void dropHeartbeatAcks() {
+        withConnection(c -> c.dropAcks = true);
+    }
+
+    // socket stays open but nothing is read or written in either direction
+    public void halfOpen() {
+        withConnection(c -> c.frozen = true);
+    }
+
+    // tcp close without a websocket close frame
+    public void abortConnection() {
+        withConnection(Connection::abort);
+    }
+
+    // the next n connections wait this long before sending HELLO
+    public void delayHello(Duration delay, int connections) {
+        helloDelayMs = delay.toMillis();
+        delayedHellos.set(connections);
+    }
+
+    private void withConnection(Consumer<Connection> action) {
+        Session s = current;
+        Connection c = s != null ? s.connection : null;
+        if (c != null) {
+            action.accept(c);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            gatewaySocket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        for (Connection c : connections) {
+            c.abort();
+        }
+        rest.stop(0);
+    }
+
+    // --- rest ---
+
+    private void handleRest(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+
+            Matcher callback = CALLBACK.matcher(path);
+            if ("POST".equals(method) && callback.matches()) {
+                recordCallback(callback.group(1));
+                exchange.sendResponseHeaders(204, -1);
+            } else if ("PUT".equals(method) && path.endsWith("/commands")) {
+                respond(exchange, 200, "[]");
+            } else if ("GET".equals(method) && path.equals("/api/v10/gateway")) {
+                respond(exchange, 200, "{\"url\":\"" + gatewayUrl() + "\"}");
+            } else {
+                respond(exchange, 404, "{\"message\":\"404: Not Found\",\"code\":0}");
+            }
+        }
+    }
+
+    private void recordCallback(String id) {
+        long now = System.nanoTime();
+        callbacks.computeIfAbsent(id, _ -> new AtomicInteger()).incrementAndGet();
+        firstAnsweredAt.putIfAbsent(id, now);
+        Sent sent = pending.remove(id);
+        if (sent != null) {
+            latencies.get(sent.kind()).record(now - sent.sentNanos());
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    // --- gateway ---
+
+    private record Dispatch(int seq, String raw) {
+    }
+
+    private static final class Session {
+        final String id;
+        final AtomicInteger seq = new AtomicInteger();
+        final List<Dispatch> history = new ArrayList<>();
+        volatile Connection connection;
+
+        Session(String id) {
+            this.id = id;
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = gatewaySocket.accept();
+                socket.setTcpNoDelay(true);
+                Connection c = new Connection(socket);
+                connections.add(c);
+                Thread.ofVirtual().name("fake-gateway-conn").start(c::run);
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("fake gateway accept failed: " + e);
+                }
+            }
+        }
+    }
+
+    private void onText(Connection c, String raw) {
+        Matcher op = OP.matcher(raw);
+        if (c.frozen || !op.find()) {
+            return;
+        }
+        switch (Integer.parseInt(op.group(1))) {
+            case 1 -> {
+                if (!c.dropAcks) {
+                    c.sendText("{\"op\":11,\"d\":null}");
+                }
+            }
+            case 2 -> identify(c);
+            case 6 -> resume(c, raw);
+            default -> {
+            }
+        }
+    }
+
+    private void identify(Connection c) {
+        identifies.incrementAndGet();
+        Session s = new Session("fake-session-" + sessionCounter.incrementAndGet());
+        sessions.put(s.id, s);
+        synchronized (s) {
+            s.connection = c;
+            c.session = s;
+            int seq = s.seq.incrementAndGet();
+            String ready = "{\"op\":0,\"t\":\"READY\",\"s\":" + seq + ",\"d\":{\"v\":10,\"session_id\":\"" + s.id
+                + "\",\"resume_gateway_url\":\"" + gatewayUrl() + "\",\"user\":{\"id\":\"1100000000000000000\",\"username\":\"wen\"}}}";
+            c.sendText(ready);
+        }
+        current = s;
+    }
+
+    private void resume(Connection c, String raw) {
+        Matcher sid = SESSION_ID.matcher(raw);
+        Matcher seqMatch = SEQ.matcher(raw);
+        Session s = sid.find() ? sessions.get(sid.group(1)) : null;
+        if (s == null || !seqMatch.find()) {
+            c.sendText("{\"op\":9,\"d\":false}");
+            return;
+        }
+        resumes.incrementAndGet();
+        int from = Integer.parseInt(seqMatch.group(1));
+        synchronized (s) {
+            Connection old = s.connection;
+            if (old != null && old != c) {
+                old.abort();
+            }
+            s.connection = c;
+            c.session = s;
+            for (Dispatch d : s.history) {
+                if (d.seq() > from) {
+                    c.sendText(d.raw());
+                }
+            }
+            int seq = s.seq.incrementAndGet();
+            c.sendText("{\"op\":0,\"t\":\"RESUMED\",\"s\":" + seq + ",\"d\":{}}");
+        }
+        current = s;
+    }
+
+    private void onDisconnect(Connection c) {
+        connections.remove(c);
+        Session s = c.session;
+        if (s != null) {
+            synchronized (s) {
+                if (s.connection == c) {
+                    s.connection = null;
+                }
+            }
+        }
+    }
+
+    // one websocket connection: rfc 6455 handshake + text/ping/close framing, server side
+    final class Connection {
+        private final Socket socket;
+        private final OutputStream out;
+        volatile Session session;
+        volatile boolean dropAcks;
+        volatile boolean frozen;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = socket.getOutputStream();
+        }
+
+        void run() {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                handshake(in);
+                if (delayedHellos.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    Thread.sleep(helloDelayMs);
+                }
+                sendText("{\"op\":10,\"d\":{\"heartbeat_interval\":" + heartbeatIntervalMs + "}}");
+                readFrames(in);
+            } catch (IOException | InterruptedException e) {
+                // client went away
+            } finally {
+                abort();
+                onDisconnect(this);
+            }
+        }
+
+        private void handshake(DataInputStream in) throws IOException {
+            String key = null;
+            String line;
+            while (!(line = readLine(in)).isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                    key = line.substring(colon + 1).trim();
+                }
+            }
+            if (key == null) {
+                throw new IOException("not a websocket upgrade");
+            }
+            String response = "HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n";
+            synchronized (out) {
+                out.write(response.getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            }
+        }
+
+        private void readFrames(DataInputStream in) throws IOException {
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            while (true) {
+                int b0 = in.readUnsignedByte();
+                int b1 = in.readUnsignedByte();
+                boolean fin = (b0 & 0x80) != 0;
+                int opcode = b0 & 0x0F;
+                long len = b1 & 0x7F;
+                if (len == 126) {
+                    len = in.readUnsignedShort();
+                } else if (len == 127) {
+                    len = in.readLong();
+                }
+                byte[] mask = new byte[4];
+                if ((b1 & 0x80) != 0) {
+                    in.readFully(mask);
+                }
+                byte[] payload = new byte[(int) len];
+                in.readFully(payload);
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] ^= mask[i & 3];
+                }
+
+                switch (opcode) {
+                    case 0x0, 0x1 -> {
+                        message.write(payload);
+                        if (fin) {
+                            onText(this, message.toString(StandardCharsets.UTF_8));
+                            message.reset();
+                        }
+                    }
+                    case 0x8 -> {
+                        writeFrame(0x8, payload.length >= 2 ? new byte[]{payload[0], payload[1]} : new byte[0]);
+                        return;
+                    }
+                    case 0x9 -> writeFrame(0xA, payload);
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        void sendText(String text) {
+            if (frozen) {
+                return;
+            }
+            try {
+                writeFrame(0x1, text.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                abort();
+            }
+        }
+
+        private void writeFrame(int opcode, byte[] payload) throws IOException {
+            synchronized (out) {
+                out.write(0x80 | opcode);
+                if (payload.length < 126) {
+                    out.write(payload.length);
+                } else if (payload.length < 65_536) {
+                    out.write(126);
+                    out.write(payload.length >>> 8);
+                    out.write(payload.length & 0xFF);
+                } else {
+                    out.write(127);
+                    for (int shift = 56; shift >= 0; shift -= 8) {
+                        out.write((int) ((long) payload.length >>> shift) & 0xFF);
+                    }
+                }
+                out.write(payload);
+                out.flush();
+            }
+        }
+
+        void abort() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                break;
+            }
+            if (c != '\r') {
+                sb.append((char) c);
+            }
+        }
+        if (c == -1 && sb.isEmpty()) {
+            throw new IOException("eof during handshake");
+        }
+        return sb.toString();
+    }
+
+    private static String acceptKey(String key) {
+        try {
+            byte[] sha1 = MessageDigest.getInstance("SHA-1").digest((key + WS_GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(sha1);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.anirbanmu.wen.discord;
+
+import java.util.Arrays;
+
+// thread-safe nanosecond sample sink with exact percentiles (samples are kept, load runs are short)
+public final class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int count;
+
+    public synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public synchronized Summary summary() {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Summary(count, percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), count > 0 ? sorted[count - 1] : 0);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int idx = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.clamp(idx, 0, sorted.length - 1)];
+    }
+
+    public record Summary(int count, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos) {
+        @Override
+        public String toString() {
+            return String.format("n=%d p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                count, p50Nanos / 1e6, p90Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6);
+        }
+    }
+}
@@ -135,6 +135,56 @@ class GatewayEventParserTest {
         assertEquals("f1", interaction.data().options().getFirst().value());
     }
 
+    @Test
+    void parseGuildMemberPermissions() throws Exception {
+        // a guild interaction as discord sends it: member carries the invoker's permissions in the channel
+        String json = """
+            {"t":"INTERACTION_CREATE","s":7,"op":0,"d":{"version":1,"type":2,"token":"REDACTED","member":{"user":{"username":"racefan","public_flags":0,"id":"200000000000000000","global_name":"Race Fan","discriminator":"0","avatar":null},"roles":[],"permissions":"%s","pending":false,"nick":null,"mute":false,"joined_at":"2023-03-01T18:21:08.123000+00:00","flags":0,"deaf":false},"locale":"en-US","id":"1300000000000000000","guild_locale":"en-US","guild_id":"100000000000000000","entitlements":[],"data":{"type":1,"options":[{"value":"default f1","type":3,"name":"query"}],"name":"wen","id":"1200000000000000000"},"context":0,"channel_id":"110000000000000000","application_id":"1100000000000000000","app_permissions":"2248473465835073"}}
+            """;
+
+        // 2248473465835105 is 2248473465835073 plus MANAGE_GUILD
+        Interaction admin = ((GatewayEvent.InteractionCreate) parser.parse(json.formatted("2248473465835105")).event()).interaction();
+        assertEquals("2248473465835105", admin.member().permissions());
+        assertEquals("100000000000000000", admin.guildId());
+        assertTrue(admin.canManageGuild());
+
+        Interaction member = ((GatewayEvent.InteractionCreate) parser.parse(json.formatted("2248473465835073")).event()).interaction();
+        assertFalse(member.canManageGuild());
+
+        // a dm has a user and no member
+        String dm = """
+            {"op": 0, "t": "INTERACTION_CREATE", "s": 8, "d": {"id": "1", "application_id": "2", "type": 2, "token": "t",
+                "user": {"id": "200000000000000000"}, "data": {"id": "3", "name": "wen", "type": 1}}}
+            """;
+        Interaction direct = ((GatewayEvent.InteractionCreate) parser.parse(dm).event()).interaction();
+        assertNull(direct.member());
+        assertFalse(direct.canManageGuild());
+    }
+
+    @Test
+    void parseComponentInteractionAndSerializeButtons() throws Exception {
+        String json = """
+            {"op": 0, "t": "INTERACTION_CREATE", "s": 6, "d": {
+                "id": "1", "application_id": "2", "type": 3, "token": "t",
+                "data": {"component_type": 2, "custom_id": "more:1780000000:1:-:f1 sprint"}
+            }}
+            """;
+
+        Interaction interaction = ((GatewayEvent.InteractionCreate) parser.parse(json).event()).interaction();
+        assertEquals(Interaction.TYPE_MESSAGE_COMPONENT, interaction.type());
+        assertEquals("more:1780000000:1:-:f1 sprint", interaction.data().customId());
+        assertNull(interaction.data().name());
+
+        InteractionResponse page = InteractionResponse.update(InteractionResponse.message("x"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Json.DSL.serialize(page, out);
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("\"components\":[]"), out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        Json.DSL.serialize(InteractionResponse.ActionRow.of(InteractionResponse.Button.secondary("Next page", "more:1")), out);
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("\"custom_id\":\"more:1\""), out.toString(StandardCharsets.UTF_8));
+    }
+
     @Test
     void serializeIdentify() throws Exception {
         Identify identify = Identify.create("test-token", 513);
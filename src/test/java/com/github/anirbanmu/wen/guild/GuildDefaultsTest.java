@@ -0,0 +1,116 @@
+package com.github.anirbanmu.wen.guild;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.anirbanmu.wen.store.LogStore;
+import com.github.anirbanmu.wen.store.Store;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GuildDefaultsTest {
+    private static final long GUILD = 1_095_381_207_520_378_880L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsThroughAndSurvivesRestart() throws IOException {
+        try (LogStore store = LogStore.open(dir)) {
+            GuildDefaults defaults = new GuildDefaults(store);
+            assertNull(defaults.get(Long.toUnsignedString(GUILD)));
+            assertTrue(defaults.set(GUILD, "f1 sprint"));
+            // a hit is the cached string itself
+            assertSame(defaults.get(GUILD), defaults.get(Long.toUnsignedString(GUILD)));
+            assertFalse(defaults.set(GUILD, "x".repeat(GuildDefaults.MAX_QUERY + 1)));
+            assertNull(defaults.get("not a snowflake"));
+        }
+        try (LogStore store = LogStore.open(dir)) {
+            GuildDefaults defaults = new GuildDefaults(store);
+            assertEquals("f1 sprint", defaults.get(GUILD));
+            assertTrue(defaults.clear(GUILD));
+            assertFalse(defaults.clear(GUILD));
+            assertNull(defaults.get(GUILD));
+            assertNull(store.get(Store.Space.GUILD_SETTINGS, GUILD));
+        }
+    }
+
+    @Test
+    void missesDontWaitBehindASlowWrite() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (LogStore store = LogStore.open(dir)) {
+            store.put(Store.Space.GUILD_SETTINGS, GUILD + 1, "motogp".getBytes());
+            // a put stuck in its fsync, with set holding the GuildDefaults lock
+            Store slow = new Store() {
+                @Override
+                public byte[] get(Space space, long id) {
+                    return store.get(space, id);
+                }
+
+                @Override
+                public boolean put(Space space, long id, byte[] value) {
+                    writing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return store.put(space, id, value);
+                }
+
+                @Override
+                public boolean delete(Space space, long id) {
+                    return store.delete(space, id);
+                }
+
+                @Override
+                public void forEach(Space space, Visitor visitor) {
+                    store.forEach(space, visitor);
+                }
+
+                @Override
+                public int size(Space space) {
+                    return store.size(space);
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+            GuildDefaults defaults = new GuildDefaults(slow);
+            CompletableFuture<Boolean> set = CompletableFuture.supplyAsync(() -> defaults.set(GUILD, "f1 sprint"));
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+            assertEquals("motogp", CompletableFuture.supplyAsync(() -> defaults.get(GUILD + 1)).get(5, TimeUnit.SECONDS));
+            // a miss on the guild being written reads the old value, and can't cache it over the write
+            assertNull(CompletableFuture.supplyAsync(() -> defaults.get(GUILD)).get(5, TimeUnit.SECONDS));
+
+            release.countDown();
+            assertTrue(set.get(5, TimeUnit.SECONDS));
+            assertEquals("f1 sprint", defaults.get(GUILD));
+        }
+    }
+
+    @Test
+    void guildsSharingASlotEachGetTheirOwn() {
+        GuildDefaults defaults = new GuildDefaults(null);
+        // more guilds than slots, so many share one and evict each other
+        int guilds = GuildDefaults.SLOTS * 4;
+        for (long g = 1; g <= guilds; g++) {
+            assertTrue(defaults.set(GUILD + g, "f1 " + g));
+        }
+        for (long g = guilds; g >= 1; g--) {
+            assertEquals("f1 " + g, defaults.get(GUILD + g));
+        }
+        assertNull(defaults.get(GUILD));
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.anirbanmu.wen.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Test;
+
+class GcLogTest {
+
+    @Test
+    void threadNamesBucketIntoSubsystems() {
+        assertEquals("calendar", GcLog.subsystem("calendar[123]"));
+        assertEquals("HttpClient-1-Worker", GcLog.subsystem("HttpClient-1-Worker-0"));
+        assertEquals("interaction", GcLog.subsystem("interaction-42"));
+        assertEquals("log-drain", GcLog.subsystem("log-drain"));
+        assertEquals("Reference Handler", GcLog.subsystem("Reference Handler"));
+        assertEquals("unnamed", GcLog.subsystem("123"));
+        assertEquals("unnamed", GcLog.subsystem(""));
+        assertEquals("unnamed", GcLog.subsystem(null));
+    }
+
+    @Test
+    void topAllocatorsAreHeaviestFirstInKb() {
+        Map<String, LongAdder> byThread = new ConcurrentHashMap<>();
+        String[] names = {"gateway", "calendar", "interaction", "log-drain", "unnamed"};
+        long[] bytes = {2048, 8192, 4096, 1024, 512};
+        for (int i = 0; i < names.length; i++) {
+            byThread.computeIfAbsent(names[i], _ -> new LongAdder()).add(bytes[i]);
+        }
+
+        assertEquals("calendar:8,interaction:4,gateway:2,log-drain:1", GcLog.topAllocators(byThread));
+        assertEquals("none", GcLog.topAllocators(Map.of()));
+    }
+}
@@ -0,0 +1,165 @@
+package com.github.anirbanmu.wen.reminder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.github.anirbanmu.wen.calendar.CalendarEvent;
+import com.github.anirbanmu.wen.calendar.CalendarFeed;
+import com.github.anirbanmu.wen.discord.DiscordResult;
+import com.github.anirbanmu.wen.store.LogStore;
+import com.github.anirbanmu.wen.store.Store;
+import com.github.anirbanmu.wen.util.TimerWheel;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RemindersTest {
+    private static final Duration LEAD = Duration.ofMinutes(1);
+    private static final Reminders.Topic SPRINTS = new Reminders.Topic("f1", "sprint", LEAD);
+
+    private record Sent(long channel, String text) {
+    }
+
+    @Test
+    void oneTimerPerTopicRemindsEveryChannel() throws Exception {
+        LinkedBlockingQueue<Sent> sent = new LinkedBlockingQueue<>();
+        try (TimerWheel wheel = new TimerWheel("test-wheel")) {
+            Reminders reminders = new Reminders(wheel, (channel, text) -> {
+                sent.add(new Sent(channel, text));
+                // channel 3 was deleted
+                return channel == 3 ? new DiscordResult.Failure<>("Discord API error", 404) : new DiscordResult.Success<>(null);
+            }, Clock.systemUTC());
+            CalendarFeed feed = feed(Map.of("Sprint", Duration.ofMillis(300), "Race", Duration.ofMillis(400)));
+            reminders.resolveWith(_ -> new Reminders.Target(feed, e -> e.lowerSummary().contains("sprint"), CalendarEvent::summary));
+
+            assertEquals(Reminders.Added.ADDED, reminders.subscribe(1, SPRINTS));
+            assertEquals(Reminders.Added.ADDED, reminders.subscribe(2, SPRINTS));
+            assertEquals(Reminders.Added.ADDED, reminders.subscribe(3, SPRINTS));
+            assertEquals(Reminders.Added.ALREADY, reminders.subscribe(2, SPRINTS));
+            assertEquals("Sprint", reminders.next(SPRINTS).summary());
+            int timers = wheel.stats().pending();
+            assertEquals(1, timers);
+
+            TreeSet<Long> channels = new TreeSet<>();
+            for (int i = 0; i < 3; i++) {
+                Sent s = sent.poll(5, TimeUnit.SECONDS);
+                assertEquals("Sprint", s.text());
+                channels.add(s.channel());
+            }
+            assertEquals(List.of(1L, 2L, 3L), List.copyOf(channels));
+            assertNull(sent.poll(700, TimeUnit.MILLISECONDS));
+            // nothing else matches, and the deleted channel was dropped
+            assertNull(reminders.next(SPRINTS));
+            assertEquals(2, reminders.count());
+        }
+    }
+
+    @Test
+    void replansWhenTheCalendarsChange() throws Exception {
+        LinkedBlockingQueue<Sent> sent = new LinkedBlockingQueue<>();
+        try (TimerWheel wheel = new TimerWheel("test-wheel")) {
+            Reminders reminders = new Reminders(wheel, (channel, text) -> {
+                sent.add(new Sent(channel, text));
+                return new DiscordResult.Success<>(null);
+            }, Clock.systemUTC());
+            CalendarFeed later = feed(Map.of("Sprint later", Duration.ofDays(3)));
+            reminders.resolveWith(_ -> new Reminders.Target(later, _ -> true, CalendarEvent::summary));
+            reminders.subscribe(7, SPRINTS);
+            assertEquals("Sprint later", reminders.next(SPRINTS).summary());
+
+            CalendarFeed sooner = feed(Map.of("Sprint sooner", Duration.ofMillis(300)));
+            reminders.resolveWith(_ -> new Reminders.Target(sooner, _ -> true, CalendarEvent::summary));
+            assertEquals(new Sent(7, "Sprint sooner"), sent.poll(5, TimeUnit.SECONDS));
+            assertEquals(1, wheel.stats().cancelled());
+
+            assertEquals(1, reminders.unsubscribe(7, "f1", "sprint"));
+            assertEquals(0, reminders.count());
+            assertEquals(List.of(), reminders.topics(7));
+        }
+    }
+
+    @Test
+    void channelsStillQueuedWhenTheEventStartsAreSkipped() throws Exception {
+        LinkedBlockingQueue<Sent> sent = new LinkedBlockingQueue<>();
+        AtomicLong skew = new AtomicLong();
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.now().plusMillis(skew.get());
+            }
+        };
+        try (TimerWheel wheel = new TimerWheel("test-wheel")) {
+            Reminders reminders = new Reminders(wheel, (channel, text) -> {
+                sent.add(new Sent(channel, text));
+                // each send takes 40s of the minute's lead, as if behind thousands of other channels
+                skew.addAndGet(40_000);
+                return new DiscordResult.Success<>(null);
+            }, clock);
+            CalendarFeed feed = feed(Map.of("Sprint", Duration.ofMillis(300)));
+            reminders.resolveWith(_ -> new Reminders.Target(feed, _ -> true, CalendarEvent::summary));
+            for (long channel = 1; channel <= 4; channel++) {
+                reminders.subscribe(channel, SPRINTS);
+            }
+
+            assertEquals(new Sent(1, "Sprint"), sent.poll(5, TimeUnit.SECONDS));
+            assertEquals(new Sent(2, "Sprint"), sent.poll(5, TimeUnit.SECONDS));
+            // 80s in, the sprint started 20s ago, so channels 3 and 4 hear nothing
+            assertNull(sent.poll(700, TimeUnit.MILLISECONDS));
+            assertEquals(4, reminders.count());
+        }
+    }
+
+    @Test
+    void subscriptionsSurviveARestart(@TempDir Path dir) throws Exception {
+        try (TimerWheel wheel = new TimerWheel("test-wheel")) {
+            Reminders.Sender none = (_, _) -> new DiscordResult.Success<>(null);
+            try (LogStore store = LogStore.open(dir)) {
+                Reminders reminders = new Reminders(wheel, none, Clock.systemUTC(), store);
+                reminders.subscribe(11, SPRINTS);
+                reminders.subscribe(11, new Reminders.Topic("motogp", "", Duration.ofHours(1)));
+                reminders.subscribe(12, SPRINTS);
+                reminders.unsubscribe(12, "f1", "sprint");
+            }
+            try (LogStore store = LogStore.open(dir)) {
+                Reminders reminders = new Reminders(wheel, none, Clock.systemUTC(), store);
+                assertEquals(2, reminders.count());
+                assertEquals(Set.of(SPRINTS, new Reminders.Topic("motogp", "", Duration.ofHours(1))), Set.copyOf(reminders.topics(11)));
+                assertEquals(1, store.size(Store.Space.REMINDERS));
+            }
+        }
+    }
+
+    // events starting LEAD plus the given offset from now, so their reminder is due after the offset
+    private static CalendarFeed feed(Map<String, Duration> dueIn) {
+        Instant now = Instant.now();
+        return CalendarFeed.fixed(dueIn.entrySet().stream()
+            .map(e -> {
+                Instant start = now.plus(LEAD).plus(e.getValue());
+                return CalendarEvent.create(e.getKey(), start, start.plus(Duration.ofHours(1)), null, null, null);
+            })
+            .sorted((a, b) -> a.start().compareTo(b.start()))
+            .toList());
+    }
+}
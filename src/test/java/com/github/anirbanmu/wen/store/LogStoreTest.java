@@ -0,0 +1,180 @@
+package com.github.anirbanmu.wen.store;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.anirbanmu.wen.store.Store.Space;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LogStoreTest {
+    private static final long GUILD = 1_095_381_207_520_378_880L;
+    private static final long CHANNEL = 1_095_381_207_520_378_881L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void survivesReopenWithSpacesKeptApart() throws IOException {
+        try (LogStore store = LogStore.open(dir)) {
+            assertTrue(store.put(Space.GUILD_SETTINGS, GUILD, bytes("f1")));
+            assertTrue(store.put(Space.REMINDERS, GUILD, bytes("not a guild setting")));
+            assertTrue(store.put(Space.REMINDERS, CHANNEL, bytes("first")));
+            assertTrue(store.put(Space.REMINDERS, CHANNEL, bytes("second")));
+            assertTrue(store.delete(Space.REMINDERS, GUILD));
+            assertFalse(store.delete(Space.REMINDERS, GUILD));
+            assertFalse(store.put(Space.REMINDERS, CHANNEL, new byte[LogStore.MAX_VALUE + 1]));
+        }
+        try (LogStore store = LogStore.open(dir)) {
+            assertEquals("f1", string(store.get(Space.GUILD_SETTINGS, GUILD)));
+            assertEquals("second", string(store.get(Space.REMINDERS, CHANNEL)));
+            assertNull(store.get(Space.REMINDERS, GUILD));
+            assertEquals(1, store.size(Space.REMINDERS));
+        }
+    }
+
+    @Test
+    void tornTailIsCutBackToTheLastGoodRecord() throws IOException {
+        try (LogStore store = LogStore.open(dir)) {
+            store.put(Space.GUILD_SETTINGS, GUILD, bytes("kept"));
+            store.put(Space.GUILD_SETTINGS, CHANNEL, bytes("torn"));
+        }
+        Path file = dir.resolve(LogStore.fileName(0));
+        long good;
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            // a crash partway through the second append
+            good = raf.length() - (LogStore.FRAME_HEADER + LogStore.PAYLOAD_HEADER + 4);
+            raf.setLength(raf.length() - 3);
+        }
+
+        try (LogStore store = LogStore.open(dir)) {
+            assertEquals("kept", string(store.get(Space.GUILD_SETTINGS, GUILD)));
+            assertNull(store.get(Space.GUILD_SETTINGS, CHANNEL));
+            assertEquals(good, store.fileSize());
+            // appends carry on after the good data
+            store.put(Space.GUILD_SETTINGS, CHANNEL, bytes("again"));
+        }
+        try (LogStore store = LogStore.open(dir)) {
+            assertEquals("again", string(store.get(Space.GUILD_SETTINGS, CHANNEL)));
+        }
+    }
+
+    @Test
+    void flippedBitFailsTheChecksum() throws IOException {
+        try (LogStore store = LogStore.open(dir)) {
+            store.put(Space.GUILD_SETTINGS, GUILD, bytes("kept"));
+            store.put(Space.GUILD_SETTINGS, CHANNEL, bytes("corrupt"));
+        }
+        Path file = dir.resolve(LogStore.fileName(0));
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 2);
+            raf.write('X');
+        }
+        try (LogStore store = LogStore.open(dir)) {
+            assertEquals("kept", string(store.get(Space.GUILD_SETTINGS, GUILD)));
+            assertNull(store.get(Space.GUILD_SETTINGS, CHANNEL));
+        }
+    }
+
+    @Test
+    void corruptMiddleFrameIsSkippedAndLaterRecordsSurvive() throws IOException {
+        long middle;
+        try (LogStore store = LogStore.open(dir)) {
+            store.put(Space.REMINDERS, 1, bytes("first"));
+            middle = store.fileSize();
+            store.put(Space.REMINDERS, 2, bytes("corrupt"));
+            store.put(Space.REMINDERS, 3, bytes("third"));
+            store.put(Space.REMINDERS, 1, bytes("first again"));
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(dir.resolve(LogStore.fileName(0)).toFile(), "rw")) {
+            raf.seek(middle + LogStore.FRAME_HEADER + LogStore.PAYLOAD_HEADER);
+            raf.write('X');
+        }
+        try (LogStore store = LogStore.open(dir)) {
+            assertNull(store.get(Space.REMINDERS, 2));
+            assertEquals("third", string(store.get(Space.REMINDERS, 3)));
+            assertEquals("first again", string(store.get(Space.REMINDERS, 1)));
+            store.put(Space.REMINDERS, 4, bytes("after"));
+        }
+        try (LogStore store = LogStore.open(dir)) {
+            assertEquals("after", string(store.get(Space.REMINDERS, 4)));
+            assertEquals(3, store.size(Space.REMINDERS));
+        }
+    }
+
+    @Test
+    void emptyFileOrZeroedTailIsNotCorruption() throws IOException {
+        // a store file created without its header, as a crash could leave before headers were renamed into place
+        Files.write(dir.resolve(LogStore.fileName(0)), new byte[0]);
+        try (LogStore store = LogStore.open(dir)) {
+            assertEquals(LogStore.HEADER, store.fileSize());
+            store.put(Space.GUILD_SETTINGS, GUILD, bytes("kept"));
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(dir.resolve(LogStore.fileName(0)).toFile(), "rw")) {
+            raf.setLength(raf.length() + 64);
+        }
+        try (LogStore store = LogStore.open(dir)) {
+            assertEquals("kept", string(store.get(Space.GUILD_SETTINGS, GUILD)));
+        }
+    }
+
+    @Test
+    void compactionKeepsOnlyLiveRecords() throws IOException {
+        Map<Long, String> expected = new HashMap<>();
+        try (LogStore store = LogStore.open(dir)) {
+            // rewriting the same few keys is mostly dead records, so it compacts along the way
+            for (int round = 0; round < 200; round++) {
+                for (long id = 1; id <= 20; id++) {
+                    String value = "v" + round + "-" + "x".repeat(40);
+                    store.put(Space.REMINDERS, id, bytes(value));
+                    expected.put(id, value);
+                }
+            }
+            store.delete(Space.REMINDERS, 5);
+            expected.remove(5L);
+            store.compact();
+            assertTrue(store.fileSize() < 20 * 100, String.valueOf(store.fileSize()));
+        }
+        // a compaction that died before its rename leaves a .tmp, which is ignored
+        Files.writeString(dir.resolve(LogStore.fileName(99) + ".tmp"), "partial");
+
+        try (LogStore store = LogStore.open(dir)) {
+            Map<Long, String> loaded = new HashMap<>();
+            store.forEach(Space.REMINDERS, (id, value) -> loaded.put(id, string(value)));
+            assertEquals(expected, loaded);
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void refusesNewKeysPastItsBound() throws IOException {
+        try (LogStore store = LogStore.open(dir, 2)) {
+            assertTrue(store.put(Space.GUILD_SETTINGS, 1, bytes("a")));
+            assertTrue(store.put(Space.REMINDERS, 2, bytes("b")));
+            assertFalse(store.put(Space.REMINDERS, 3, bytes("c")));
+            // overwriting an existing key is still fine
+            assertTrue(store.put(Space.REMINDERS, 2, bytes("b2")));
+            assertArrayEquals(bytes("b2"), store.get(Space.REMINDERS, 2));
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.anirbanmu.wen.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class LongLongMapTest {
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        Random random = new Random(11);
+        LongLongMap map = new LongLongMap();
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            // a small key range so removes hit, and probe runs get long
+            long key = 1 + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.containsKey(key) ? expected.remove(key) : -1L, map.remove(key));
+            } else {
+                long value = random.nextInt(1 << 20);
+                Long old = expected.put(key, value);
+                assertEquals(old == null ? -1L : old, map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        Map<Long, Long> seen = new HashMap<>();
+        map.forEach(seen::put);
+        assertEquals(expected, seen);
+        for (long key = 1; key <= 2_000; key++) {
+            assertEquals(expected.getOrDefault(key, -1L), map.get(key));
+        }
+    }
+}
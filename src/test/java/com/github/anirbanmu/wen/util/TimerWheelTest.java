@@ -0,0 +1,113 @@
+package com.github.anirbanmu.wen.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+
+    @Test
+    void firesInDeadlineOrderAndNeverEarly() throws Exception {
+        try (TimerWheel wheel = new TimerWheel("test-wheel")) {
+            List<String> order = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(3);
+            long start = System.nanoTime();
+            long[] firedAfterMs = new long[3];
+            int[] delays = {300, 50, 900}; // 900ms cascades down from level 1
+            for (int i = 0; i < delays.length; i++) {
+                int idx = i;
+                wheel.schedule("t" + i, Duration.ofMillis(delays[i]), () -> {
+                    firedAfterMs[idx] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    order.add("t" + idx);
+                    done.countDown();
+                });
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("t1", "t0", "t2"), order);
+            for (int i = 0; i < delays.length; i++) {
+                assertTrue(firedAfterMs[i] >= delays[i], "t" + i + " fired after " + firedAfterMs[i] + "ms");
+            }
+            TimerWheel.Stats stats = wheel.stats();
+            assertEquals(3, stats.scheduled());
+            assertEquals(3, stats.fired());
+            assertEquals(0, stats.pending());
+        }
+    }
+
+    @Test
+    void sleepsUntilTheNextDeadlineInsteadOfTicking() throws Exception {
+        try (TimerWheel wheel = new TimerWheel("test-wheel")) {
+            CountDownLatch fired = new CountDownLatch(1);
+            wheel.schedule("far", Duration.ofMillis(1500), fired::countDown);
+
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+            // 150 ticks went by; the wheel woke for the cascade and the deadline, not per tick
+            assertTrue(wheel.stats().wakeups() <= 4, wheel.stats().toString());
+        }
+    }
+
+    @Test
+    void cancelledTimerNeverRuns() throws Exception {
+        try (TimerWheel wheel = new TimerWheel("test-wheel")) {
+            AtomicInteger runs = new AtomicInteger();
+            TimerWheel.Timeout t = wheel.schedule("cancelled", Duration.ofMillis(100), runs::incrementAndGet);
+            assertTrue(t.cancel());
+            assertFalse(t.cancel());
+
+            Thread.sleep(300);
+            assertEquals(0, runs.get());
+            assertEquals(1, wheel.stats().cancelled());
+            assertEquals(0, wheel.stats().pending());
+        }
+    }
+
+    @Test
+    void repeatsUntilCancelled() throws Exception {
+        try (TimerWheel wheel = new TimerWheel("test-wheel")) {
+            AtomicInteger runs = new AtomicInteger();
+            CountDownLatch three = new CountDownLatch(3);
+            TimerWheel.Timeout t = wheel.repeat("repeat", Duration.ofMillis(50), Duration.ZERO, () -> {
+                runs.incrementAndGet();
+                three.countDown();
+            });
+
+            assertTrue(three.await(5, TimeUnit.SECONDS));
+            t.cancel();
+            Thread.sleep(50);
+            int after = runs.get();
+            Thread.sleep(200);
+            assertEquals(after, runs.get());
+        }
+    }
+
+    @Test
+    void slackRoundsOntoSharedBoundaries() {
+        long tick = TimerWheel.TICK_NANOS;
+        long slack = TimeUnit.SECONDS.toNanos(1) / tick;
+        // deadlines anywhere within the same second land on the same tick
+        assertEquals(TimerWheel.align(1001, slack), TimerWheel.align(1099, slack));
+        assertEquals(1100, TimerWheel.align(1001, slack));
+        assertEquals(1100, TimerWheel.align(1100, slack));
+        assertEquals(1234, TimerWheel.align(1234, 0));
+    }
+
+    @Test
+    void jitterStaysWithinSpread() {
+        for (int i = 0; i < 1000; i++) {
+            long ms = TimerWheel.jitter(Duration.ofSeconds(60), Duration.ofSeconds(5)).toMillis();
+            assertTrue(ms >= 55_000 && ms <= 65_000, Long.toString(ms));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(TimerWheel.jitter(Duration.ofSeconds(1), Duration.ofSeconds(5)).isNegative());
+        }
+    }
+}